@@ -2,7 +2,10 @@
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 
 import database.DbAccess;
@@ -13,28 +16,45 @@ import database.TableSchema;
 import database.TableSchema.Column;
 
 /**
- * Rappresenta un intero dataset, caricato da una fonte dati come un database.
- * <p>
- * Questa classe agisce da contenitore per un insieme di transazioni ({@link Example})
- * e per lo schema degli attributi ({@link Attribute}) che le descrivono.
- * Si occupa di interrogare il database per costruire dinamicamente lo schema,
- * distinguendo tra attributi discreti e continui, e di caricare i dati grezzi.
- * </p>
- */
+ * Rappresenta un intero dataset, caricato da una fonte dati come un database.
+ * <p>
+ * Questa classe agisce da contenitore per un insieme di transazioni ({@link Example})
+ * e per lo schema degli attributi ({@link Attribute}) che le descrivono.
+ * Si occupa di interrogare il database per costruire dinamicamente lo schema,
+ * distinguendo tra attributi discreti e continui, e di caricare i dati grezzi.
+ * </p>
+ * <p>
+ * Le transazioni sono memorizzate per colonne, con tipi primitivi: per ogni
+ * {@link ContinuousAttribute} un array {@code double[]} con i valori originali e uno
+ * con i valori già scalati in [0, 1]; per ogni {@link DiscreteAttribute} un array
+ * {@code int[]} di codici, assegnati dall'attributo stesso
+ * ({@link DiscreteAttribute#getCode(String)}), per cui il confronto tra valori discreti
+ * si riduce a un confronto tra interi. La distanza tra due righe ({@link #distance(int, int)}) viene calcolata
+ * direttamente su questi array, senza costruire oggetti {@link Tuple}.
+ * </p>
+ */
 public class Data {
 
-	/**
-	 * L'insieme di transazioni
-	 * Ogni elemento della lista è un oggetto che rappresenta un insieme di attributi.
-     * Utilizza un {@link ArrayList} per la memorizzazione.
-	 */
-    private List<Example> data = new ArrayList<Example>();
-    
+    /**
+     * Codice di colonna per un attributo continuo.
+     */
+    static final byte CONTINUOUS = 0;
+
+    /**
+     * Codice di colonna per un attributo discreto.
+     */
+    static final byte DISCRETE = 1;
+
+    /**
+     * Codice di colonna per un attributo di tipo non gestito.
+     */
+    static final byte UNKNOWN = 2;
+
     /**
      * Cardinalità dell'insieme di transazioni.
      */
     private int numberOfExamples;
-    
+
     /**
      * Schema della lista di dati.
 	 * Ogni elemento della lista è un oggetto che rappresenta un attributo corrispondente ad una tupla.
@@ -42,6 +62,78 @@ public class Data {
      */
     private List<Attribute> explanatorySet = new LinkedList<>();
 
+    /**
+     * Il tipo di ciascuna colonna ({@link #CONTINUOUS}, {@link #DISCRETE} o {@link #UNKNOWN}),
+     * nell'ordine dello schema.
+     */
+    private byte[] kinds;
+
+    /**
+     * Per ogni attributo continuo, i valori originali della colonna; {@code null} altrimenti.
+     */
+    private double[][] values;
+
+    /**
+     * Per ogni attributo continuo, i valori della colonna scalati in [0, 1]; {@code null} altrimenti.
+     */
+    private double[][] scaledValues;
+
+    /**
+     * Per ogni attributo discreto, i codici dei valori della colonna; {@code null} altrimenti.
+     */
+    private int[][] codes;
+
+    /**
+     * Per ogni attributo discreto, il dizionario che associa a ogni codice il valore
+     * corrispondente; {@code null} altrimenti. Le prime voci coincidono con il dominio
+     * dell'attributo, seguite dagli eventuali valori estranei al dominio.
+     */
+    private String[][] dictionaries;
+
+    /**
+     * Per ogni attributo di tipo non gestito, i valori grezzi della colonna; {@code null} altrimenti.
+     */
+    private Object[][] rawValues;
+
+    /**
+     * Gli indici delle colonne discrete, nell'ordine dello schema, usati da
+     * {@link #distance(int, int, double)} per confrontare per primi gli attributi
+     * che contribuiscono alla distanza con un intero {@code 1.0}.
+     */
+    private int[] discreteColumns;
+
+    /**
+     * Per ogni riga, l'indice della transazione caricata da cui proviene, se le transazioni
+     * sono distinte (vedi {@link #Data(String)}), altrimenti {@code null}. Le copie di una
+     * transazione con molteplicità maggiore di 1 condividono l'indice.
+     */
+    private int[] sourceExamples;
+
+    /**
+     * I gruppi di righe identiche, calcolati alla prima invocazione di
+     * {@link #getDuplicateGroups()}.
+     */
+    private volatile int[] duplicateGroups;
+
+    /**
+     * Indica se il modulo {@code jdk.incubator.vector} è disponibile ed è utilizzabile
+     * sulla piattaforma corrente.
+     */
+    private static final boolean VECTOR_SUPPORTED = isVectorModulePresent();
+
+    /**
+     * Indica se i nuovi dataset usano il kernel vettoriale, quando disponibile. Il valore
+     * predefinito può essere disattivato con la proprietà di sistema
+     * {@code qtserver.vectorized=false}.
+     */
+    private static final boolean VECTORIZED_BY_DEFAULT =
+            Boolean.parseBoolean(System.getProperty("qtserver.vectorized", "true"));
+
+    /**
+     * Il kernel usato da {@link #distances(int, int, int, double[], int)}.
+     */
+    private DistanceKernel kernel;
+
     /**
      * Costruisce e popola l'oggetto Data connettendosi a un database.
      * <p>
@@ -52,7 +144,7 @@ public class Data {
      * <li>Per ogni colonna dello schema, determina se l'attributo è discreto o continuo.</li>
      * <li>Per gli attributi continui, esegue query di aggregazione (MIN, MAX) per determinarne il dominio.</li>
      * <li>Per gli attributi discreti, esegue una query per ottenere tutti i valori distinti del dominio.</li>
-     * <li>Carica tutte le transazioni (tuple) distinte dalla tabella.</li>
+     * <li>Carica tutte le transazioni (tuple) distinte dalla tabella e le memorizza per colonne.</li>
      * <li>Garantisce la chiusura della connessione al database al termine delle operazioni.</li>
      * </ol>
      *
@@ -66,10 +158,7 @@ public class Data {
             TableData tableData = new TableData(db);
 
             // Caricamento delle transazioni
-            this.data = tableData.getDistinctTransazioni(tableName);
-            
-            // Imposta correttamente il numero di esempi
-            this.numberOfExamples = this.data.size();
+            List<Example> examples = tableData.getDistinctTransazioni(tableName);
 
             // Inizializzazione dello schema degli attributi
             TableSchema schema = new TableSchema(db, tableName);
@@ -89,6 +178,10 @@ public class Data {
                     explanatorySet.add(new DiscreteAttribute(col.getColumnName(), i, nominalValues));
                 }
             }
+
+            // Le righe vengono convertite in colonne; la lista di Example può essere rilasciata.
+            // Il raggruppamento della query rende le transazioni distinte.
+            load(examples, true);
         } finally {
             // Il blocco 'finally' viene eseguito SEMPRE, sia che il try abbia successo
             // sia che lanci un'eccezione.
@@ -98,7 +191,7 @@ public class Data {
             }
         }
     }
-    
+
     /**
      * Costruttore di supporto per la creazione di un dataset in memoria.
      * <p>
@@ -113,15 +206,283 @@ public class Data {
      * @see mining.QTMinerTest
      */
     public Data(List<Example> data, List<Attribute> explanatorySet) {
-        this.data = data;
         this.explanatorySet = explanatorySet;
-        this.numberOfExamples = data.size();
+        load(data, false);
+    }
+
+    /**
+     * Costruisce un dataset con un sottoinsieme delle righe di un altro dataset, con lo
+     * stesso schema e gli stessi dizionari.
+     *
+     * @param source Il dataset di origine.
+     * @param rows Gli indici delle righe di {@code source} da copiare, nell'ordine desiderato.
+     */
+    private Data(Data source, int[] rows) {
+        int attributes = source.kinds.length;
+        explanatorySet = source.explanatorySet;
+        numberOfExamples = rows.length;
+        kinds = source.kinds;
+        values = new double[attributes][];
+        scaledValues = new double[attributes][];
+        codes = new int[attributes][];
+        dictionaries = source.dictionaries;
+        rawValues = new Object[attributes][];
+        discreteColumns = source.discreteColumns;
+        for (int a = 0; a < attributes; a++) {
+            switch (kinds[a]) {
+                case CONTINUOUS:
+                    values[a] = new double[rows.length];
+                    scaledValues[a] = new double[rows.length];
+                    for (int r = 0; r < rows.length; r++) {
+                        values[a][r] = source.values[a][rows[r]];
+                        scaledValues[a][r] = source.scaledValues[a][rows[r]];
+                    }
+                    break;
+                case DISCRETE:
+                    codes[a] = new int[rows.length];
+                    for (int r = 0; r < rows.length; r++) {
+                        codes[a][r] = source.codes[a][rows[r]];
+                    }
+                    break;
+                default:
+                    rawValues[a] = new Object[rows.length];
+                    for (int r = 0; r < rows.length; r++) {
+                        rawValues[a][r] = source.rawValues[a][rows[r]];
+                    }
+                    break;
+            }
+        }
+        this.kernel = createKernel(source.isVectorized());
+    }
+
+    /**
+     * Converte le transazioni nella rappresentazione per colonne.
+     * <p>
+     * I valori che non corrispondono al tipo dell'attributo vengono convertiti come
+     * avveniva in passato durante la costruzione delle tuple: i numeri non {@code Double}
+     * vengono convertiti a {@code double}, i valori mancanti degli attributi continui
+     * diventano {@code NaN} e i valori non stringa degli attributi discreti vengono
+     * convertiti con {@code toString()} ({@code ""} se nulli). Per ogni colonna che ha
+     * richiesto conversioni viene stampato un solo avviso su {@code System.err}.
+     * </p>
+     * <p>
+     * I valori discreti sono codificati con i codici del rispettivo {@link DiscreteAttribute};
+     * ai valori che non appartengono al dominio dell'attributo vengono assegnati codici
+     * successivi, validi soltanto per questo dataset.
+     * </p>
+     * <p>
+     * Un esempio con molteplicità ({@link Example#getWeight()}) maggiore di 1 occupa
+     * altrettante righe consecutive, così che ogni riga originale della tabella abbia un
+     * proprio indice.
+     * </p>
+     *
+     * @param examples Le transazioni da memorizzare.
+     * @param distinct {@code true} se le transazioni sono a due a due diverse: le righe
+     * identiche sono allora soltanto le copie di una stessa transazione, e
+     * {@link #getDuplicateGroups()} non deve confrontarne i valori.
+     */
+    private void load(List<Example> examples, boolean distinct) {
+        if (distinct) {
+            int rows = 0;
+            for (Example example : examples) {
+                rows += example.getWeight();
+            }
+            sourceExamples = new int[rows];
+            int row = 0;
+            for (int k = 0; k < examples.size(); k++) {
+                for (int copy = 0; copy < examples.get(k).getWeight(); copy++) {
+                    sourceExamples[row++] = k;
+                }
+            }
+        }
+        if (examples.stream().anyMatch(example -> example.getWeight() > 1)) {
+            List<Example> expanded = new ArrayList<>();
+            for (Example example : examples) {
+                for (int copy = 0; copy < example.getWeight(); copy++) {
+                    expanded.add(example);
+                }
+            }
+            examples = expanded;
+        }
+        int attributes = explanatorySet.size();
+        numberOfExamples = examples.size();
+        kinds = new byte[attributes];
+        values = new double[attributes][];
+        scaledValues = new double[attributes][];
+        codes = new int[attributes][];
+        dictionaries = new String[attributes][];
+        rawValues = new Object[attributes][];
+
+        for (int a = 0; a < attributes; a++) {
+            Attribute attribute = explanatorySet.get(a);
+            if (attribute instanceof ContinuousAttribute) {
+                kinds[a] = CONTINUOUS;
+                values[a] = new double[numberOfExamples];
+                scaledValues[a] = new double[numberOfExamples];
+            } else if (attribute instanceof DiscreteAttribute) {
+                kinds[a] = DISCRETE;
+                codes[a] = new int[numberOfExamples];
+            } else {
+                System.err.println("Attenzione: Tipo di attributo non gestito: " + attribute.getClass().getName());
+                kinds[a] = UNKNOWN;
+                rawValues[a] = new Object[numberOfExamples];
+            }
+        }
+
+        // Valori estranei al dominio degli attributi discreti, con i rispettivi codici
+        List<Map<String, Integer>> extraCodes = new ArrayList<>();
+        List<List<String>> extraValues = new ArrayList<>();
+        int[] conversions = new int[attributes];
+        for (int a = 0; a < attributes; a++) {
+            extraCodes.add(new HashMap<>());
+            extraValues.add(new ArrayList<>());
+        }
+
+        int row = 0;
+        for (Example example : examples) {
+            for (int a = 0; a < attributes; a++) {
+                Object value = example.get(a);
+                switch (kinds[a]) {
+                    case CONTINUOUS:
+                        double v;
+                        if (value instanceof Double) {
+                            v = (Double) value;
+                        } else if (value instanceof Number) {
+                            v = ((Number) value).doubleValue();
+                            conversions[a]++;
+                        } else {
+                            v = Double.NaN;
+                            conversions[a]++;
+                        }
+                        values[a][row] = v;
+                        scaledValues[a][row] = ((ContinuousAttribute) explanatorySet.get(a)).getScaledValue(v);
+                        break;
+                    case DISCRETE:
+                        String s;
+                        if (value instanceof String) {
+                            s = (String) value;
+                        } else {
+                            s = (value != null) ? value.toString() : "";
+                            conversions[a]++;
+                        }
+                        DiscreteAttribute attribute = (DiscreteAttribute) explanatorySet.get(a);
+                        int code = attribute.getCode(s);
+                        if (code < 0) {
+                            Integer extra = extraCodes.get(a).get(s);
+                            if (extra == null) {
+                                extra = attribute.getNumberOfDistinctValues() + extraValues.get(a).size();
+                                extraCodes.get(a).put(s, extra);
+                                extraValues.get(a).add(s);
+                            }
+                            code = extra;
+                        }
+                        codes[a][row] = code;
+                        break;
+                    default:
+                        rawValues[a][row] = value;
+                        break;
+                }
+            }
+            row++;
+        }
+
+        for (int a = 0; a < attributes; a++) {
+            if (kinds[a] == DISCRETE) {
+                DiscreteAttribute attribute = (DiscreteAttribute) explanatorySet.get(a);
+                int domain = attribute.getNumberOfDistinctValues();
+                List<String> extras = extraValues.get(a);
+                dictionaries[a] = new String[domain + extras.size()];
+                for (int code = 0; code < domain; code++) {
+                    dictionaries[a][code] = attribute.getValue(code);
+                }
+                for (int k = 0; k < extras.size(); k++) {
+                    dictionaries[a][domain + k] = extras.get(k);
+                }
+            }
+            if (conversions[a] > 0) {
+                System.err.println("Attenzione: " + conversions[a] + " valori dell'attributo '"
+                        + explanatorySet.get(a).getName() + "' non corrispondono al tipo atteso e sono stati convertiti.");
+            }
+        }
+
+        int discrete = 0;
+        discreteColumns = new int[attributes];
+        for (int a = 0; a < attributes; a++) {
+            if (kinds[a] == DISCRETE) {
+                discreteColumns[discrete++] = a;
+            }
+        }
+        discreteColumns = Arrays.copyOf(discreteColumns, discrete);
+
+        this.kernel = createKernel(VECTORIZED_BY_DEFAULT);
+    }
+
+    /**
+     * Verifica se il modulo {@code jdk.incubator.vector} è stato caricato nella JVM
+     * (opzione {@code --add-modules jdk.incubator.vector}) e offre vettori utilizzabili.
+     *
+     * @return {@code true} se il kernel vettoriale può essere istanziato.
+     */
+    private static boolean isVectorModulePresent() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorDistanceKernel.isUsable();
+        } catch (LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Indica se la JVM corrente supporta il calcolo vettoriale delle distanze.
+     *
+     * @return {@code true} se il modulo {@code jdk.incubator.vector} è disponibile.
+     */
+    public static boolean isVectorSupported() {
+        return VECTOR_SUPPORTED;
+    }
+
+    /**
+     * Sceglie il kernel con cui {@link #distances(int, int, int, double[], int)} calcola
+     * le distanze: vettoriale (SIMD) o scalare. I risultati sono identici nei due casi.
+     * <p>
+     * Se il calcolo vettoriale è richiesto ma la JVM non lo supporta, viene usato il
+     * kernel scalare.
+     * </p>
+     *
+     * @param vectorized {@code true} per usare il kernel vettoriale, se disponibile.
+     * @return {@code true} se il kernel vettoriale è effettivamente in uso.
+     */
+    public boolean setVectorized(boolean vectorized) {
+        kernel = createKernel(vectorized);
+        return isVectorized();
+    }
+
+    /**
+     * Crea il kernel delle distanze sulle colonne del dataset; usato anche dai costruttori,
+     * che non possono invocare il metodo sovrascrivibile {@link #setVectorized(boolean)}.
+     */
+    private DistanceKernel createKernel(boolean vectorized) {
+        if (vectorized && VECTOR_SUPPORTED) {
+            return new VectorDistanceKernel(kinds, scaledValues, codes);
+        }
+        return new ScalarDistanceKernel(kinds, scaledValues, codes);
+    }
+
+    /**
+     * Indica se il dataset usa il kernel vettoriale per il calcolo delle distanze.
+     *
+     * @return {@code true} se il kernel in uso è quello vettoriale.
+     */
+    public boolean isVectorized() {
+        return VECTOR_SUPPORTED && kernel instanceof VectorDistanceKernel;
     }
 
 
     /**
      * Restituisce l'intero che indica la cardinalità dell'insieme di transazioni.
-     * 
+     *
      * @return il numero di esempi
      */
     public int getNumberOfExamples() {
@@ -130,7 +491,7 @@ public class Data {
 
     /**
      * Restituisce l'intero che indica il numero di attributi dello schema.
-     * 
+     *
      * @return la dimensione dello schema.
      */
     public int getNumberOfExplanatoryAttributes() {
@@ -139,7 +500,7 @@ public class Data {
 
     /**
      * Restituisce lo schema di transazioni.
-     * 
+     *
      * @return lo schema.
      */
     public List<Attribute> getAttributeSchema() {
@@ -147,31 +508,369 @@ public class Data {
     }
 
     /**
-     * Restituisce un valore specifico dalla matrice dei dati.
-     * <p>
-     * <b>Attenzione:</b> la versione attuale del codice contiene un bug. Il controllo
-     * sull'indice dell'attributo ({@code attributeIndex}) viene erroneamente
-     * eseguito confrontandolo con il numero di esempi ({@code numberOfExamples})
-     * anziché con il numero di attributi.
-     * </p>
-     *
-     * @param exampleIndex   L'indice di riga (esempio).
-     * @param attributeIndex L'indice di colonna (attributo).
-     * @return Il valore nella cella specificata, o {@code null} se gli indici sono fuori range.
-     */
+     * Restituisce l'intero che indica il numero di attributi discreti dello schema.
+     *
+     * @return il numero di attributi discreti.
+     */
+    public int getNumberOfDiscreteAttributes() {
+        return discreteColumns.length;
+    }
+
+    /**
+     * Raggruppa le righe del dataset in base ai valori dei loro attributi discreti.
+     * <p>
+     * Due righe ricevono lo stesso identificativo se e solo se coincidono su tutti gli
+     * attributi discreti. Gli identificativi sono densi e assegnati in ordine di prima
+     * comparsa, per cui la riga {@code 0} appartiene sempre al gruppo {@code 0}; se lo
+     * schema non contiene attributi discreti, tutte le righe appartengono al gruppo {@code 0}.
+     * </p>
+     *
+     * @return Un array con l'identificativo del gruppo di ciascuna riga.
+     */
+    public int[] getDiscreteSignatures() {
+        int[] groups = new int[numberOfExamples];
+        for (int a : discreteColumns) {
+            // Ogni colonna raffina i gruppi ottenuti con le colonne precedenti
+            refine(groups, codes[a]);
+        }
+        return groups;
+    }
+
+    /**
+     * Raggruppa le righe identiche del dataset.
+     * <p>
+     * Due righe ricevono lo stesso identificativo se e solo se hanno gli stessi valori su
+     * tutti gli attributi e la loro distanza è nulla: le righe con valori non numerici dopo
+     * la normalizzazione o con attributi di tipo non gestito, che non sono vicine neppure
+     * di sé stesse, formano sempre un gruppo a sé. Gli identificativi sono densi e
+     * assegnati in ordine di prima comparsa.
+     * </p>
+     * <p>
+     * Il raggruppamento viene calcolato una sola volta per dataset. Per un dataset caricato
+     * da database le righe identiche sono già note dal caricamento (le copie di una stessa
+     * transazione) e i valori non vengono confrontati.
+     * </p>
+     *
+     * @return Un array con l'identificativo del gruppo di ciascuna riga.
+     */
+    public int[] getDuplicateGroups() {
+        int[] groups = duplicateGroups;
+        if (groups == null) {
+            groups = computeDuplicateGroups();
+            duplicateGroups = groups;
+        }
+        return groups.clone();
+    }
+
+    /**
+     * Calcola il raggruppamento restituito da {@link #getDuplicateGroups()}.
+     */
+    private int[] computeDuplicateGroups() {
+        int[] column = new int[numberOfExamples];
+        if (sourceExamples != null) {
+            int[] groups = sourceExamples.clone();
+            isolateNonReflexive(groups, column);
+            return groups;
+        }
+        int[] groups = new int[numberOfExamples];
+        for (int a = 0; a < kinds.length; a++) {
+            if (kinds[a] == DISCRETE) {
+                refine(groups, codes[a]);
+            } else if (kinds[a] == CONTINUOUS) {
+                Map<Long, Integer> valueCodes = new HashMap<>();
+                for (int row = 0; row < numberOfExamples; row++) {
+                    Long bits = Double.doubleToLongBits(values[a][row]);
+                    Integer code = valueCodes.get(bits);
+                    if (code == null) {
+                        code = valueCodes.size();
+                        valueCodes.put(bits, code);
+                    }
+                    column[row] = code;
+                }
+                refine(groups, column);
+            }
+        }
+        isolateNonReflexive(groups, column);
+        return groups;
+    }
+
+    /**
+     * Isola in un gruppo a sé le righe che non distano zero da sé stesse.
+     *
+     * @param groups Il gruppo di ciascuna riga, aggiornato sul posto.
+     * @param column Un array di appoggio lungo quanto il numero di righe.
+     */
+    private void isolateNonReflexive(int[] groups, int[] column) {
+        boolean isolated = false;
+        for (int row = 0; row < numberOfExamples; row++) {
+            column[row] = (distance(row, row) == 0.0) ? 0 : row + 1;
+            isolated |= column[row] != 0;
+        }
+        if (isolated) {
+            refine(groups, column);
+        }
+    }
+
+    /**
+     * Raffina una partizione delle righe: due righe restano nello stesso gruppo se e solo
+     * se vi erano già e hanno lo stesso valore in {@code column}. I nuovi identificativi
+     * sono densi e assegnati in ordine di prima comparsa.
+     *
+     * @param groups Il gruppo di ciascuna riga, aggiornato sul posto.
+     * @param column Un valore intero per ciascuna riga.
+     */
+    private void refine(int[] groups, int[] column) {
+        Map<Long, Integer> refined = new HashMap<>();
+        for (int row = 0; row < numberOfExamples; row++) {
+            long pair = ((long) groups[row] << 32) | (column[row] & 0xFFFFFFFFL);
+            Integer group = refined.get(pair);
+            if (group == null) {
+                group = refined.size();
+                refined.put(pair, group);
+            }
+            groups[row] = group;
+        }
+    }
+
+    /**
+     * Restituisce un nuovo dataset formato soltanto dalle righe specificate.
+     * <p>
+     * La riga {@code k} del nuovo dataset corrisponde alla riga {@code rows[k]} di questo
+     * dataset: lo schema, i codici dei valori discreti e quindi le distanze tra le righe
+     * restano invariati.
+     * </p>
+     *
+     * @param rows Gli indici delle righe da copiare.
+     * @return Il dataset con le sole righe indicate.
+     * @throws IndexOutOfBoundsException se uno degli indici non è valido.
+     */
+    public Data subset(int[] rows) {
+        for (int row : rows) {
+            if (row < 0 || row >= numberOfExamples) {
+                throw new IndexOutOfBoundsException("Indice dell'esempio " + row + " non valido. Validi: 0-" + (numberOfExamples - 1));
+            }
+        }
+        return new Data(this, rows);
+    }
+
+    /**
+     * Restituisce un valore specifico dalla matrice dei dati.
+     * <p>
+     * Per gli attributi continui restituisce il valore originale come {@link Double},
+     * per gli attributi discreti il valore come {@link String}.
+     * </p>
+     *
+     * @param exampleIndex   L'indice di riga (esempio).
+     * @param attributeIndex L'indice di colonna (attributo).
+     * @return Il valore nella cella specificata, o {@code null} se gli indici sono fuori range.
+     */
     public Object getAttributeValue(int exampleIndex, int attributeIndex) {
-        if (exampleIndex >= 0 && exampleIndex < data.size()) {
-            Example e = data.get(exampleIndex);
-            if (attributeIndex >= 0 && attributeIndex < numberOfExamples) {
-                return e.get(attributeIndex);
+        if (exampleIndex < 0 || exampleIndex >= numberOfExamples
+                || attributeIndex < 0 || attributeIndex >= kinds.length) {
+            return null;
+        }
+        switch (kinds[attributeIndex]) {
+            case CONTINUOUS:
+                return values[attributeIndex][exampleIndex];
+            case DISCRETE:
+                return dictionaries[attributeIndex][codes[attributeIndex][exampleIndex]];
+            default:
+                return rawValues[attributeIndex][exampleIndex];
+        }
+    }
+
+    /**
+     * Restituisce il valore scalato in [0, 1] di un attributo continuo, ovvero il valore
+     * con cui l'attributo contribuisce a {@link #distance(int, int)}.
+     *
+     * @param exampleIndex   L'indice di riga (esempio).
+     * @param attributeIndex L'indice di colonna (attributo).
+     * @return Il valore scalato, o {@code NaN} se l'attributo non è continuo o se gli
+     * indici sono fuori range.
+     */
+    public double getScaledValue(int exampleIndex, int attributeIndex) {
+        if (exampleIndex < 0 || exampleIndex >= numberOfExamples
+                || attributeIndex < 0 || attributeIndex >= kinds.length
+                || kinds[attributeIndex] != CONTINUOUS) {
+            return Double.NaN;
+        }
+        return scaledValues[attributeIndex][exampleIndex];
+    }
+
+    /**
+     * Calcola la distanza tra due righe del dataset direttamente sulla rappresentazione
+     * per colonne.
+     * <p>
+     * Il risultato coincide con {@code getItemSet(i).getDistance(getItemSet(j))}: per ogni
+     * attributo, nell'ordine dello schema, si somma la differenza assoluta dei valori
+     * scalati (attributi continui) oppure {@code 0.0}/{@code 1.0} a seconda che i valori
+     * coincidano o meno (attributi discreti). Non viene allocato alcun oggetto.
+     * </p>
+     *
+     * @param i L'indice della prima riga.
+     * @param j L'indice della seconda riga.
+     * @return La distanza tra le due righe.
+     * @throws IndexOutOfBoundsException se uno dei due indici non è valido.
+     */
+    public double distance(int i, int j) {
+        if (i < 0 || i >= numberOfExamples || j < 0 || j >= numberOfExamples) {
+            throw new IndexOutOfBoundsException("Indici degli esempi (" + i + ", " + j + ") non validi. Validi: 0-" + (numberOfExamples - 1));
+        }
+        double distance = 0.0;
+        for (int a = 0; a < kinds.length; a++) {
+            switch (kinds[a]) {
+                case CONTINUOUS:
+                    distance += Math.abs(scaledValues[a][i] - scaledValues[a][j]);
+                    break;
+                case DISCRETE:
+                    distance += (codes[a][i] == codes[a][j]) ? 0.0 : 1.0;
+                    break;
+                default:
+                    // Distanza non definita per attributi di tipo non gestito
+                    distance += Double.POSITIVE_INFINITY;
+                    break;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Calcola la distanza tra due righe del dataset, interrompendo il calcolo non appena
+     * risulta certo che la distanza supera una soglia.
+     * <p>
+     * Se la distanza tra le due righe è minore o uguale a {@code bound}, il risultato
+     * coincide esattamente con {@link #distance(int, int)}; altrimenti viene restituito un
+     * valore che non è minore o uguale a {@code bound} (un limite inferiore della distanza,
+     * oppure {@code NaN}). Il test {@code distance(i, j, radius) <= radius} equivale quindi
+     * a {@code distance(i, j) <= radius}.
+     * </p>
+     * <p>
+     * Vengono contati per primi gli attributi discreti diversi, che contribuiscono ciascuno
+     * con {@code 1.0}: poiché la somma arrotondata di termini non negativi non decresce,
+     * la distanza completa è almeno pari al numero di differenze e la coppia può essere
+     * scartata appena questo supera la soglia. Se ciò non accade, la distanza viene sommata
+     * nell'ordine dello schema, come in {@link #distance(int, int)}, e il calcolo si
+     * interrompe appena la somma parziale supera la soglia.
+     * </p>
+     *
+     * @param i L'indice della prima riga.
+     * @param j L'indice della seconda riga.
+     * @param bound La soglia oltre la quale la distanza esatta non interessa.
+     * @return La distanza tra le due righe, se non supera {@code bound}; un valore che non
+     * è minore o uguale a {@code bound} altrimenti.
+     * @throws IndexOutOfBoundsException se uno dei due indici non è valido.
+     */
+    public double distance(int i, int j, double bound) {
+        if (i < 0 || i >= numberOfExamples || j < 0 || j >= numberOfExamples) {
+            throw new IndexOutOfBoundsException("Indici degli esempi (" + i + ", " + j + ") non validi. Validi: 0-" + (numberOfExamples - 1));
+        }
+        int mismatches = 0;
+        for (int a : discreteColumns) {
+            if (codes[a][i] != codes[a][j] && ++mismatches > bound) {
+                return mismatches;
+            }
+        }
+        double distance = 0.0;
+        for (int a = 0; a < kinds.length; a++) {
+            switch (kinds[a]) {
+                case CONTINUOUS:
+                    distance += Math.abs(scaledValues[a][i] - scaledValues[a][j]);
+                    break;
+                case DISCRETE:
+                    distance += (codes[a][i] == codes[a][j]) ? 0.0 : 1.0;
+                    break;
+                default:
+                    // Distanza non definita per attributi di tipo non gestito
+                    distance += Double.POSITIVE_INFINITY;
+                    break;
+            }
+            if (distance > bound) {
+                return distance;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Calcola le distanze tra una riga e un intervallo di righe consecutive del dataset.
+     * <p>
+     * Ogni distanza coincide con quella restituita da {@link #distance(int, int)}; il
+     * calcolo in blocco procede però per colonne e, se abilitato con
+     * {@link #setVectorized(boolean)}, elabora più righe per istruzione.
+     * </p>
+     *
+     * @param i L'indice della riga di riferimento.
+     * @param from L'indice della prima riga dell'intervallo (inclusa).
+     * @param to L'indice dell'ultima riga dell'intervallo (esclusa).
+     * @param out L'array in cui scrivere le distanze.
+     * @param offset La posizione di {@code out} che riceve la distanza dalla riga {@code from}.
+     * @throws IndexOutOfBoundsException se uno degli indici non è valido o se {@code out}
+     * non ha spazio sufficiente.
+     */
+    public void distances(int i, int from, int to, double[] out, int offset) {
+        if (i < 0 || i >= numberOfExamples || from < 0 || to > numberOfExamples || from > to) {
+            throw new IndexOutOfBoundsException("Intervallo di esempi [" + from + ", " + to + ") o indice " + i
+                    + " non validi. Validi: 0-" + (numberOfExamples - 1));
+        }
+        if (offset < 0 || offset > out.length - (to - from)) {
+            throw new IndexOutOfBoundsException("L'array di destinazione non può contenere " + (to - from)
+                    + " distanze a partire dalla posizione " + offset + ".");
+        }
+        kernel.distances(i, from, to, out, offset);
+    }
+
+    /**
+     * Calcola la distanza tra una tupla e una riga del dataset senza costruire la tupla
+     * corrispondente alla riga.
+     * <p>
+     * Il risultato coincide con {@code tuple.getDistance(getItemSet(exampleIndex))}: per
+     * gli item continui la scalatura avviene con l'attributo dell'item, come in
+     * {@link ContinuousItem#distance(Object)}, mentre per gli item discreti dello stesso
+     * attributo della colonna viene confrontato il codice del valore (negli altri casi il
+     * valore viene confrontato con la voce del dizionario della colonna). Per gli item di tipo
+     * noto non viene allocato alcun oggetto, per cui il metodo è adatto ai cicli che
+     * confrontano un centroide con molte righe.
+     * </p>
+     *
+     * @param tuple La tupla da confrontare (tipicamente il centroide di un cluster).
+     * @param exampleIndex L'indice della riga del dataset.
+     * @return La distanza tra la tupla e la riga.
+     * @throws IllegalArgumentException se la tupla è nulla o ha una lunghezza diversa dal
+     * numero di attributi dello schema.
+     * @throws IndexOutOfBoundsException se l'{@code exampleIndex} non è valido.
+     */
+    public double distance(Tuple tuple, int exampleIndex) {
+        if (tuple == null || tuple.getLength() != kinds.length) {
+            throw new IllegalArgumentException("La tupla deve avere la stessa lunghezza dello schema e non può essere nulla.");
+        }
+        if (exampleIndex < 0 || exampleIndex >= numberOfExamples) {
+            throw new IndexOutOfBoundsException("Indice dell'esempio " + exampleIndex + " non valido. Validi: 0-" + (numberOfExamples - 1));
+        }
+        double distance = 0.0;
+        for (int a = 0; a < kinds.length; a++) {
+            Item item = tuple.get(a);
+            if (kinds[a] == CONTINUOUS && item instanceof ContinuousItem
+                    && item.getAttribute() instanceof ContinuousAttribute && item.getValue() instanceof Double) {
+                ContinuousAttribute attribute = (ContinuousAttribute) item.getAttribute();
+                distance += Math.abs(attribute.getScaledValue((Double) item.getValue())
+                        - attribute.getScaledValue(values[a][exampleIndex]));
+            } else if (kinds[a] == DISCRETE && item instanceof DiscreteItem) {
+                int code = ((DiscreteItem) item).getCode();
+                if (code >= 0 && item.getAttribute() == explanatorySet.get(a)) {
+                    distance += (code == codes[a][exampleIndex]) ? 0.0 : 1.0;
+                } else {
+                    distance += item.getValue().equals(dictionaries[a][codes[a][exampleIndex]]) ? 0.0 : 1.0;
+                }
+            } else {
+                distance += item.distance(getAttributeValue(exampleIndex, a));
             }
         }
-        return null;
+        return distance;
     }
 
     /**
      * Restituisce una rappresentazione testuale dell'insieme di transazioni.
-     * 
+     *
      * @return Una stringa che rappresenta l'insieme delle transazioni.
      */
     @Override
@@ -179,7 +878,9 @@ public class Data {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < numberOfExamples; i++) {
             sb.append(i).append(":");
-            sb.append(data.get(i).toString());
+            for (int a = 0; a < kinds.length; a++) {
+                sb.append(getAttributeValue(i, a)).append(" ");
+            }
             sb.append("\n");
         }
         return sb.toString();
@@ -187,69 +888,49 @@ public class Data {
 
 
     /**
-     * Crea e restituisce un oggetto {@link Tuple} a partire da una riga del dataset.
-     * <p>
-     * Per ogni attributo nello schema, questo metodo determina il suo tipo (discreto o continuo)
-     * usando controlli {@code instanceof} (RTTI) e crea l'oggetto {@link Item}
-     * corrispondente ({@link DiscreteItem} o {@link ContinuousItem}).
-     * Include una logica difensiva per gestire mancate corrispondenze di tipo,
-     * stampando avvisi su {@code System.err}.
-     * </p>
-     *
-     * @param exampleIndex L'indice della riga (esempio) da cui creare la tupla.
-     * @return Una {@link Tuple} che modella la riga del dataset.
-     * @throws IndexOutOfBoundsException se l'{@code exampleIndex} non è valido.
-     */
+     * Crea e restituisce un oggetto {@link Tuple} a partire da una riga del dataset.
+     * <p>
+     * Per ogni attributo nello schema crea l'oggetto {@link Item} corrispondente
+     * ({@link DiscreteItem} o {@link ContinuousItem}) a partire dai valori memorizzati
+     * per colonne, già convertiti al tipo corretto durante il caricamento.
+     * </p>
+     *
+     * @param exampleIndex L'indice della riga (esempio) da cui creare la tupla.
+     * @return Una {@link Tuple} che modella la riga del dataset.
+     * @throws IndexOutOfBoundsException se l'{@code exampleIndex} non è valido.
+     */
     public Tuple getItemSet(int exampleIndex) {
         if (exampleIndex < 0 || exampleIndex >= numberOfExamples) {
             throw new IndexOutOfBoundsException("Indice dell'esempio " + exampleIndex + " non valido. Validi: 0-" + (numberOfExamples - 1));
         }
 
         Tuple tuple = new Tuple(explanatorySet.size());
-        Example example = data.get(exampleIndex); // Usa la lista di Example
 
         for (int i = 0; i < explanatorySet.size(); i++) {
             Attribute attribute = explanatorySet.get(i); // Ottiene l'attributo
-            Object value = example.get(i); // Ottiene il valore dell'esempio corrente
 
-            if (attribute instanceof DiscreteAttribute) {
-                if (value instanceof String) {
-                    tuple.add(new DiscreteItem((DiscreteAttribute) attribute, (String) value), i);
-                } else {
-                    System.err.println("Attenzione: Previsto String per DiscreteAttribute '" + attribute.getName() + 
-                                       "' all'esempio " + exampleIndex + ", ma trovato " + (value != null ? value.getClass().getName() : "null") + 
-                                       ". Si tenta la conversione con toString().");
-                    tuple.add(new DiscreteItem((DiscreteAttribute) attribute, value != null ? value.toString() : ""), i);
-                }
-            } else if (attribute instanceof ContinuousAttribute) {
-                if (value instanceof Double) {
-                    tuple.add(new ContinuousItem(attribute, (Double) value), i);
-                } else if (value instanceof Number) {
-                    System.err.println("Attenzione: Previsto Double per ContinuousAttribute '" + attribute.getName() +
-                                       "' all'esempio " + exampleIndex + ", ma trovato " + value.getClass().getName() +
-                                       ". Si tenta la conversione a Double.");
-                    tuple.add(new ContinuousItem(attribute, ((Number) value).doubleValue()), i);
-                } else {
-                    System.err.println("Errore: Previsto Double/Number per ContinuousAttribute '" + attribute.getName() +
-                                       "' all'esempio " + exampleIndex + ", ma trovato " + (value != null ? value.getClass().getName() : "null") + ".");
-                    tuple.add(new ContinuousItem(attribute, Double.NaN), i);
-                }
-            } else {
-                System.err.println("Attenzione: Tipo di attributo non gestito in getItemSet: " + attribute.getClass().getName());
-                final Object finalValue = value;
-                tuple.add(new Item(attribute, finalValue) {
-					private static final long serialVersionUID = 1L;
-
-					@Override
-                    public double distance(Object a) {
-                        System.err.println("Distanza non implementata per item generico di " + getAttribute().getName());
-                        return Double.POSITIVE_INFINITY;
-                    }
-                }, i);
+            switch (kinds[i]) {
+                case CONTINUOUS:
+                    tuple.add(new ContinuousItem(attribute, values[i][exampleIndex]), i);
+                    break;
+                case DISCRETE:
+                    tuple.add(new DiscreteItem((DiscreteAttribute) attribute, dictionaries[i][codes[i][exampleIndex]]), i);
+                    break;
+                default:
+                    tuple.add(new Item(attribute, rawValues[i][exampleIndex]) {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        public double distance(Object a) {
+                            System.err.println("Distanza non implementata per item generico di " + getAttribute().getName());
+                            return Double.POSITIVE_INFINITY;
+                        }
+                    }, i);
+                    break;
             }
         }
 
         return tuple;
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package data;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.TreeSet;
 
@@ -14,6 +15,12 @@ import java.util.TreeSet;
  * <p>
  * Implementa {@link Iterable<String>} per consentire l'iterazione diretta sui valori del dominio.
  * </p>
+ * <p>
+ * A ogni valore del dominio è associato un codice intero denso, pari alla sua posizione
+ * nell'ordine naturale dei valori ({@link #getCode(String)}): confrontare due codici
+ * equivale a confrontare le stringhe corrispondenti con {@code equals}, ma costa una
+ * sola operazione.
+ * </p>
  * * @see Attribute
  */
 public class DiscreteAttribute extends Attribute implements Iterable<String> {
@@ -28,6 +35,12 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
      */
     private TreeSet<String> values;
 
+    /**
+     * I valori del dominio in ordine naturale: la posizione di ogni valore è il suo codice.
+     * Non viene serializzato e viene ricostruito su richiesta a partire da {@link #values}.
+     */
+    private transient String[] dictionary;
+
     /**
      * Costruisce un nuovo attributo discreto a partire da un insieme di valori possibili.
      * <p>
@@ -73,5 +86,49 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
     public Iterator<String> iterator() {
         return values.iterator();
     }
-}
 
+    /**
+     * Restituisce il codice intero associato a un valore del dominio.
+     * <p>
+     * I codici sono compresi tra {@code 0} e {@link #getNumberOfDistinctValues()}{@code - 1}
+     * e seguono l'ordine naturale dei valori; due valori hanno lo stesso codice se e solo
+     * se sono uguali.
+     * </p>
+     *
+     * @param value Il valore di cui ottenere il codice.
+     * @return Il codice del valore, o {@code -1} se il valore è nullo o non appartiene al dominio.
+     */
+    public int getCode(String value) {
+        if (value == null) {
+            return -1;
+        }
+        int code = Arrays.binarySearch(getDictionary(), value);
+        return (code >= 0) ? code : -1;
+    }
+
+    /**
+     * Restituisce il valore del dominio associato a un codice.
+     *
+     * @param code Il codice del valore, come restituito da {@link #getCode(String)}.
+     * @return Il valore corrispondente.
+     * @throws IndexOutOfBoundsException se il codice non appartiene al dominio.
+     */
+    public String getValue(int code) {
+        return getDictionary()[code];
+    }
+
+    /**
+     * Restituisce il dizionario dei valori, costruendolo al primo utilizzo (anche dopo
+     * la deserializzazione di un attributo salvato con una versione precedente).
+     *
+     * @return I valori del dominio in ordine naturale.
+     */
+    private String[] getDictionary() {
+        String[] d = dictionary;
+        if (d == null) {
+            d = values.toArray(new String[0]);
+            dictionary = d;
+        }
+        return d;
+    }
+}
@@ -1,5 +1,8 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 /**
  * Rappresenta un item (coppia attributo-valore) di tipo discreto.
  * <p>
@@ -19,6 +22,12 @@ public class DiscreteItem extends Item {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Il codice del valore nel dominio dell'attributo, o {@code -1} se il valore non vi
+     * appartiene. Non viene serializzato e viene ricalcolato alla deserializzazione.
+     */
+    private transient int code;
+
     /**
      * Costruisce un nuovo item con un attributo e un valore discreti.
      * <p>
@@ -31,6 +40,17 @@ public class DiscreteItem extends Item {
      */
     public DiscreteItem(DiscreteAttribute attribute, String value) {
         super(attribute, value);
+        this.code = attribute.getCode(value);
+    }
+
+    /**
+     * Restituisce il codice del valore nel dominio dell'attributo.
+     *
+     * @return Il codice del valore, o {@code -1} se il valore non appartiene al dominio.
+     * @see DiscreteAttribute#getCode(String)
+     */
+    int getCode() {
+        return code;
     }
 
     /**
@@ -54,4 +74,42 @@ public class DiscreteItem extends Item {
             return 1.0;
         }
     }
+
+    /**
+     * Calcola la distanza tra questo item e un altro item discreto.
+     * <p>
+     * Se i due item si riferiscono allo stesso attributo e i loro valori appartengono
+     * al dominio, vengono confrontati i codici interi anziché le stringhe; altrimenti il
+     * confronto avviene come in {@link #distance(Object)}. Il risultato è lo stesso in
+     * entrambi i casi.
+     * </p>
+     *
+     * @param other L'item rispetto al quale calcolare la distanza.
+     * @return 0.0 se i valori sono uguali, 1.0 altrimenti.
+     */
+    @Override
+    double distance(Item other) {
+        if (other instanceof DiscreteItem && other.getAttribute() == getAttribute()) {
+            int otherCode = ((DiscreteItem) other).code;
+            if (code >= 0 && otherCode >= 0) {
+                return (code == otherCode) ? 0.0 : 1.0;
+            }
+        }
+        return distance(other.getValue());
+    }
+
+    /**
+     * Ricostruisce l'item da uno stream, ricalcolando il codice del valore.
+     *
+     * @param in Lo stream da cui leggere l'item.
+     * @throws IOException se si verifica un errore di lettura.
+     * @throws ClassNotFoundException se la classe di un oggetto serializzato non è disponibile.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Object value = getValue();
+        code = (getAttribute() instanceof DiscreteAttribute && value instanceof String)
+                ? ((DiscreteAttribute) getAttribute()).getCode((String) value)
+                : -1;
+    }
 }
\ No newline at end of file
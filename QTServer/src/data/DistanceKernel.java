@@ -0,0 +1,27 @@
+package data;
+
+/**
+ * Calcola in blocco le distanze tra un esempio di riferimento e un intervallo di esempi
+ * di un dataset memorizzato per colonne.
+ * <p>
+ * Le implementazioni devono produrre, per ogni coppia, esattamente lo stesso valore di
+ * {@link Data#distance(int, int)}: i contributi degli attributi vanno quindi sommati
+ * nell'ordine dello schema, senza riassociazioni né operazioni fuse.
+ * </p>
+ *
+ * @see ScalarDistanceKernel
+ * @see VectorDistanceKernel
+ */
+interface DistanceKernel {
+
+    /**
+     * Calcola le distanze tra l'esempio {@code i} e gli esempi {@code [from, to)}.
+     *
+     * @param i L'indice dell'esempio di riferimento.
+     * @param from Il primo esempio dell'intervallo (incluso).
+     * @param to L'ultimo esempio dell'intervallo (escluso).
+     * @param out L'array in cui scrivere le distanze.
+     * @param offset La posizione di {@code out} in cui scrivere la distanza da {@code from}.
+     */
+    void distances(int i, int from, int to, double[] out, int offset);
+}
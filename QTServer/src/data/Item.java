@@ -96,4 +96,18 @@ abstract class Item implements Serializable {
      * @return La distanza calcolata come valore {@code double}.
      */
     protected abstract double distance(Object a);
+
+    /**
+     * Calcola la distanza tra questo item e un altro item dello stesso attributo.
+     * <p>
+     * Il risultato coincide con {@code distance(other.getValue())}; le sottoclassi possono
+     * ridefinire il metodo per confrontare una rappresentazione più compatta del valore.
+     * </p>
+     *
+     * @param other L'item rispetto al quale calcolare la distanza.
+     * @return La distanza calcolata come valore {@code double}.
+     */
+    double distance(Item other) {
+        return distance(other.getValue());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Implementazione scalare di {@link DistanceKernel}.
+ * <p>
+ * Le colonne vengono percorse una alla volta, nell'ordine dello schema, accumulando il
+ * contributo di ciascun attributo nell'array dei risultati: ogni colonna viene letta in
+ * modo sequenziale, il che sfrutta meglio la cache rispetto al calcolo riga per riga.
+ * È la strategia usata quando il modulo {@code jdk.incubator.vector} non è disponibile.
+ * </p>
+ */
+class ScalarDistanceKernel implements DistanceKernel {
+
+    /**
+     * Il tipo di ciascuna colonna, come in {@link Data}.
+     */
+    private final byte[] kinds;
+
+    /**
+     * I valori scalati delle colonne continue.
+     */
+    private final double[][] scaledValues;
+
+    /**
+     * I codici delle colonne discrete.
+     */
+    private final int[][] codes;
+
+    /**
+     * Costruisce il kernel sulle colonne di un dataset.
+     *
+     * @param kinds Il tipo di ciascuna colonna.
+     * @param scaledValues I valori scalati delle colonne continue.
+     * @param codes I codici delle colonne discrete.
+     */
+    ScalarDistanceKernel(byte[] kinds, double[][] scaledValues, int[][] codes) {
+        this.kinds = kinds;
+        this.scaledValues = scaledValues;
+        this.codes = codes;
+    }
+
+    @Override
+    public void distances(int i, int from, int to, double[] out, int offset) {
+        int length = to - from;
+        Arrays.fill(out, offset, offset + length, 0.0);
+        for (int a = 0; a < kinds.length; a++) {
+            switch (kinds[a]) {
+                case Data.CONTINUOUS: {
+                    double[] column = scaledValues[a];
+                    double x = column[i];
+                    for (int k = 0; k < length; k++) {
+                        out[offset + k] += Math.abs(x - column[from + k]);
+                    }
+                    break;
+                }
+                case Data.DISCRETE: {
+                    int[] column = codes[a];
+                    int x = column[i];
+                    for (int k = 0; k < length; k++) {
+                        out[offset + k] += (x == column[from + k]) ? 0.0 : 1.0;
+                    }
+                    break;
+                }
+                default:
+                    for (int k = 0; k < length; k++) {
+                        out[offset + k] += Double.POSITIVE_INFINITY;
+                    }
+                    break;
+            }
+        }
+    }
+}
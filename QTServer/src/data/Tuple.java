@@ -103,8 +103,9 @@ public class Tuple implements Serializable {
 
         double distance = 0.0;
         for (int i = 0; i < this.getLength(); i++) {
-            // Il metodo distance dell'Item viene chiamato passando il valore dell'Item corrispondente nell'altra tupla.
-            distance += this.get(i).distance(obj.get(i).getValue());
+            // Il metodo distance dell'Item viene chiamato passando l'Item corrispondente nell'altra tupla,
+            // così che gli item discreti possano confrontare i codici dei valori.
+            distance += this.get(i).distance(obj.get(i));
         }
         return distance;
     }
@@ -115,8 +116,8 @@ public class Tuple implements Serializable {
      * Questo metodo è utile per calcolare la distanza media di un centroide
      * dagli esempi appartenenti al suo cluster.
      *
-     * @param data L'oggetto {@link Data} che contiene il dataset completo,
-     * necessario per recuperare le tuple tramite i loro ID. Non può essere nullo.
+     * @param data L'oggetto {@link Data} che contiene il dataset completo, dal quale
+     * vengono lette le righe tramite i loro ID senza costruirne le tuple. Non può essere nullo.
      * @param clusteredData Un {@link Set} di {@link Integer} contenente gli ID (indici)
      * delle tuple nel dataset {@code data} rispetto alle quali
      * calcolare la distanza media. Non può essere nullo.
@@ -135,10 +136,8 @@ public class Tuple implements Serializable {
         double sumD = 0.0;
 
         for (Integer id : clusteredData) {
-            // Recupera la tupla dal dataset usando l'ID fornito
-            Tuple exampleTuple = data.getItemSet(id); 
-            double d = getDistance(exampleTuple); // Calcola la distanza da questa tupla (centroide)
-            sumD += d;
+            // Confronta questa tupla (centroide) con la riga senza costruirne la tupla
+            sumD += data.distance(this, id);
         }
 
         if (clusteredData.isEmpty()) {
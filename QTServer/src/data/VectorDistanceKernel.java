@@ -0,0 +1,117 @@
+package data;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementazione di {@link DistanceKernel} basata sulle istruzioni SIMD, tramite il
+ * modulo {@code jdk.incubator.vector}.
+ * <p>
+ * Ogni corsia del vettore corrisponde a un esempio dell'intervallo: per ciascun attributo,
+ * nell'ordine dello schema, il contributo viene calcolato e sommato contemporaneamente
+ * per tanti esempi quante sono le corsie. Poiché ogni corsia esegue le stesse operazioni,
+ * nello stesso ordine, del calcolo scalare, le distanze ottenute sono identiche a quelle
+ * di {@link Data#distance(int, int)}. Gli esempi che non riempiono un vettore intero
+ * vengono trattati dal kernel scalare.
+ * </p>
+ * <p>
+ * La classe va caricata soltanto se il modulo è presente ({@code --add-modules jdk.incubator.vector}):
+ * {@link Data} verifica questa condizione prima di istanziarla.
+ * </p>
+ */
+class VectorDistanceKernel implements DistanceKernel {
+
+    /**
+     * La forma preferita dei vettori di {@code double} sulla piattaforma corrente.
+     */
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * La forma dei vettori di {@code int} con lo stesso numero di corsie di {@link #DOUBLES}.
+     */
+    private static final VectorSpecies<Integer> INTS = (DOUBLES.vectorBitSize() >= 128)
+            ? VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2))
+            : null;
+
+    /**
+     * Il tipo di ciascuna colonna, come in {@link Data}.
+     */
+    private final byte[] kinds;
+
+    /**
+     * I valori scalati delle colonne continue.
+     */
+    private final double[][] scaledValues;
+
+    /**
+     * I codici delle colonne discrete.
+     */
+    private final int[][] codes;
+
+    /**
+     * Il kernel scalare usato per gli esempi finali che non riempiono un vettore.
+     */
+    private final ScalarDistanceKernel tail;
+
+    /**
+     * Costruisce il kernel sulle colonne di un dataset.
+     *
+     * @param kinds Il tipo di ciascuna colonna.
+     * @param scaledValues I valori scalati delle colonne continue.
+     * @param codes I codici delle colonne discrete.
+     */
+    VectorDistanceKernel(byte[] kinds, double[][] scaledValues, int[][] codes) {
+        this.kinds = kinds;
+        this.scaledValues = scaledValues;
+        this.codes = codes;
+        this.tail = new ScalarDistanceKernel(kinds, scaledValues, codes);
+    }
+
+    /**
+     * Indica se la piattaforma offre vettori con almeno due corsie di {@code double}.
+     *
+     * @return {@code true} se il kernel vettoriale può essere usato con profitto.
+     */
+    static boolean isUsable() {
+        return INTS != null && DOUBLES.length() >= 2;
+    }
+
+    @Override
+    public void distances(int i, int from, int to, double[] out, int offset) {
+        int lanes = DOUBLES.length();
+        int bound = from + DOUBLES.loopBound(to - from);
+        DoubleVector zero = DoubleVector.zero(DOUBLES);
+        DoubleVector one = DoubleVector.broadcast(DOUBLES, 1.0);
+        for (int j = from; j < bound; j += lanes) {
+            DoubleVector sum = zero;
+            for (int a = 0; a < kinds.length; a++) {
+                switch (kinds[a]) {
+                    case Data.CONTINUOUS: {
+                        double[] column = scaledValues[a];
+                        DoubleVector values = DoubleVector.fromArray(DOUBLES, column, j);
+                        sum = sum.add(DoubleVector.broadcast(DOUBLES, column[i]).sub(values).abs());
+                        break;
+                    }
+                    case Data.DISCRETE: {
+                        int[] column = codes[a];
+                        VectorMask<Integer> equal = IntVector.fromArray(INTS, column, j)
+                                .compare(VectorOperators.EQ, column[i]);
+                        sum = sum.add(one.blend(0.0, equal.cast(DOUBLES)));
+                        break;
+                    }
+                    default:
+                        sum = sum.add(Double.POSITIVE_INFINITY);
+                        break;
+                }
+            }
+            sum.intoArray(out, offset + (j - from));
+        }
+        if (bound < to) {
+            tail.distances(i, bound, to, out, offset + (bound - from));
+        }
+    }
+}
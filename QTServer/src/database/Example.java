@@ -25,6 +25,11 @@ public class Example implements Comparable<Example> {
      */
     private List<Object> example = new ArrayList<Object>();
 
+    /**
+     * Il numero di righe identiche che questo esempio rappresenta (almeno 1).
+     */
+    private int weight = 1;
+
     /**
      * Aggiunge un oggetto (valore di un attributo) alla fine della lista di valori
      * che costituiscono questo esempio.
@@ -48,6 +53,28 @@ public class Example implements Comparable<Example> {
         return example.get(i);
     }
 
+    /**
+     * Restituisce il numero di righe identiche rappresentate da questo esempio.
+     *
+     * @return La molteplicità dell'esempio (1 per default).
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Imposta il numero di righe identiche rappresentate da questo esempio.
+     *
+     * @param weight La molteplicità dell'esempio.
+     * @throws IllegalArgumentException se {@code weight} è minore di 1.
+     */
+    public void setWeight(int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("La molteplicità di un esempio deve essere almeno 1: " + weight);
+        }
+        this.weight = weight;
+    }
+
     /**
      * Confronta questo esempio con un altro oggetto {@code Example} per l'ordinamento.
      * <p>
@@ -50,14 +50,16 @@ public class TableData {
 	/**
 	 * Ricava lo schema della tabella indicata con table.
 	 * <p>
-	 * Esegue una interrogazione per estrarre le tuple distinte da tale tabella.
+	 * Esegue una interrogazione per estrarre le tuple distinte da tale tabella, raggruppando le righe identiche
+	 * e contandone le occorrenze ({@code GROUP BY} e {@code COUNT(*)}).
 	 * Per ogni tupla del ResultSet, si crea un oggetto, istanza della classe {@link Example}, il cui riferimento va incluso nella lista da restituire. 
 	 * In particolare, per la tupla corrente del ResultSet si estraggono i valori dei singoli campi (usando getFloat() o getString()),
-	 * e li si aggiungono all'oggetto istanza della classe Example che si sta costruendo.
+	 * e li si aggiungono all'oggetto istanza della classe Example che si sta costruendo; il numero di occorrenze
+	 * della tupla nella tabella diventa la molteplicità dell'esempio ({@link Example#getWeight()}).
 	 * </p>
 	 * 
 	 * @param table il nome della tabella nel database
-	 * @return la lista di transazioni distinte memorizzate nella tabella
+	 * @return la lista di transazioni distinte memorizzate nella tabella, ciascuna con la propria molteplicità
 	 * @throws SQLException se la tabella non contiene attributi
 	 * @throws EmptySetException se la tabella non contiene tuple
 	 */
@@ -67,17 +69,17 @@ public class TableData {
 		TableSchema tSchema=new TableSchema(db,table);
 		
 		
-		String query="select ";
+		String columns="";
 		
 		for(int i=0;i<tSchema.getNumberOfAttributes();i++){
 			Column c=tSchema.getColumn(i);
 			if(i>0)
-				query+=",";
-			query += c.getColumnName();
+				columns+=",";
+			columns += c.getColumnName();
 		}
 		if(tSchema.getNumberOfAttributes()==0)
 			throw new SQLException();
-		query += (" FROM "+table);
+		String query = "select " + columns + ", COUNT(*) FROM " + table + " GROUP BY " + columns;
 		
 		statement = db.getConnection().createStatement();
 		System.out.println("[SERVER-DEBUG] Esecuzione query: " + query);
@@ -91,6 +93,7 @@ public class TableData {
 					currentTuple.add(rs.getDouble(i+1));
 				else
 					currentTuple.add(rs.getString(i+1));
+			currentTuple.setWeight(rs.getInt(tSchema.getNumberOfAttributes()+1));
 			transSet.add(currentTuple);
 		}
 		rs.close();
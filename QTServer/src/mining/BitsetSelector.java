@@ -0,0 +1,203 @@
+package mining;
+
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Selettore che rappresenta il vicinato di ogni esempio e l'insieme degli esempi
+ * clusterizzati come insiemi di bit.
+ * <p>
+ * Il vicinato di ogni esempio viene calcolato una sola volta e memorizzato come una
+ * riga di bit ({@code long[]}), per cui la dimensione del cluster centrato in {@code i}
+ * è {@code 1 + popcount(vicini[i] AND NOT clusterizzati)}. Quando un cluster viene
+ * formato, i suoi membri vengono aggiunti agli esempi clusterizzati con un OR parola per
+ * parola; l'OR dei vicinati dei nuovi membri individua i candidati i cui conteggi sono
+ * cambiati, che vengono ricalcolati con lo stesso {@code popcount}. Come in
+ * {@link IncrementalSelector}, il prossimo centroide viene estratto da una
+ * {@link CandidateHeap} con invalidazione pigra delle voci obsolete.
+ * </p>
+ * <p>
+ * La memoria richiesta è di circa {@code n * n / 8} byte per {@code n} esempi,
+ * indipendentemente dal raggio: conviene quando i vicinati sono densi.
+ * </p>
+ *
+ * @see CandidateSelection#BITSET
+ */
+class BitsetSelector implements CandidateSelector {
+
+    /**
+     * Per ogni esempio, l'insieme di bit dei suoi vicini entro il raggio (escluso l'esempio stesso).
+     */
+    private final long[][] neighbours;
+
+    /**
+     * L'insieme di bit degli esempi già clusterizzati.
+     */
+    private final long[] clustered;
+
+    /**
+     * La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    private final int[] weights;
+
+    /**
+     * Per ogni esempio, la dimensione del cluster che avrebbe come centroide:
+     * la molteplicità dei vicini non clusterizzati più quella del centroide stesso.
+     */
+    private final int[] counts;
+
+    /**
+     * La coda dei candidati, con possibili voci obsolete.
+     */
+    private final CandidateHeap heap;
+
+    /**
+     * Costruisce il selettore calcolando il vicinato di ogni esempio.
+     * <p>
+     * Come in {@link NeighbourGraph}, prima di interrogare l'esempio {@code i} tutti gli
+     * esempi di indice minore o uguale vengono marcati come già visitati, così che ogni
+     * coppia venga valutata una sola volta.
+     * </p>
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param size Il numero di esempi del dataset.
+     * @param radius Il raggio del vicinato.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    BitsetSelector(NeighbourFinder finder, int size, double radius, int[] weights) {
+        int words = (size + 63) >>> 6;
+        this.neighbours = new long[size][words];
+        this.clustered = new long[words];
+        this.weights = weights;
+        this.counts = new int[size];
+        this.heap = new CandidateHeap(size);
+
+        boolean[] visited = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            visited[i] = true;
+            int row = i;
+            finder.forEachNeighbour(i, radius, visited, j -> {
+                neighbours[row][j >>> 6] |= 1L << j;
+                neighbours[j][row >>> 6] |= 1L << row;
+            });
+        }
+        for (int i = 0; i < size; i++) {
+            counts[i] = weight(i) + countUnclustered(neighbours[i]);
+            heap.push(CandidateSearchTask.key(counts[i], i));
+        }
+    }
+
+    /**
+     * Somma le molteplicità degli esempi corrispondenti ai bit impostati di {@code bits}
+     * che non sono clusterizzati; senza molteplicità si riduce a un {@code popcount}.
+     */
+    private int countUnclustered(long[] bits) {
+        int count = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long unclustered = bits[w] & ~clustered[w];
+            if (weights == null) {
+                count += Long.bitCount(unclustered);
+            } else {
+                while (unclustered != 0) {
+                    count += weights[(w << 6) + Long.numberOfTrailingZeros(unclustered)];
+                    unclustered &= unclustered - 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Restituisce la molteplicità di un esempio.
+     */
+    private int weight(int id) {
+        return (weights == null) ? 1 : weights[id];
+    }
+
+    /**
+     * Indica se un esempio è già clusterizzato.
+     */
+    private boolean isClustered(int id) {
+        return (clustered[id >>> 6] & (1L << id)) != 0;
+    }
+
+    @Override
+    public int nextCentroid() {
+        while (!heap.isEmpty()) {
+            long key = heap.pop();
+            int i = CandidateSearchTask.index(key);
+            if (isClustered(i)) {
+                continue;
+            }
+            long current = CandidateSearchTask.key(counts[i], i);
+            if (key == current) {
+                return i;
+            }
+            heap.push(current); // Voce obsoleta: il conteggio è diminuito
+        }
+        return -1;
+    }
+
+    @Override
+    public void forEachMember(int centroid, IntConsumer action) {
+        action.accept(centroid);
+        long[] row = neighbours[centroid];
+        for (int w = 0; w < row.length; w++) {
+            long bits = row[w] & ~clustered[w];
+            while (bits != 0) {
+                action.accept((w << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    @Override
+    public void markClustered(int id) {
+        if (isClustered(id)) {
+            return;
+        }
+        clustered[id >>> 6] |= 1L << id;
+        int weight = weight(id);
+        long[] row = neighbours[id];
+        for (int w = 0; w < row.length; w++) {
+            long bits = row[w];
+            while (bits != 0) {
+                counts[(w << 6) + Long.numberOfTrailingZeros(bits)] -= weight;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Gli esempi vengono aggiunti all'insieme dei clusterizzati con un OR parola per
+     * parola; i conteggi dei candidati che avevano tra i vicini almeno un nuovo membro
+     * vengono poi ricalcolati con un {@code popcount}.
+     * </p>
+     */
+    @Override
+    public void markClustered(BitSet ids) {
+        long[] marked = ids.toLongArray();
+        long[] affected = new long[clustered.length];
+        for (int w = 0; w < Math.min(marked.length, clustered.length); w++) {
+            long added = marked[w] & ~clustered[w];
+            clustered[w] |= marked[w];
+            while (added != 0) {
+                long[] row = neighbours[(w << 6) + Long.numberOfTrailingZeros(added)];
+                for (int v = 0; v < row.length; v++) {
+                    affected[v] |= row[v];
+                }
+                added &= added - 1;
+            }
+        }
+        for (int w = 0; w < affected.length; w++) {
+            long bits = affected[w] & ~clustered[w];
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                counts[i] = weight(i) + countUnclustered(neighbours[i]);
+                bits &= bits - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package mining;
+
+import java.util.function.IntConsumer;
+
+import data.Data;
+import data.DiscreteAttribute;
+
+/**
+ * Ricerca dei vicini per forza bruta: confronta il centroide candidato con ogni
+ * esempio non ancora clusterizzato del dataset, calcolando le distanze direttamente
+ * sulla rappresentazione per colonne di {@link Data}.
+ * <p>
+ * Le distanze vengono calcolate a blocchi di esempi consecutivi con
+ * {@link Data#distances(int, int, int, double[], int)}, che può sfruttare le istruzioni
+ * vettoriali; i blocchi che contengono soltanto esempi già clusterizzati vengono saltati.
+ * </p>
+ * <p>
+ * Se lo schema contiene attributi discreti e il raggio è minore di {@code 1.0}, una sola
+ * differenza su un attributo discreto basta a escludere una coppia: in questo caso le
+ * distanze vengono invece valutate coppia per coppia con
+ * {@link Data#distance(int, int, double)}, che confronta per primi gli attributi
+ * discreti e abbandona il calcolo appena la soglia è superata.
+ * </p>
+ * <p>
+ * Se viene fornita una {@link PivotTable}, le distanze vengono sempre valutate coppia per
+ * coppia e le coppie che la tabella esclude per la disuguaglianza triangolare vengono
+ * saltate senza calcolarne la distanza.
+ * </p>
+ *
+ * @see NeighbourSearch#BRUTE_FORCE
+ */
+class BruteForceFinder implements NeighbourFinder {
+
+    /**
+     * Numero di esempi di cui calcolare le distanze in un solo blocco.
+     */
+    private static final int BLOCK_SIZE = 256;
+
+    /**
+     * Il dataset su cui vengono calcolate le distanze.
+     */
+    private final Data data;
+
+    /**
+     * Indica se lo schema del dataset contiene almeno un attributo discreto.
+     */
+    private final boolean hasDiscreteAttributes;
+
+    /**
+     * La tabella dei pivot con cui escludere le coppie lontane, o {@code null}.
+     */
+    private final PivotTable pivots;
+
+    /**
+     * Costruisce un nuovo finder per forza bruta sul dataset specificato.
+     *
+     * @param data Il dataset su cui eseguire le ricerche.
+     */
+    BruteForceFinder(Data data) {
+        this(data, null);
+    }
+
+    /**
+     * Costruisce un nuovo finder per forza bruta che, prima di calcolare una distanza,
+     * consulta una tabella dei pivot.
+     *
+     * @param data Il dataset su cui eseguire le ricerche.
+     * @param pivots La tabella dei pivot costruita sullo stesso dataset, o {@code null}.
+     */
+    BruteForceFinder(Data data, PivotTable pivots) {
+        this.data = data;
+        this.pivots = pivots;
+        this.hasDiscreteAttributes = data.getAttributeSchema().stream()
+                .anyMatch(attribute -> attribute instanceof DiscreteAttribute);
+    }
+
+    /**
+     * Indica se, per il raggio specificato, conviene il calcolo coppia per coppia con
+     * abbandono anticipato invece del calcolo a blocchi.
+     */
+    private boolean isBounded(double radius) {
+        return pivots != null || (hasDiscreteAttributes && radius < 1.0);
+    }
+
+    /**
+     * Indica se l'esempio {@code j} è un vicino di {@code i}, consultando prima la
+     * tabella dei pivot, se presente.
+     */
+    private boolean isNeighbour(int i, int j, double radius) {
+        return (pivots == null || !pivots.excludes(i, j, radius)) && data.distance(i, j, radius) <= radius;
+    }
+
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        if (isBounded(radius)) {
+            for (int j = 0; j < isClustered.length; j++) {
+                if (i != j && !isClustered[j] && isNeighbour(i, j, radius)) {
+                    action.accept(j);
+                }
+            }
+            return;
+        }
+        double[] block = new double[BLOCK_SIZE];
+        for (int from = 0; from < isClustered.length; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, isClustered.length);
+            if (computeBlock(i, from, to, isClustered, block)) {
+                for (int j = from; j < to; j++) {
+                    if (i != j && !isClustered[j] && block[j - from] <= radius) {
+                        action.accept(j);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int countNeighbours(int i, double radius, boolean[] isClustered) {
+        int count = 0;
+        if (isBounded(radius)) {
+            for (int j = 0; j < isClustered.length; j++) {
+                if (i != j && !isClustered[j] && isNeighbour(i, j, radius)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        double[] block = new double[BLOCK_SIZE];
+        for (int from = 0; from < isClustered.length; from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, isClustered.length);
+            if (computeBlock(i, from, to, isClustered, block)) {
+                for (int j = from; j < to; j++) {
+                    if (i != j && !isClustered[j] && block[j - from] <= radius) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calcola le distanze tra l'esempio {@code i} e gli esempi {@code [from, to)}, a meno
+     * che questi non siano tutti già clusterizzati.
+     *
+     * @return {@code true} se le distanze sono state calcolate.
+     */
+    private boolean computeBlock(int i, int from, int to, boolean[] isClustered, double[] block) {
+        for (int j = from; j < to; j++) {
+            if (!isClustered[j]) {
+                data.distances(i, from, to, block, 0);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package mining;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Decora un {@link NeighbourFinder} eseguendo un punto di interruzione prima di ogni
+ * ricerca, così che la valutazione dei candidati e la costruzione dei grafi dei vicini
+ * possano essere interrotte senza attendere la fine di una scansione completa.
+ * <p>
+ * Il punto di interruzione interrompe la ricerca sollevando un'eccezione non controllata,
+ * ad esempio {@link CancellationToken#throwIfCancelled()}.
+ * </p>
+ *
+ * @see QTMiner#setCancellationToken(CancellationToken)
+ */
+class CancellableFinder implements NeighbourFinder {
+
+    /**
+     * La strategia di ricerca decorata.
+     */
+    private final NeighbourFinder finder;
+
+    /**
+     * Il punto di interruzione da eseguire prima di ogni ricerca.
+     */
+    private final Runnable checkpoint;
+
+    CancellableFinder(NeighbourFinder finder, Runnable checkpoint) {
+        this.finder = finder;
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        checkpoint.run();
+        finder.forEachNeighbour(i, radius, isClustered, action);
+    }
+
+    @Override
+    public int countNeighbours(int i, double radius, boolean[] isClustered) {
+        checkpoint.run();
+        return finder.countNeighbours(i, radius, isClustered);
+    }
+}
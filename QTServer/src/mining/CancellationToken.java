@@ -0,0 +1,50 @@
+package mining;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Permette di interrompere un clustering in corso da un altro thread.
+ * <p>
+ * {@link QTMiner} controlla il token prima della scelta di ogni cluster e prima di ogni
+ * ricerca dei vicini di un candidato, per cui l'annullamento ha effetto in un tempo
+ * dell'ordine di una scansione del dataset; il clustering termina sollevando una
+ * {@link CancellationException}. Un token annullato resta tale: per un nuovo clustering
+ * occorre un nuovo token.
+ * </p>
+ *
+ * @see QTMiner#setCancellationToken(CancellationToken)
+ */
+public class CancellationToken {
+
+    /**
+     * Indica se è stato richiesto l'annullamento.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Richiede l'annullamento del clustering che usa questo token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Indica se è stato richiesto l'annullamento.
+     *
+     * @return {@code true} se {@link #cancel()} è stato invocato.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Interrompe il clustering se è stato richiesto l'annullamento.
+     *
+     * @throws CancellationException se {@link #cancel()} è stato invocato.
+     */
+    void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Clustering annullato.");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package mining;
+
+import java.util.Arrays;
+
+/**
+ * Coda con priorità (max-heap binario) di chiavi {@code long} primitive.
+ * <p>
+ * Viene usata per estrarre i candidati in ordine di chiave decrescente, dove le
+ * chiavi sono prodotte da {@link CandidateSearchTask#key(int, int)}. Evita il
+ * boxing di una {@link java.util.PriorityQueue}.
+ * </p>
+ *
+ * @see IncrementalSelector
+ */
+class CandidateHeap {
+
+    /**
+     * Le chiavi, organizzate come heap binario a partire dall'indice 0.
+     */
+    private long[] keys;
+
+    /**
+     * Il numero di chiavi presenti nella coda.
+     */
+    private int size;
+
+    /**
+     * Costruisce una coda vuota con la capacità iniziale specificata.
+     *
+     * @param capacity La capacità iniziale.
+     */
+    CandidateHeap(int capacity) {
+        keys = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Verifica se la coda è vuota.
+     *
+     * @return {@code true} se la coda non contiene chiavi.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Inserisce una chiave nella coda.
+     *
+     * @param key La chiave da inserire.
+     */
+    void push(long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] >= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        keys[i] = key;
+    }
+
+    /**
+     * Rimuove e restituisce la chiave massima.
+     *
+     * @return La chiave massima presente nella coda.
+     * @throws IllegalStateException se la coda è vuota.
+     */
+    long pop() {
+        if (size == 0) {
+            throw new IllegalStateException("La coda dei candidati è vuota.");
+        }
+        long top = keys[0];
+        long last = keys[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] > keys[child]) {
+                child++;
+            }
+            if (last >= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            i = child;
+        }
+        keys[i] = last;
+        return top;
+    }
+}
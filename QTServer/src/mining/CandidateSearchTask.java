@@ -0,0 +1,146 @@
+package mining;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cerca, in un intervallo di indici, il miglior centroide candidato per la prossima
+ * iterazione dell'algoritmo QT.
+ * <p>
+ * Il task suddivide ricorsivamente l'intervallo finché non diventa abbastanza piccolo
+ * da essere valutato sequenzialmente, così da poter essere eseguito su un
+ * {@link java.util.concurrent.ForkJoinPool}. Il risultato è codificato in un
+ * {@code long} tramite {@link #key(int, int)}: il confronto tra chiavi premia la
+ * dimensione maggiore e, a parità di dimensione, l'indice minore. In questo modo il
+ * candidato scelto non dipende dall'ordine di esecuzione dei sotto-task e coincide
+ * con quello della ricerca sequenziale.
+ * </p>
+ *
+ * @see QTMiner
+ */
+class CandidateSearchTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Numero di candidati al di sotto del quale l'intervallo viene valutato sequenzialmente.
+     */
+    private static final int THRESHOLD = 16;
+
+    /**
+     * La chiave che indica l'assenza di candidati nell'intervallo.
+     */
+    static final long NONE = 0L;
+
+    // I task non vengono mai serializzati: la serializzabilità è ereditata da ForkJoinTask
+    private final transient NeighbourFinder finder;
+    private final double radius;
+    private final boolean[] isClustered;
+    private final int[] weights;
+    private final int from;
+    private final int to;
+
+    /**
+     * Costruisce un task di ricerca sull'intervallo {@code [from, to)}.
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param radius Il raggio dei cluster.
+     * @param isClustered Lo stato di clusterizzazione di ciascun esempio.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @param from Il primo indice (incluso) dell'intervallo.
+     * @param to L'ultimo indice (escluso) dell'intervallo.
+     */
+    CandidateSearchTask(NeighbourFinder finder, double radius, boolean[] isClustered, int[] weights, int from, int to) {
+        this.finder = finder;
+        this.radius = radius;
+        this.isClustered = isClustered;
+        this.weights = weights;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+        if (to - from <= THRESHOLD) {
+            return bestCandidate(finder, radius, isClustered, weights, from, to);
+        }
+        int middle = (from + to) >>> 1;
+        CandidateSearchTask left = new CandidateSearchTask(finder, radius, isClustered, weights, from, middle);
+        CandidateSearchTask right = new CandidateSearchTask(finder, radius, isClustered, weights, middle, to);
+        left.fork();
+        long rightKey = right.compute();
+        return Math.max(left.join(), rightKey);
+    }
+
+    /**
+     * Valuta sequenzialmente i candidati non clusterizzati nell'intervallo {@code [from, to)}.
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param radius Il raggio dei cluster.
+     * @param isClustered Lo stato di clusterizzazione di ciascun esempio.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @param from Il primo indice (incluso) dell'intervallo.
+     * @param to L'ultimo indice (escluso) dell'intervallo.
+     * @return La chiave del miglior candidato, o {@link #NONE} se l'intervallo non ne contiene.
+     */
+    static long bestCandidate(NeighbourFinder finder, double radius, boolean[] isClustered, int[] weights, int from, int to) {
+        long best = NONE;
+        for (int i = from; i < to; i++) {
+            if (!isClustered[i]) {
+                best = Math.max(best, key(clusterSize(finder, i, radius, isClustered, weights), i));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Calcola la dimensione del cluster che avrebbe come centroide l'esempio {@code i}:
+     * la somma delle molteplicità del centroide e dei suoi vicini non clusterizzati.
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param i L'indice del centroide candidato.
+     * @param radius Il raggio dei cluster.
+     * @param isClustered Lo stato di clusterizzazione di ciascun esempio.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @return La dimensione del cluster candidato (almeno 1).
+     */
+    static int clusterSize(NeighbourFinder finder, int i, double radius, boolean[] isClustered, int[] weights) {
+        if (weights == null) {
+            // Il centroide stesso fa sempre parte del proprio cluster
+            return 1 + finder.countNeighbours(i, radius, isClustered);
+        }
+        int[] size = {weights[i]};
+        finder.forEachNeighbour(i, radius, isClustered, j -> size[0] += weights[j]);
+        return size[0];
+    }
+
+    /**
+     * Codifica dimensione e indice di un candidato in una chiave ordinabile.
+     *
+     * @param size La dimensione del cluster candidato (almeno 1).
+     * @param index L'indice del centroide candidato.
+     * @return Una chiave maggiore per candidati più numerosi o, a parità, con indice minore.
+     */
+    static long key(int size, int index) {
+        return ((long) size << 32) | (~index & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Estrae l'indice del centroide da una chiave prodotta da {@link #key(int, int)}.
+     *
+     * @param key La chiave del candidato.
+     * @return L'indice del centroide.
+     */
+    static int index(long key) {
+        return ~(int) key;
+    }
+
+    /**
+     * Estrae la dimensione del cluster da una chiave prodotta da {@link #key(int, int)}.
+     *
+     * @param key La chiave del candidato.
+     * @return La dimensione del cluster candidato.
+     */
+    static int size(long key) {
+        return (int) (key >>> 32);
+    }
+}
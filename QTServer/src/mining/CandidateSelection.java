@@ -0,0 +1,47 @@
+package mining;
+
+/**
+ * Enumera le strategie con cui {@link QTMiner}, a ogni iterazione, sceglie il
+ * centroide del prossimo cluster.
+ * <p>
+ * Tutte le strategie scelgono lo stesso centroide: il candidato non clusterizzato con
+ * il maggior numero di vicini non clusterizzati entro il raggio e, a parità, quello
+ * con indice minore.
+ * </p>
+ *
+ * @see QTMiner
+ */
+public enum CandidateSelection {
+
+    /**
+     * A ogni iterazione ricostruisce da zero il vicinato di ogni candidato
+     * non clusterizzato.
+     */
+    SCAN,
+
+    /**
+     * Costruisce una sola volta il vicinato di ogni esempio e, dopo ogni cluster,
+     * aggiorna soltanto i conteggi dei candidati che avevano come vicini gli esempi
+     * appena clusterizzati. Il prossimo centroide viene estratto da una coda con
+     * priorità con invalidazione pigra delle voci obsolete.
+     */
+    INCREMENTAL,
+
+    /**
+     * Come {@link #INCREMENTAL}, ma memorizza il vicinato di ogni esempio e gli esempi
+     * clusterizzati come insiemi di bit ({@link BitsetSelector}): le dimensioni dei
+     * candidati si ottengono con un {@code popcount} e un intero cluster viene marcato
+     * con un OR parola per parola. Richiede circa {@code n * n / 8} byte per {@code n}
+     * esempi e conviene quando i vicinati sono densi.
+     */
+    BITSET,
+
+    /**
+     * Come {@link #SCAN}, ma conserva l'ultimo conteggio di ogni candidato come limite
+     * superiore e visita i candidati in ordine di limite decrescente
+     * ({@link UpperBoundSelector}): un candidato viene rivalutato soltanto se il suo
+     * limite può ancora battere il migliore dell'iterazione. Non richiede memoria
+     * aggiuntiva oltre a pochi array lineari nel numero di esempi.
+     */
+    UPPER_BOUND
+}
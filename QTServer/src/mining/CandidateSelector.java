@@ -0,0 +1,60 @@
+package mining;
+
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Sceglie, iterazione dopo iterazione, i centroidi e gli esempi dei cluster
+ * prodotti dall'algoritmo QT.
+ * <p>
+ * Un selettore mantiene lo stato di clusterizzazione degli esempi di un dataset.
+ * {@link QTMiner} lo usa secondo il seguente protocollo: chiede il prossimo centroide
+ * con {@link #nextCentroid()}, raccoglie i membri del suo cluster con
+ * {@link #forEachMember(int, IntConsumer)} e infine segnala i membri come
+ * clusterizzati con {@link #markClustered(BitSet)}.
+ * </p>
+ *
+ * @see CandidateSelection
+ */
+interface CandidateSelector {
+
+    /**
+     * Restituisce il centroide del prossimo cluster: l'esempio non clusterizzato con il
+     * maggior numero di vicini non clusterizzati entro il raggio e, a parità, con
+     * indice minore.
+     *
+     * @return L'indice del centroide, o {@code -1} se tutti gli esempi sono clusterizzati.
+     */
+    int nextCentroid();
+
+    /**
+     * Invoca {@code action} per ogni esempio non clusterizzato del cluster centrato in
+     * {@code centroid}, centroide compreso.
+     *
+     * @param centroid L'indice del centroide restituito da {@link #nextCentroid()}.
+     * @param action L'azione da eseguire sull'indice di ciascun membro.
+     */
+    void forEachMember(int centroid, IntConsumer action);
+
+    /**
+     * Segnala che un esempio è stato assegnato a un cluster.
+     *
+     * @param id L'indice dell'esempio clusterizzato.
+     */
+    void markClustered(int id);
+
+    /**
+     * Segnala che tutti gli esempi di un insieme sono stati assegnati a un cluster.
+     * <p>
+     * L'implementazione predefinita invoca {@link #markClustered(int)} per ciascun
+     * esempio, in ordine crescente di indice.
+     * </p>
+     *
+     * @param ids L'insieme degli indici degli esempi clusterizzati.
+     */
+    default void markClustered(BitSet ids) {
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            markClustered(id);
+        }
+    }
+}
@@ -3,9 +3,17 @@ package mining;
 import data.Data;
 import data.Tuple;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -15,6 +23,16 @@ import java.util.Set;
  * indici che identificano le tuple del dataset appartenenti al cluster stesso.
  * Questa classe è serializzabile e iterabile sugli indici delle tuple contenute.
  * </p>
+ * <p>
+ * Gli indici sono memorizzati in un array ordinato di {@code int}, che occupa quattro
+ * byte per membro invece di un oggetto {@link Integer} e di una voce di tabella hash;
+ * lo spazio dipende quindi dal numero di membri e non dal valore degli indici, per cui i
+ * molti cluster piccoli di un dataset grande restano piccoli. Su disco gli indici sono
+ * scritti come differenze tra indici consecutivi, in codifica a lunghezza variabile: un
+ * cluster di esempi vicini occupa circa un byte per membro. I cluster salvati con le
+ * versioni precedenti, che memorizzavano gli indici in un {@link HashSet} o in un
+ * {@link BitSet}, vengono convertiti durante la lettura.
+ * </p>
  *
  * @see Tuple
  * @see Data
@@ -26,18 +44,38 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * I campi serializzati: il centroide ({@code centroid}), gli indici nei formati
+     * precedenti ({@code clusteredData} e {@code members}, letti ma non più scritti) e gli
+     * indici codificati ({@code encodedMembers}).
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("centroid", Tuple.class),
+        new ObjectStreamField("clusteredData", Set.class),
+        new ObjectStreamField("members", BitSet.class),
+        new ObjectStreamField("encodedMembers", byte[].class)
+    };
+
+    /**
+     * L'array di indici condiviso dai cluster vuoti.
+     */
+    private static final int[] EMPTY = new int[0];
+
     /**
      * Il centroide di questo cluster.
-     * @serial
      */
-    private final Tuple centroid;
+    private transient Tuple centroid;
+
+    /**
+     * Gli indici, nell'oggetto {@link Data} originale, delle tuple appartenenti a questo
+     * cluster: le prime {@link #size} posizioni, in ordine crescente.
+     */
+    private transient int[] members;
 
     /**
-     * Insieme degli indici delle tuple appartenenti a questo cluster.
-     * Ogni intero corrisponde a un indice nell'oggetto {@link Data} originale.
-     * @serial
+     * Il numero di indici appartenenti a questo cluster.
      */
-    private final Set<Integer> clusteredData;
+    private transient int size;
 
     /**
      * Costruisce un nuovo Cluster con la tupla specificata come centroide iniziale.
@@ -46,7 +84,7 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
      */
     public Cluster(Tuple centroid) {
         this.centroid = centroid;
-        this.clusteredData = new HashSet<>();
+        this.members = EMPTY;
     }
 
     /**
@@ -60,13 +98,34 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
 
     /**
      * Aggiunge l'indice di una tupla a questo cluster.
+     * <p>
+     * L'aggiunta di un indice maggiore di tutti i presenti richiede un tempo costante;
+     * altrimenti gli indici maggiori vengono spostati di una posizione.
+     * </p>
      *
      * @param id L'indice della tupla da aggiungere.
      * @return {@code true} se l'indice non era già presente e viene aggiunto,
      * {@code false} altrimenti.
      */
     public boolean addData(int id) {
-        return clusteredData.add(id);
+        if (id < 0) {
+            return false;
+        }
+        int position = size;
+        if (size > 0 && id <= members[size - 1]) {
+            position = Arrays.binarySearch(members, 0, size, id);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+        }
+        if (size == members.length) {
+            members = Arrays.copyOf(members, Math.max(4, 2 * size));
+        }
+        System.arraycopy(members, position, members, position + 1, size - position);
+        members[position] = id;
+        size++;
+        return true;
     }
 
     /**
@@ -76,7 +135,7 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
      * @return {@code true} se la tupla appartiene a questo cluster, {@code false} altrimenti.
      */
     boolean contain(int id) {
-        return clusteredData.contains(id);
+        return id >= 0 && Arrays.binarySearch(members, 0, size, id) >= 0;
     }
 
     /**
@@ -85,7 +144,11 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
      * @param id L'indice della tupla da rimuovere.
      */
     void removeTuple(int id) {
-        clusteredData.remove(id);
+        int position = (id >= 0) ? Arrays.binarySearch(members, 0, size, id) : -1;
+        if (position >= 0) {
+            System.arraycopy(members, position + 1, members, position, size - position - 1);
+            size--;
+        }
     }
 
     /**
@@ -94,20 +157,48 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
      * @return La dimensione del cluster.
      */
     int getSize() {
-        return clusteredData.size();
+        return size;
+    }
+
+    /**
+     * Restituisce una copia dell'insieme degli indici delle tuple del cluster.
+     *
+     * @return Un {@link BitSet} con un bit impostato per ogni membro del cluster.
+     */
+    BitSet getMembers() {
+        BitSet bits = new BitSet();
+        for (int k = 0; k < size; k++) {
+            bits.set(members[k]);
+        }
+        return bits;
     }
 
     /**
      * Restituisce un iteratore sugli indici delle tuple contenute nel cluster.
      * <p>
-     * Questo metodo è richiesto dall'interfaccia {@link Iterable}. L'ordine di
-     * iterazione non è garantito, poiché si basa su un {@link HashSet}.
+     * Questo metodo è richiesto dall'interfaccia {@link Iterable}. Gli indici vengono
+     * restituiti in ordine crescente; la rimozione tramite l'iteratore non è supportata.
      *
      * @return Un {@link Iterator} per gli indici nel cluster.
      */
     @Override
     public Iterator<Integer> iterator() {
-        return clusteredData.iterator();
+        return new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return members[next++];
+            }
+        };
     }
 
     /**
@@ -144,14 +235,19 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
         }
         str.append(")\nExamples:\n");
 
-        for (Integer id : clusteredData) {
+        double sumD = 0.0;
+        for (int k = 0; k < size; k++) {
+            int id = members[k];
             str.append("[");
             for (int j = 0; j < data.getNumberOfExplanatoryAttributes(); j++) {
                 str.append(data.getAttributeValue(id, j)).append(" ");
             }
-            str.append("] dist=").append(getCentroid().getDistance(data.getItemSet(id))).append("\n");
+            double distance = data.distance(getCentroid(), id);
+            sumD += distance;
+            str.append("] dist=").append(distance).append("\n");
         }
-        str.append("\nAvgDistance=").append(getCentroid().avgDistance(data, clusteredData));
+        // Stesso risultato di Tuple.avgDistance, senza ricalcolare le distanze
+        str.append("\nAvgDistance=").append(size == 0 ? 0.0 : sumD / size);
         return str.toString();
     }
 
@@ -176,4 +272,107 @@ public class Cluster implements Iterable<Integer>, Comparable<Cluster>, Serializ
             return 1; // Ritorna 1 anche se le dimensioni sono uguali.
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Scrive il cluster su uno stream, memorizzando gli indici come differenze tra indici
+     * consecutivi (il primo come differenza da {@code -1}) diminuite di uno, ciascuna in
+     * gruppi di 7 bit dal meno significativo, con il bit più alto di ogni byte impostato se
+     * seguono altri gruppi.
+     *
+     * @param out Lo stream su cui scrivere il cluster.
+     * @throws IOException se si verifica un errore di scrittura.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        byte[] encoded = new byte[5 * size];
+        int length = 0;
+        int previous = -1;
+        for (int k = 0; k < size; k++) {
+            int gap = members[k] - previous - 1;
+            previous = members[k];
+            while ((gap & ~0x7F) != 0) {
+                encoded[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            encoded[length++] = (byte) gap;
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("centroid", centroid);
+        fields.put("clusteredData", null);
+        fields.put("members", null);
+        fields.put("encodedMembers", Arrays.copyOf(encoded, length));
+        out.writeFields();
+    }
+
+    /**
+     * Decodifica gli indici scritti da {@link #writeObject(ObjectOutputStream)}.
+     *
+     * @param encoded Gli indici codificati.
+     * @throws InvalidObjectException se la codifica non è valida.
+     */
+    private void decode(byte[] encoded) throws InvalidObjectException {
+        members = new int[encoded.length]; // Almeno un byte per indice
+        long previous = -1;
+        int position = 0;
+        while (position < encoded.length) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position == encoded.length || shift > 28) {
+                    throw new InvalidObjectException("Codifica degli indici del cluster non valida.");
+                }
+                b = encoded[position++];
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += gap + 1;
+            if (previous > Integer.MAX_VALUE) {
+                throw new InvalidObjectException("Indice di esempio non valido nel cluster: " + previous);
+            }
+            members[size++] = (int) previous;
+        }
+        members = Arrays.copyOf(members, size);
+    }
+
+    /**
+     * Legge un cluster da uno stream, accettando sia il formato attuale sia quelli
+     * precedenti, in cui gli indici erano memorizzati in un insieme di {@link Integer} o in
+     * un {@link BitSet}.
+     *
+     * @param in Lo stream da cui leggere il cluster.
+     * @throws IOException se si verifica un errore di lettura o se gli indici non sono validi.
+     * @throws ClassNotFoundException se la classe di un oggetto serializzato non è disponibile.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        centroid = (Tuple) fields.get("centroid", null);
+        members = EMPTY;
+        size = 0;
+        byte[] encoded = (byte[]) fields.get("encodedMembers", null);
+        if (encoded != null) {
+            decode(encoded);
+            return;
+        }
+        BitSet bits = (BitSet) fields.get("members", null);
+        if (bits != null) {
+            members = bits.stream().toArray();
+            size = members.length;
+            return;
+        }
+        Set<?> clusteredData = (Set<?>) fields.get("clusteredData", null);
+        if (clusteredData != null) {
+            int[] ids = new int[clusteredData.size()];
+            int count = 0;
+            for (Object id : clusteredData) {
+                if (!(id instanceof Integer) || (Integer) id < 0 || count == ids.length) {
+                    throw new InvalidObjectException("Indice di esempio non valido nel cluster: " + id);
+                }
+                ids[count++] = (Integer) id;
+            }
+            Arrays.sort(ids, 0, count);
+            for (int k = 0; k < count; k++) {
+                addData(ids[k]); // In ordine crescente ogni aggiunta è in coda
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package mining;
+
+/**
+ * Riceve i cluster scoperti da {@link QTMiner} man mano che vengono confermati, senza
+ * attendere la fine del clustering.
+ * <p>
+ * Ogni cluster notificato fa parte del risultato finale e contiene gli indici delle
+ * righe dell'intero dataset. Le notifiche non avvengono mai in modo concorrente, ma
+ * possono provenire da thread diversi da quello che ha invocato
+ * {@link QTMiner#compute(data.Data)}.
+ * </p>
+ *
+ * @see QTMiner#setClusterListener(ClusterListener)
+ */
+@FunctionalInterface
+public interface ClusterListener {
+
+    /**
+     * Notifica un nuovo cluster.
+     *
+     * @param c Il cluster appena confermato.
+     */
+    void clusterFound(Cluster c);
+}
@@ -0,0 +1,135 @@
+package mining;
+
+import java.util.function.IntConsumer;
+
+import data.Data;
+
+/**
+ * Matrice simmetrica delle distanze tra tutte le coppie di esempi di un dataset.
+ * <p>
+ * Poiché la distanza tra tuple è simmetrica e la distanza di un esempio da se stesso
+ * non viene mai usata dall'algoritmo QT, viene memorizzata soltanto la parte
+ * triangolare inferiore (diagonale esclusa) in un unico array di {@code double}:
+ * la distanza tra gli esempi {@code i > j} si trova alla posizione
+ * {@code i * (i - 1) / 2 + j}. Ogni coppia viene quindi valutata una sola volta.
+ * </p>
+ *
+ * @see QTMiner
+ * @see NeighbourSearch#DISTANCE_MATRIX
+ */
+public final class DistanceMatrix implements NeighbourFinder {
+
+    /**
+     * Numero di esempi coperti dalla matrice.
+     */
+    private final int size;
+
+    /**
+     * Distanze della parte triangolare inferiore, memorizzate per righe.
+     */
+    private final double[] distances;
+
+    /**
+     * Costruisce la matrice delle distanze per il dataset specificato.
+     * <p>
+     * Si calcola la distanza ({@link Data#distance(int, int)}) per ciascuna delle
+     * {@code n * (n - 1) / 2} coppie di esempi, una riga alla volta con
+     * {@link Data#distances(int, int, int, double[], int)}.
+     * </p>
+     *
+     * @param data Il dataset di cui calcolare le distanze. Non può essere nullo.
+     * @throws IllegalArgumentException se il dataset è nullo o troppo grande per essere
+     * rappresentato in un singolo array.
+     */
+    public DistanceMatrix(Data data) {
+        this(data, null);
+    }
+
+    /**
+     * Costruisce la matrice delle distanze per il dataset specificato, eseguendo un punto
+     * di interruzione prima del calcolo di ogni riga.
+     * <p>
+     * Il punto di interruzione può interrompere la costruzione sollevando un'eccezione non
+     * controllata, ad esempio quando il clustering viene annullato con un
+     * {@link CancellationToken}.
+     * </p>
+     *
+     * @param data Il dataset di cui calcolare le distanze. Non può essere nullo.
+     * @param checkpoint Il punto di interruzione, o {@code null} per una costruzione non
+     * interrompibile.
+     * @throws IllegalArgumentException se il dataset è nullo o troppo grande per essere
+     * rappresentato in un singolo array.
+     */
+    DistanceMatrix(Data data, Runnable checkpoint) {
+        if (data == null) {
+            throw new IllegalArgumentException("Il dataset non può essere nullo.");
+        }
+        this.size = data.getNumberOfExamples();
+        long cells = (long) size * (size - 1) / 2;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Il dataset contiene troppi esempi (" + size
+                    + ") per una matrice delle distanze in memoria.");
+        }
+        this.distances = new double[(int) cells];
+
+        // La riga i occupa le posizioni consecutive [i * (i - 1) / 2, i * (i - 1) / 2 + i)
+        for (int i = 1; i < size; i++) {
+            if (checkpoint != null) {
+                checkpoint.run();
+            }
+            data.distances(i, 0, i, distances, (int) ((long) i * (i - 1) / 2));
+        }
+    }
+
+    /**
+     * Restituisce il numero di esempi coperti dalla matrice.
+     *
+     * @return La dimensione (numero di righe) della matrice.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Restituisce la distanza tra due esempi.
+     *
+     * @param i L'indice del primo esempio.
+     * @param j L'indice del secondo esempio.
+     * @return La distanza tra gli esempi {@code i} e {@code j}; {@code 0.0} se {@code i == j}.
+     * @throws IndexOutOfBoundsException se uno dei due indici non è valido.
+     */
+    public double get(int i, int j) {
+        if (i < 0 || i >= size || j < 0 || j >= size) {
+            throw new IndexOutOfBoundsException("Indici non validi: (" + i + ", " + j + "). Validi: 0-" + (size - 1));
+        }
+        if (i == j) {
+            return 0.0;
+        }
+        if (i < j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        return distances[(int) ((long) i * (i - 1) / 2) + j];
+    }
+
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        for (int j = 0; j < size; j++) {
+            if (i != j && !isClustered[j] && get(i, j) <= radius) {
+                action.accept(j);
+            }
+        }
+    }
+
+    @Override
+    public int countNeighbours(int i, double radius, boolean[] isClustered) {
+        int count = 0;
+        for (int j = 0; j < size; j++) {
+            if (i != j && !isClustered[j] && get(i, j) <= radius) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
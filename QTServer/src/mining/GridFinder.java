@@ -0,0 +1,258 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import data.ContinuousAttribute;
+import data.Data;
+
+/**
+ * Ricerca dei vicini tramite una griglia uniforme sui valori scalati, per dataset
+ * con pochi attributi, tutti continui.
+ * <p>
+ * La distanza tra due esempi è la somma delle differenze assolute dei valori scalati:
+ * se non supera il raggio, neppure la differenza su ciascun attributo lo supera. Con
+ * celle di lato poco maggiore del raggio, i vicini di un esempio cadono quindi tutti
+ * nella sua cella o in una delle celle adiacenti ({@code 3^d} celle per {@code d}
+ * attributi). La distanza dei soli esempi di queste celle viene poi calcolata
+ * esattamente con {@link Data#distance(int, int, double)}, per cui il risultato
+ * coincide con quello della ricerca per forza bruta.
+ * </p>
+ * <p>
+ * Le celle non vuote sono memorizzate in ordine di chiave, con gli esempi di ciascuna
+ * cella contigui in un unico array, e vengono individuate per ricerca binaria.
+ * Gli esempi con un valore scalato non finito hanno distanza {@code NaN} o infinita da
+ * qualunque altro esempio: non vengono inseriti nella griglia e non risultano vicini
+ * di nessuno. Le interrogazioni con un raggio maggiore di quello della griglia vengono
+ * delegate a un {@link BruteForceFinder}.
+ * </p>
+ *
+ * @see QTMiner
+ */
+class GridFinder implements NeighbourFinder {
+
+    /**
+     * Numero massimo di attributi per cui la griglia viene usata.
+     */
+    static final int MAX_DIMENSIONS = 3;
+
+    /**
+     * Numero di bit della chiave riservati all'indice di cella di ciascun attributo.
+     */
+    private static final int BITS = 21;
+
+    /**
+     * Numero massimo di celle per attributo.
+     */
+    private static final long MAX_CELLS = 1L << (BITS - 1);
+
+    /**
+     * Allargamento relativo del lato delle celle rispetto al raggio, che assorbe gli
+     * errori di arrotondamento nel calcolo degli indici di cella.
+     */
+    private static final double MARGIN = 1.0 / (1 << 20);
+
+    /**
+     * Il dataset su cui vengono calcolate le distanze.
+     */
+    private final Data data;
+
+    /**
+     * Il raggio per cui è stata costruita la griglia.
+     */
+    private final double radius;
+
+    /**
+     * Il lato delle celle.
+     */
+    private final double side;
+
+    /**
+     * Per ogni attributo, il minimo dei valori scalati finiti.
+     */
+    private final double[] origin;
+
+    /**
+     * Per ogni attributo, l'indice dell'ultima cella.
+     */
+    private final int[] lastCell;
+
+    /**
+     * Per ogni esempio, la chiave della sua cella, o {@code -1} se non è nella griglia.
+     */
+    private final long[] cellOf;
+
+    /**
+     * Le chiavi delle celle non vuote, in ordine crescente.
+     */
+    private final long[] keys;
+
+    /**
+     * Per ogni cella non vuota, la posizione in {@link #items} del suo primo esempio;
+     * l'ultimo elemento vale il numero di esempi nella griglia.
+     */
+    private final int[] starts;
+
+    /**
+     * Gli indici degli esempi nella griglia, raggruppati per cella.
+     */
+    private final int[] items;
+
+    /**
+     * La strategia usata per i raggi maggiori di quello della griglia.
+     */
+    private final BruteForceFinder fallback;
+
+    /**
+     * Verifica se la griglia può essere usata per un dataset e un raggio.
+     *
+     * @param data Il dataset da clusterizzare.
+     * @param radius Il raggio dei cluster.
+     * @return {@code true} se tutti gli attributi sono continui, sono al più
+     * {@link #MAX_DIMENSIONS} e il raggio è positivo e non troppo piccolo rispetto
+     * all'intervallo dei valori scalati.
+     */
+    static boolean isApplicable(Data data, double radius) {
+        int dimensions = data.getNumberOfExplanatoryAttributes();
+        if (dimensions == 0 || dimensions > MAX_DIMENSIONS || !(radius > 0.0) || Double.isInfinite(radius)) {
+            return false;
+        }
+        if (!data.getAttributeSchema().stream().allMatch(attribute -> attribute instanceof ContinuousAttribute)) {
+            return false;
+        }
+        double side = radius * (1.0 + MARGIN);
+        for (int a = 0; a < dimensions; a++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < data.getNumberOfExamples(); i++) {
+                double value = data.getScaledValue(i, a);
+                if (Double.isFinite(value)) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            if (min <= max && (max - min) / side >= MAX_CELLS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Costruisce la griglia sugli esempi del dataset.
+     *
+     * @param data Il dataset da indicizzare; deve soddisfare {@link #isApplicable(Data, double)}.
+     * @param radius Il raggio dei cluster.
+     */
+    GridFinder(Data data, double radius) {
+        int n = data.getNumberOfExamples();
+        int dimensions = data.getNumberOfExplanatoryAttributes();
+        this.data = data;
+        this.radius = radius;
+        this.side = radius * (1.0 + MARGIN);
+        this.origin = new double[dimensions];
+        this.lastCell = new int[dimensions];
+        this.cellOf = new long[n];
+        this.fallback = new BruteForceFinder(data);
+
+        Arrays.fill(origin, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            for (int a = 0; a < dimensions; a++) {
+                double value = data.getScaledValue(i, a);
+                if (Double.isFinite(value)) {
+                    origin[a] = Math.min(origin[a], value);
+                }
+            }
+        }
+
+        // Chiavi delle celle; gli esempi con valori non finiti restano fuori dalla griglia
+        int count = 0;
+        long[] sorted = new long[n];
+        for (int i = 0; i < n; i++) {
+            long key = 0;
+            for (int a = 0; a < dimensions && key >= 0; a++) {
+                double value = data.getScaledValue(i, a);
+                if (!Double.isFinite(value)) {
+                    key = -1;
+                } else {
+                    int cell = cell(value, a);
+                    lastCell[a] = Math.max(lastCell[a], cell);
+                    key |= (long) cell << (BITS * a);
+                }
+            }
+            cellOf[i] = key;
+            if (key >= 0) {
+                sorted[count++] = key;
+            }
+        }
+
+        // Celle distinte in ordine di chiave, con gli esempi di ciascuna contigui
+        sorted = Arrays.copyOf(sorted, count);
+        Arrays.sort(sorted);
+        int cells = 0;
+        for (int k = 0; k < count; k++) {
+            if (k == 0 || sorted[k] != sorted[k - 1]) {
+                sorted[cells++] = sorted[k];
+            }
+        }
+        this.keys = Arrays.copyOf(sorted, cells);
+        this.starts = new int[cells + 1];
+        this.items = new int[count];
+        for (int i = 0; i < n; i++) {
+            if (cellOf[i] >= 0) {
+                starts[Arrays.binarySearch(keys, cellOf[i]) + 1]++;
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            starts[c + 1] += starts[c];
+        }
+        int[] next = Arrays.copyOf(starts, cells);
+        for (int i = 0; i < n; i++) {
+            if (cellOf[i] >= 0) {
+                items[next[Arrays.binarySearch(keys, cellOf[i])]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Restituisce l'indice della cella di un valore scalato finito lungo un attributo.
+     */
+    private int cell(double value, int attribute) {
+        return (int) Math.floor((value - origin[attribute]) / side);
+    }
+
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        if (radius > this.radius) {
+            fallback.forEachNeighbour(i, radius, isClustered, action);
+        } else if (cellOf[i] >= 0) {
+            visit(i, radius, isClustered, 0, 0, action);
+        }
+    }
+
+    /**
+     * Visita ricorsivamente le celle adiacenti a quella dell'esempio {@code i}, fissando
+     * un attributo alla volta l'indice di cella a partire da {@code attribute}.
+     *
+     * @param key La chiave parziale, con gli indici degli attributi già fissati.
+     */
+    private void visit(int i, double radius, boolean[] isClustered, int attribute, long key, IntConsumer action) {
+        if (attribute == origin.length) {
+            int c = Arrays.binarySearch(keys, key);
+            if (c < 0) {
+                return;
+            }
+            for (int k = starts[c]; k < starts[c + 1]; k++) {
+                int j = items[k];
+                if (j != i && !isClustered[j] && data.distance(i, j, radius) <= radius) {
+                    action.accept(j);
+                }
+            }
+            return;
+        }
+        int center = (int) (cellOf[i] >>> (BITS * attribute)) & ((1 << BITS) - 1);
+        for (int cell = Math.max(0, center - 1); cell <= Math.min(lastCell[attribute], center + 1); cell++) {
+            visit(i, radius, isClustered, attribute + 1, key | ((long) cell << (BITS * attribute)), action);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package mining;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Selettore che mantiene incrementalmente il numero di vicini non clusterizzati di
+ * ogni candidato.
+ * <p>
+ * Il vicinato di ogni esempio viene calcolato una sola volta ({@link NeighbourGraph}).
+ * Quando un esempio viene clusterizzato si decrementa soltanto il conteggio dei suoi
+ * vicini, per cui il lavoro complessivo è proporzionale al numero di archi del grafo.
+ * I candidati sono conservati in una {@link CandidateHeap} ordinata per
+ * (dimensione, indice): poiché i conteggi possono solo diminuire, una voce estratta
+ * il cui valore non corrisponde più al conteggio corrente viene semplicemente
+ * reinserita aggiornata (invalidazione pigra). La prima voce estratta ancora valida
+ * è il miglior candidato dell'iterazione.
+ * </p>
+ *
+ * @see CandidateSelection#INCREMENTAL
+ */
+class IncrementalSelector implements CandidateSelector {
+
+    /**
+     * Il grafo dei vicini entro il raggio.
+     */
+    private final NeighbourGraph graph;
+
+    /**
+     * Lo stato di clusterizzazione di ciascun esempio.
+     */
+    private final boolean[] isClustered;
+
+    /**
+     * La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    private final int[] weights;
+
+    /**
+     * Per ogni esempio, la dimensione del cluster che avrebbe come centroide:
+     * la molteplicità dei vicini non clusterizzati più quella del centroide stesso.
+     */
+    private final int[] counts;
+
+    /**
+     * La coda dei candidati, con possibili voci obsolete.
+     */
+    private final CandidateHeap heap;
+
+    /**
+     * Costruisce il selettore a partire dal grafo dei vicini.
+     *
+     * @param graph Il grafo dei vicini entro il raggio dei cluster.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    IncrementalSelector(NeighbourGraph graph, int[] weights) {
+        int n = graph.size();
+        this.graph = graph;
+        this.isClustered = new boolean[n];
+        this.weights = weights;
+        this.counts = new int[n];
+        this.heap = new CandidateHeap(n);
+        for (int i = 0; i < n; i++) {
+            if (weights == null) {
+                counts[i] = 1 + graph.degree(i);
+            } else {
+                counts[i] = weights[i];
+                for (int k = graph.firstEdge(i); k < graph.endEdge(i); k++) {
+                    counts[i] += weights[graph.target(k)];
+                }
+            }
+            heap.push(CandidateSearchTask.key(counts[i], i));
+        }
+    }
+
+    @Override
+    public int nextCentroid() {
+        while (!heap.isEmpty()) {
+            long key = heap.pop();
+            int i = CandidateSearchTask.index(key);
+            if (isClustered[i]) {
+                continue;
+            }
+            long current = CandidateSearchTask.key(counts[i], i);
+            if (key == current) {
+                return i;
+            }
+            heap.push(current); // Voce obsoleta: il conteggio è diminuito
+        }
+        return -1;
+    }
+
+    @Override
+    public void forEachMember(int centroid, IntConsumer action) {
+        action.accept(centroid);
+        for (int k = graph.firstEdge(centroid); k < graph.endEdge(centroid); k++) {
+            int j = graph.target(k);
+            if (!isClustered[j]) {
+                action.accept(j);
+            }
+        }
+    }
+
+    @Override
+    public void markClustered(int id) {
+        isClustered[id] = true;
+        int weight = (weights == null) ? 1 : weights[id];
+        for (int k = graph.firstEdge(id); k < graph.endEdge(id); k++) {
+            counts[graph.target(k)] -= weight;
+        }
+    }
+}
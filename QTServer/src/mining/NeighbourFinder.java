@@ -0,0 +1,43 @@
+package mining;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Individua, per un centroide candidato, gli esempi non ancora clusterizzati che
+ * cadono entro un dato raggio.
+ * <p>
+ * Le implementazioni sono legate a un singolo dataset e devono poter essere
+ * interrogate contemporaneamente da più thread, purché l'array {@code isClustered}
+ * non venga modificato durante le interrogazioni.
+ * </p>
+ *
+ * @see QTMiner
+ * @see NeighbourSearch
+ */
+interface NeighbourFinder {
+
+    /**
+     * Invoca {@code action} per ogni esempio {@code j != i} non clusterizzato la cui
+     * distanza da {@code i} è minore o uguale a {@code radius}.
+     *
+     * @param i L'indice del centroide candidato.
+     * @param radius Il raggio del vicinato.
+     * @param isClustered Lo stato di clusterizzazione di ciascun esempio.
+     * @param action L'azione da eseguire sull'indice di ciascun vicino.
+     */
+    void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action);
+
+    /**
+     * Conta gli esempi {@code j != i} non clusterizzati entro il raggio da {@code i}.
+     *
+     * @param i L'indice del centroide candidato.
+     * @param radius Il raggio del vicinato.
+     * @param isClustered Lo stato di clusterizzazione di ciascun esempio.
+     * @return Il numero di vicini di {@code i}, centroide escluso.
+     */
+    default int countNeighbours(int i, double radius, boolean[] isClustered) {
+        int[] count = new int[1];
+        forEachNeighbour(i, radius, isClustered, j -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,206 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Grafo dei vicini entro un raggio fissato: per ogni esempio memorizza gli indici
+ * degli altri esempi la cui distanza è minore o uguale al raggio.
+ * <p>
+ * Il grafo è simmetrico e non contiene cappi: un esempio non compare mai tra i
+ * propri vicini. È memorizzato in formato CSR (<i>compressed sparse row</i>): i vicini
+ * dell'esempio {@code i} occupano le posizioni {@code [offsets[i], offsets[i + 1])}
+ * dell'array {@code targets}. Lo spazio occupato è quindi proporzionale al numero di
+ * coppie entro il raggio e non al quadrato del numero di esempi, il che permette di
+ * trattare dataset di centinaia di migliaia di righe quando il raggio è piccolo.
+ * </p>
+ * <p>
+ * Il grafo è a sua volta un {@link NeighbourFinder}: una volta costruito, l'intero
+ * algoritmo QT può essere eseguito senza calcolare altre distanze.
+ * </p>
+ *
+ * @see NeighbourSearch#NEIGHBOUR_GRAPH
+ * @see IncrementalSelector
+ */
+class NeighbourGraph implements NeighbourFinder {
+
+    /**
+     * Il raggio con cui è stato costruito il grafo.
+     */
+    private final double radius;
+
+    /**
+     * Per ogni esempio, la posizione in {@link #targets} del suo primo vicino;
+     * l'ultimo elemento vale il numero totale di archi.
+     */
+    private final int[] offsets;
+
+    /**
+     * Gli indici dei vicini di tutti gli esempi, concatenati per esempio.
+     */
+    private final int[] targets;
+
+    /**
+     * Costruisce il grafo dei vicini interrogando un {@link NeighbourFinder}.
+     * <p>
+     * Gli esempi vengono visitati in ordine; prima di interrogare l'esempio {@code i},
+     * tutti gli esempi di indice minore o uguale vengono marcati come già visitati, così
+     * che il finder restituisca soltanto i vicini {@code j > i} e ogni coppia venga
+     * valutata una sola volta. Questi archi vengono accumulati in un unico array
+     * temporaneo e infine distribuiti, in entrambe le direzioni, nel formato CSR.
+     * </p>
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param size Il numero di esempi del dataset.
+     * @param radius Il raggio del vicinato.
+     * @throws IllegalArgumentException se il numero di archi è troppo grande per essere
+     * rappresentato in un singolo array.
+     */
+    NeighbourGraph(NeighbourFinder finder, int size, double radius) {
+        this.radius = radius;
+
+        // Prima fase: per ogni esempio i, i vicini j > i, contigui nell'array upper
+        int[][] upper = { new int[Math.max(16, size)] };
+        int[] upperSize = new int[1];
+        int[] upperEnd = new int[size];
+        int[] degree = new int[size];
+        boolean[] visited = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            visited[i] = true;
+            finder.forEachNeighbour(i, radius, visited, j -> {
+                if (upperSize[0] == upper[0].length) {
+                    upper[0] = Arrays.copyOf(upper[0], grow(upper[0].length));
+                }
+                upper[0][upperSize[0]++] = j;
+                degree[j]++;
+            });
+            upperEnd[i] = upperSize[0];
+        }
+
+        long edges = 2L * upperSize[0];
+        if (edges > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Il grafo dei vicini ha troppi archi (" + edges
+                    + "): ridurre il raggio o usare un'altra strategia di ricerca.");
+        }
+
+        // Seconda fase: distribuzione degli archi nel formato CSR
+        offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            int upperStart = (i == 0) ? 0 : upperEnd[i - 1];
+            offsets[i + 1] = offsets[i] + degree[i] + (upperEnd[i] - upperStart);
+        }
+        targets = new int[(int) edges];
+        int[] cursor = Arrays.copyOf(offsets, size);
+        for (int i = 0; i < size; i++) {
+            // I vicini j < i sono già stati scritti durante le iterazioni precedenti
+            int upperStart = (i == 0) ? 0 : upperEnd[i - 1];
+            for (int k = upperStart; k < upperEnd[i]; k++) {
+                int j = upper[0][k];
+                targets[cursor[i]++] = j;
+                targets[cursor[j]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Calcola la nuova capacità di un array in crescita.
+     */
+    private static int grow(int length) {
+        if (length >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Il grafo dei vicini ha troppi archi: ridurre il raggio.");
+        }
+        return (int) Math.min((long) length * 2, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Restituisce il numero di esempi del grafo.
+     *
+     * @return Il numero di nodi.
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Restituisce il numero di vicini di un esempio.
+     *
+     * @param i L'indice dell'esempio.
+     * @return Il grado del nodo {@code i}.
+     */
+    int degree(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Restituisce la posizione del primo arco dell'esempio {@code i}.
+     *
+     * @param i L'indice dell'esempio.
+     * @return La posizione (inclusa) del primo vicino di {@code i}.
+     */
+    int firstEdge(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Restituisce la posizione successiva all'ultimo arco dell'esempio {@code i}.
+     *
+     * @param i L'indice dell'esempio.
+     * @return La posizione (esclusa) dell'ultimo vicino di {@code i}.
+     */
+    int endEdge(int i) {
+        return offsets[i + 1];
+    }
+
+    /**
+     * Restituisce l'esempio raggiunto da un arco.
+     *
+     * @param edge La posizione dell'arco, compresa tra {@link #firstEdge(int)} e {@link #endEdge(int)}.
+     * @return L'indice del vicino.
+     */
+    int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException se {@code radius} è diverso da quello del grafo.
+     */
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        checkRadius(radius);
+        for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+            int j = targets[k];
+            if (!isClustered[j]) {
+                action.accept(j);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException se {@code radius} è diverso da quello del grafo.
+     */
+    @Override
+    public int countNeighbours(int i, double radius, boolean[] isClustered) {
+        checkRadius(radius);
+        int count = 0;
+        for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+            if (!isClustered[targets[k]]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Verifica che il raggio richiesto coincida con quello del grafo.
+     */
+    private void checkRadius(double radius) {
+        if (Double.compare(radius, this.radius) != 0) {
+            throw new IllegalArgumentException("Il grafo è stato costruito con raggio " + this.radius
+                    + " e non può rispondere per il raggio " + radius + ".");
+        }
+    }
+}
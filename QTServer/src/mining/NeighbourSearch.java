@@ -0,0 +1,75 @@
+package mining;
+
+/**
+ * Enumera le strategie con cui {@link QTMiner} individua gli esempi che cadono
+ * entro il raggio di un centroide candidato.
+ * <p>
+ * Tutte le strategie producono esattamente lo stesso {@link ClusterSet}: cambiano
+ * soltanto il costo computazionale e l'occupazione di memoria del calcolo.
+ * </p>
+ *
+ * @see QTMiner
+ */
+public enum NeighbourSearch {
+
+    /**
+     * Calcola la distanza tra il candidato e ogni altro esempio a ogni iterazione
+     * dell'algoritmo. Non richiede memoria aggiuntiva.
+     * <p>
+     * Se tutti gli attributi sono continui e sono al più {@link GridFinder#MAX_DIMENSIONS},
+     * {@link QTMiner} usa automaticamente la strategia {@link #GRID}; altrimenti, se un
+     * attributo continuo è abbastanza disperso rispetto al raggio, la strategia
+     * {@link #SWEEP}. Entrambe producono gli stessi vicini.
+     * </p>
+     */
+    BRUTE_FORCE,
+
+    /**
+     * Calcola una sola volta la matrice simmetrica delle distanze tra tutte le coppie
+     * di esempi ({@link DistanceMatrix}) e la consulta durante la costruzione dei
+     * cluster candidati. Richiede circa {@code 4 * n^2} byte per {@code n} esempi.
+     */
+    DISTANCE_MATRIX,
+
+    /**
+     * Calcola una sola volta, per il raggio richiesto, il grafo dei vicini
+     * ({@link NeighbourGraph}) in formato compatto CSR e lo consulta durante la
+     * costruzione dei cluster. La memoria richiesta è proporzionale al numero di coppie
+     * di esempi entro il raggio, per cui è adatta a dataset molto grandi con raggi piccoli.
+     */
+    NEIGHBOUR_GRAPH,
+
+    /**
+     * Costruisce una sola volta un indice metrico ({@link VPTree}) sugli esempi del
+     * dataset e lo usa per tutte le interrogazioni di raggio, sfruttando la
+     * disuguaglianza triangolare per escludere gruppi di esempi senza calcolarne la
+     * distanza. Conviene quando il raggio è piccolo rispetto alla dispersione dei dati.
+     */
+    VP_TREE,
+
+    /**
+     * Suddivide i valori scalati degli esempi in una griglia uniforme con celle di lato
+     * pari al raggio ({@link GridFinder}) e confronta ogni candidato soltanto con gli
+     * esempi delle celle adiacenti. Si applica ai dataset con pochi attributi, tutti
+     * continui; negli altri casi viene usata la ricerca per forza bruta.
+     */
+    GRID,
+
+    /**
+     * Ordina una sola volta gli esempi secondo l'attributo continuo più disperso
+     * ({@link SweepFinder}) e confronta ogni candidato soltanto con gli esempi la cui
+     * differenza su quell'attributo non supera il raggio. Richiede memoria lineare nel
+     * numero di esempi; se lo schema non contiene attributi continui viene usata la
+     * ricerca per forza bruta.
+     */
+    SWEEP,
+
+    /**
+     * Come {@link #BRUTE_FORCE}, ma calcola una sola volta le distanze di ogni esempio da
+     * pochi esempi di riferimento ({@link PivotTable}) e salta le coppie che, per la
+     * disuguaglianza triangolare, distano certamente più del raggio. Vale per qualunque
+     * combinazione di attributi continui e discreti e richiede memoria lineare nel numero
+     * di esempi.
+     */
+    PIVOT_TABLE
+}
@@ -0,0 +1,138 @@
+package mining;
+
+import java.util.Arrays;
+
+import data.Data;
+
+/**
+ * Tabella delle distanze di ogni esempio da pochi esempi di riferimento (<i>pivot</i>),
+ * usata per escludere coppie di esempi senza calcolarne la distanza.
+ * <p>
+ * La distanza calcolata da {@link Data#distance(int, int)} è una metrica, anche con
+ * attributi sia continui sia discreti: per la disuguaglianza triangolare, se per un pivot
+ * {@code p} vale {@code |d(i, p) - d(j, p)| > radius}, allora {@code d(i, j) > radius}.
+ * I pivot vengono scelti con una visita <i>farthest-first</i>: il primo è il primo
+ * esempio con distanza definita, ciascuno dei successivi è l'esempio più lontano dai
+ * pivot già scelti. Le distanze sono memorizzate per esempio, in un unico array, così
+ * che il confronto di una coppia legga posizioni contigue.
+ * </p>
+ * <p>
+ * Come in {@link VPTree}, il test di esclusione applica una piccola tolleranza relativa,
+ * per cui una coppia entro il raggio non viene mai esclusa.
+ * </p>
+ *
+ * @see NeighbourSearch#PIVOT_TABLE
+ * @see BruteForceFinder
+ */
+class PivotTable {
+
+    /**
+     * Numero predefinito di pivot.
+     */
+    static final int DEFAULT_PIVOTS = 8;
+
+    /**
+     * Tolleranza relativa applicata ai test di esclusione, per compensare gli errori di
+     * arrotondamento che possono violare di poco la disuguaglianza triangolare.
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Il numero di pivot effettivamente scelti.
+     */
+    private final int pivots;
+
+    /**
+     * Le distanze dai pivot: la distanza dell'esempio {@code i} dal pivot {@code p} è in
+     * posizione {@code i * pivots + p}.
+     */
+    private final double[] distances;
+
+    /**
+     * Costruisce la tabella con il numero predefinito di pivot.
+     *
+     * @param data Il dataset su cui calcolare le distanze.
+     */
+    PivotTable(Data data) {
+        this(data, DEFAULT_PIVOTS);
+    }
+
+    /**
+     * Costruisce la tabella scegliendo al più {@code count} pivot.
+     *
+     * @param data Il dataset su cui calcolare le distanze.
+     * @param count Il numero massimo di pivot.
+     * @throws IllegalArgumentException se {@code count} è minore di 1.
+     */
+    PivotTable(Data data, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Il numero di pivot deve essere almeno 1: " + count);
+        }
+        int n = data.getNumberOfExamples();
+        int[] chosen = new int[Math.min(count, n)];
+        int size = 0;
+
+        // Distanza minima di ogni esempio dai pivot già scelti
+        double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int next = -1;
+        for (int i = 0; i < n && next < 0; i++) {
+            if (data.distance(i, i) == 0.0) {
+                next = i;
+            }
+        }
+        while (next >= 0 && size < chosen.length) {
+            int pivot = next;
+            chosen[size++] = pivot;
+            next = -1;
+            double farthest = 0.0;
+            for (int i = 0; i < n; i++) {
+                nearest[i] = Math.min(nearest[i], data.distance(pivot, i));
+                if (nearest[i] > farthest && Double.isFinite(nearest[i])) {
+                    farthest = nearest[i];
+                    next = i;
+                }
+            }
+        }
+
+        this.pivots = size;
+        this.distances = new double[n * size];
+        for (int i = 0; i < n; i++) {
+            for (int p = 0; p < size; p++) {
+                distances[i * size + p] = data.distance(chosen[p], i);
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di pivot della tabella.
+     *
+     * @return Il numero di pivot.
+     */
+    int size() {
+        return pivots;
+    }
+
+    /**
+     * Verifica se la disuguaglianza triangolare garantisce che due esempi distano più
+     * del raggio.
+     *
+     * @param i L'indice del primo esempio.
+     * @param j L'indice del secondo esempio.
+     * @param radius Il raggio del vicinato.
+     * @return {@code true} se {@code d(i, j) > radius} è garantito; {@code false} se la
+     * distanza va calcolata.
+     */
+    boolean excludes(int i, int j, double radius) {
+        int a = i * pivots;
+        int b = j * pivots;
+        for (int p = 0; p < pivots; p++) {
+            double di = distances[a + p];
+            double dj = distances[b + p];
+            if (Math.abs(di - dj) > radius + TOLERANCE * (1.0 + radius + di + dj)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
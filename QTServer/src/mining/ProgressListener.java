@@ -0,0 +1,23 @@
+package mining;
+
+/**
+ * Riceve l'avanzamento di un clustering eseguito da {@link QTMiner}.
+ * <p>
+ * Viene notificato a ogni cluster confermato, con i totali dall'inizio dell'esecuzione.
+ * Le notifiche non avvengono mai in modo concorrente, ma possono provenire da thread
+ * diversi da quello che ha invocato {@link QTMiner#compute(data.Data)}.
+ * </p>
+ *
+ * @see QTMiner#setProgressListener(ProgressListener)
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Notifica l'avanzamento del clustering.
+     *
+     * @param clusteredRows Il numero di righe del dataset assegnate a un cluster.
+     * @param clustersFound Il numero di cluster confermati.
+     */
+    void progress(int clusteredRows, int clustersFound);
+}
@@ -6,9 +6,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import data.Data;
-import data.Tuple;
 import data.EmptyDatasetException;
 
 /**
@@ -32,17 +38,114 @@ public class QTMiner {
      */
     private double radius;
 
+    /**
+     * La strategia con cui vengono individuati gli esempi entro il raggio di un
+     * centroide candidato.
+     */
+    private NeighbourSearch neighbourSearch;
+
+    /**
+     * Il numero di thread con cui vengono valutati i centroidi candidati.
+     * Con il valore {@code 1} (default) la valutazione è sequenziale.
+     */
+    private int parallelism = 1;
+
+    /**
+     * La strategia con cui, a ogni iterazione, viene scelto il centroide del prossimo cluster.
+     */
+    private CandidateSelection candidateSelection = CandidateSelection.SCAN;
+
+    /**
+     * Indica se, quando possibile, gli esempi vengono suddivisi in gruppi con gli stessi
+     * valori discreti da clusterizzare separatamente.
+     */
+    private boolean partitioning = true;
+
+    /**
+     * Indica se le righe identiche vengono clusterizzate come un solo esempio pesato.
+     */
+    private boolean deduplication = true;
+
+    /**
+     * Il tempo massimo, in millisecondi, concesso a {@link #compute(Data)}; {@code 0}
+     * indica nessun limite.
+     */
+    private long timeBudget = 0;
+
+    /**
+     * L'eventuale destinatario dei cluster man mano che vengono confermati.
+     */
+    private ClusterListener listener;
+
+    /**
+     * L'eventuale destinatario dell'avanzamento del clustering.
+     */
+    private ProgressListener progressListener;
+
+    /**
+     * L'eventuale token con cui interrompere il clustering.
+     */
+    private CancellationToken cancellation;
+
+    /**
+     * Le righe assegnate e i cluster confermati dall'esecuzione corrente, notificati al
+     * {@link ProgressListener}.
+     */
+    private int clusteredRows;
+    private int clustersFound;
+
+    /**
+     * L'istante ({@link System#nanoTime()}) oltre il quale l'esecuzione corrente non
+     * sceglie nuovi cluster.
+     */
+    private long deadline;
+
+    /**
+     * Indica se l'esecuzione corrente ha un tempo massimo: {@link #deadline} va confrontato
+     * con {@link System#nanoTime()} soltanto in questo caso, perché non esiste un valore
+     * di {@code nanoTime} che non venga mai raggiunto.
+     */
+    private boolean bounded;
+
+    /**
+     * Indica se l'ultima esecuzione è stata interrotta allo scadere del tempo.
+     */
+    private volatile boolean partial;
+
+    /**
+     * Le righe che l'ultima esecuzione non ha assegnato ad alcun cluster.
+     */
+    private BitSet unclustered = new BitSet();
+
     /**
      * Costruisce una nuova istanza di QTMiner con un raggio specificato.
      * Inizializza un nuovo {@link ClusterSet} vuoto e imposta il raggio
-     * per l'algoritmo di clustering.
+     * per l'algoritmo di clustering. La ricerca dei vicini avviene per
+     * forza bruta ({@link NeighbourSearch#BRUTE_FORCE}).
      *
      * @param radius Il raggio da utilizzare per il calcolo dei cluster.
      * Un valore positivo è atteso.
      */
     public QTMiner(double radius) {
+        this(radius, NeighbourSearch.BRUTE_FORCE);
+    }
+
+    /**
+     * Costruisce una nuova istanza di QTMiner con un raggio e una strategia di
+     * ricerca dei vicini specificati.
+     *
+     * @param radius Il raggio da utilizzare per il calcolo dei cluster.
+     * Un valore positivo è atteso.
+     * @param neighbourSearch La strategia di ricerca dei vicini da adottare.
+     * @throws IllegalArgumentException se la strategia è nulla.
+     */
+    public QTMiner(double radius, NeighbourSearch neighbourSearch) {
+        if (neighbourSearch == null) {
+            throw new IllegalArgumentException("La strategia di ricerca dei vicini non può essere nulla.");
+        }
         C = new ClusterSet();
         this.radius = radius;
+        this.neighbourSearch = neighbourSearch;
     }
 
     /**
@@ -60,6 +163,7 @@ public class QTMiner {
         ObjectInputStream inStream = new ObjectInputStream(inFile);
         C = (ClusterSet) inStream.readObject();
         radius=0;
+        neighbourSearch = NeighbourSearch.BRUTE_FORCE;
         inStream.close();
     }
 
@@ -78,6 +182,172 @@ public class QTMiner {
         outStream.close();
     }
     
+    /**
+     * Imposta il numero di thread con cui valutare i centroidi candidati.
+     * <p>
+     * Con un valore maggiore di {@code 1} viene creato un {@link ForkJoinPool} della
+     * dimensione indicata. Soltanto con {@link CandidateSelection#SCAN} ogni iterazione
+     * dell'algoritmo distribuisce i candidati sul pool; il candidato scelto è sempre lo
+     * stesso della valutazione sequenziale: a parità di dimensione prevale quello con
+     * indice minore. Le altre strategie evitano di rivalutare tutti i candidati a ogni
+     * iterazione e li valutano su un solo thread, ignorando questa impostazione.
+     * </p>
+     * <p>
+     * Con qualunque strategia, se il dataset viene suddiviso in gruppi
+     * ({@link #setPartitioning(boolean)}) i gruppi vengono clusterizzati in parallelo sul
+     * pool, ciascuno su un solo thread.
+     * </p>
+     *
+     * @param parallelism Il numero di thread da utilizzare (almeno 1).
+     * @throws IllegalArgumentException se {@code parallelism} è minore di 1.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Il numero di thread deve essere almeno 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imposta la strategia con cui scegliere il centroide di ogni cluster.
+     * <p>
+     * Con {@link CandidateSelection#INCREMENTAL} il vicinato di ogni esempio viene
+     * costruito una sola volta e mantenuto aggiornato tra un'iterazione e l'altra;
+     * il risultato non cambia rispetto a {@link CandidateSelection#SCAN}.
+     * Con {@link CandidateSelection#UPPER_BOUND} vengono rivalutati soltanto i candidati
+     * che possono ancora battere il migliore dell'iterazione.
+     * </p>
+     *
+     * @param candidateSelection La strategia da adottare.
+     * @throws IllegalArgumentException se la strategia è nulla.
+     */
+    public void setCandidateSelection(CandidateSelection candidateSelection) {
+        if (candidateSelection == null) {
+            throw new IllegalArgumentException("La strategia di selezione dei candidati non può essere nulla.");
+        }
+        this.candidateSelection = candidateSelection;
+    }
+
+    /**
+     * Abilita o disabilita la suddivisione degli esempi in base ai valori discreti.
+     * <p>
+     * Ogni attributo discreto diverso contribuisce alla distanza con {@code 1.0}: se il
+     * raggio è minore di {@code 1.0}, due esempi possono stare nello stesso cluster solo se
+     * coincidono su tutti gli attributi discreti. In questo caso {@link #compute(Data)}
+     * clusterizza separatamente (e, con {@link #setParallelism(int)}, in parallelo) ogni
+     * gruppo di esempi con gli stessi valori discreti, e fonde i risultati nello stesso
+     * ordine della ricerca sull'intero dataset. La suddivisione è abilitata per default e
+     * non cambia i cluster prodotti.
+     * </p>
+     *
+     * @param partitioning {@code true} per abilitare la suddivisione.
+     */
+    public void setPartitioning(boolean partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Abilita o disabilita la fusione delle righe identiche prima del clustering.
+     * <p>
+     * Le righe identiche ({@link Data#getDuplicateGroups()}) hanno gli stessi vicini e
+     * finiscono sempre nello stesso cluster. {@link #compute(Data)} le rappresenta con la
+     * prima di esse, pesata con il numero di copie: le dimensioni dei cluster vengono
+     * calcolate sommando i pesi e ogni cluster riporta comunque tutte le righe originali.
+     * La fusione è abilitata per default e non cambia i cluster prodotti.
+     * </p>
+     *
+     * @param deduplication {@code true} per abilitare la fusione delle righe identiche.
+     */
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    /**
+     * Imposta il tempo massimo concesso a {@link #compute(Data)}.
+     * <p>
+     * Allo scadere del tempo non vengono scelti nuovi cluster: l'insieme {@code C}
+     * contiene i cluster confermati fino a quel momento, che fanno comunque parte del
+     * risultato completo, {@link #isPartial()} restituisce {@code true} e le righe non
+     * ancora assegnate sono disponibili con {@link #getUnclustered()}. Il controllo avviene
+     * prima della scelta di ogni cluster e prima di ogni ricerca dei vicini, anche durante
+     * la costruzione delle strutture di ricerca (una riga alla volta della
+     * {@link DistanceMatrix}, dei grafi dei vicini e degli insiemi di bit), per cui il tempo
+     * può essere superato al più della durata di una ricerca, dell'ordine di una scansione
+     * del dataset. Se il tempo scade prima del primo cluster il risultato è vuoto.
+     * </p>
+     *
+     * @param timeBudget Il tempo massimo in millisecondi, o {@code 0} per nessun limite.
+     * @throws IllegalArgumentException se {@code timeBudget} è negativo.
+     */
+    public void setTimeBudget(long timeBudget) {
+        if (timeBudget < 0) {
+            throw new IllegalArgumentException("Il tempo massimo non può essere negativo: " + timeBudget);
+        }
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Imposta il destinatario dei cluster man mano che vengono confermati.
+     * <p>
+     * Se gli esempi vengono suddivisi in gruppi (vedi {@link #setPartitioning(boolean)}),
+     * i cluster di gruppi diversi vengono notificati nell'ordine in cui sono stati
+     * confermati, che può differire dall'ordine finale in {@code C}.
+     * </p>
+     *
+     * @param listener Il destinatario, o {@code null} per non ricevere notifiche.
+     */
+    public void setClusterListener(ClusterListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Imposta il destinatario dell'avanzamento del clustering, notificato a ogni cluster
+     * confermato con il numero di righe assegnate e di cluster trovati fino a quel momento.
+     *
+     * @param progressListener Il destinatario, o {@code null} per non ricevere notifiche.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Imposta il token con cui interrompere {@link #compute(Data)} da un altro thread.
+     * <p>
+     * Il token viene controllato prima della scelta di ogni cluster, prima della ricerca
+     * dei vicini di ogni candidato e durante la costruzione delle strutture di ricerca
+     * (una riga alla volta della {@link DistanceMatrix} e dei grafi dei vicini); dopo l'annullamento {@link #compute(Data)} solleva una
+     * {@link java.util.concurrent.CancellationException} e l'insieme {@code C} non viene
+     * modificato.
+     * </p>
+     *
+     * @param cancellation Il token, o {@code null} per un clustering non interrompibile.
+     */
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Indica se l'ultima esecuzione di {@link #compute(Data)} è stata interrotta allo
+     * scadere del tempo massimo.
+     *
+     * @return {@code true} se alcune righe non sono state assegnate ad alcun cluster.
+     * @see #setTimeBudget(long)
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Restituisce le righe che l'ultima esecuzione di {@link #compute(Data)} non ha
+     * assegnato ad alcun cluster.
+     *
+     * @return Gli indici delle righe non assegnate; l'insieme è vuoto se il clustering è
+     * stato completato.
+     */
+    public BitSet getUnclustered() {
+        return (BitSet) unclustered.clone();
+    }
+
     /**
      * Restituisce l'insieme di cluster ({@link ClusterSet}) attualmente gestito da questa istanza di QTMiner.
      * Potrebbe essere il risultato di un'operazione di {@code compute} o caricato da file.
@@ -92,47 +362,104 @@ public class QTMiner {
      * Esegue l'algoritmo di clustering QT sul dataset fornito.
      * L'algoritmo identifica iterativamente i cluster basati sul raggio specificato
      * e popola l'insieme {@code C} con i cluster trovati.
+     * Le righe identiche vengono prima fuse in un solo esempio pesato (vedi
+     * {@link #setDeduplication(boolean)}) e, se il raggio lo consente, gli esempi vengono
+     * suddivisi in base ai valori degli attributi discreti (vedi {@link #setPartitioning(boolean)}).
+     * Con un tempo massimo (vedi {@link #setTimeBudget(long)}) il risultato può essere parziale.
      *
      * @param data Il dataset (oggetto {@link Data}) da clusterizzare. Non può essere nullo.
      * @return Il numero totale di cluster scoperti.
      * @throws EmptyDatasetException Se il dataset fornito è vuoto (non contiene esempi).
      * @throws ClusteringRadiusException Se tutti gli esempi vengono raggruppati in un unico cluster
      * (e il dataset contiene più di un esempio), indicando
-     * un raggio potenzialmente troppo ampio.
+     * un raggio potenzialmente troppo ampio. Non viene sollevata per un risultato parziale.
      */
     public int compute(Data data) throws EmptyDatasetException, ClusteringRadiusException {
+        return compute(data, null);
+    }
+
+    /**
+     * Esegue l'algoritmo di clustering QT sul dataset fornito, cercando eventualmente i
+     * vicini con una strategia già costruita e condivisa con altre esecuzioni.
+     * <p>
+     * Con una strategia condivisa le righe identiche non vengono fuse e gli esempi non
+     * vengono suddivisi, perché la strategia è legata agli indici dell'intero dataset.
+     * </p>
+     *
+     * @param data Il dataset da clusterizzare.
+     * @param finder La strategia di ricerca dei vicini costruita su {@code data}, o
+     * {@code null} per crearne una secondo la configurazione di questa istanza.
+     * @return Il numero totale di cluster scoperti.
+     * @throws EmptyDatasetException Se il dataset fornito è vuoto.
+     * @throws ClusteringRadiusException Se tutti gli esempi vengono raggruppati in un unico cluster.
+     * @throws java.util.concurrent.CancellationException Se il clustering viene annullato
+     * con il {@link CancellationToken}.
+     * @see RadiusSweep
+     */
+    int compute(Data data, NeighbourFinder finder) throws EmptyDatasetException, ClusteringRadiusException {
         if (data == null || data.getNumberOfExamples() == 0) {
             throw new EmptyDatasetException("Il dataset non può essere nullo o vuoto per l'algoritmo QTMiner.");
         }
         
-        int numclusters = 0;
-        boolean[] isClustered = new boolean[data.getNumberOfExamples()];
-
-        // Inizializza l'array isClustered a false
-        for (int i = 0; i < isClustered.length; i++) {
-            isClustered[i] = false;
-        }
-
-        int countClustered = 0; // Contatore degli esempi già assegnati a un cluster
+        bounded = timeBudget > 0;
+        deadline = bounded ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget) : 0;
+        partial = false;
+        clusteredRows = 0;
+        clustersFound = 0;
 
-        // Continua finché tutti gli esempi non sono stati clusterizzati
-        while (countClustered != data.getNumberOfExamples()) {
-            Cluster c = buildCandidateCluster(data, isClustered);
+        List<Cluster> clusters;
+        ForkJoinPool pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+        try {
+            // Le righe identiche vengono rappresentate dalla prima, pesata con il numero di copie
+            Data mined = data;
+            int[] weights = null;
+            int[][] copies = null;
+            if (deduplication && finder == null) {
+                int[] duplicates = data.getDuplicateGroups();
+                int distinct = countGroups(duplicates);
+                if (distinct < data.getNumberOfExamples()) {
+                    copies = rowsByGroup(duplicates, distinct);
+                    int[] representatives = new int[distinct];
+                    weights = new int[distinct];
+                    for (int g = 0; g < distinct; g++) {
+                        representatives[g] = copies[g][0];
+                        weights[g] = copies[g].length;
+                    }
+                    mined = data.subset(representatives);
+                }
+            }
 
-            C.add(c); // Aggiunge il miglior cluster candidato all'insieme C
-            numclusters++;
+            int[] groups = null;
+            if (partitioning && finder == null && radius < 1.0 && mined.getNumberOfDiscreteAttributes() > 0) {
+                groups = mined.getDiscreteSignatures();
+            }
+            if (groups != null && countGroups(groups) > 1) {
+                clusters = mineGroups(mined, weights, groups, copies, pool);
+            } else {
+                clusters = mine(mined, finder, weights, pool, null, notifier(null, copies));
+            }
 
-            // Aggiorna lo stato di clusterizzazione per gli esempi nel nuovo cluster
-            Iterator<Integer> iteratore = c.iterator();
-            while (iteratore.hasNext()) {
-                isClustered[iteratore.next()] = true;
+            if (copies != null) {
+                for (int k = 0; k < clusters.size(); k++) {
+                    clusters.set(k, expand(clusters.get(k), copies));
+                }
             }
-            
-            countClustered += c.getSize(); // Aggiorna il conteggio degli esempi clusterizzati
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        unclustered = new BitSet();
+        unclustered.set(0, data.getNumberOfExamples());
+        for (Cluster c : clusters) {
+            C.add(c); // Aggiunge i cluster all'insieme C nell'ordine in cui sono stati scelti
+            unclustered.andNot(c.getMembers());
         }
+        int numclusters = clusters.size();
         
         // Lancia un'eccezione se si forma un solo cluster e ci sono più esempi
-        if (numclusters == 1 && data.getNumberOfExamples() > 1) {
+        if (numclusters == 1 && data.getNumberOfExamples() > 1 && !partial) {
             throw new ClusteringRadiusException("Tutti gli esempi sono stati raggruppati in un unico cluster con il raggio: " + this.radius);
         }
 
@@ -140,59 +467,410 @@ public class QTMiner {
     }
 
     /**
-     * Costruisce e restituisce il miglior cluster candidato possibile dai dati non ancora clusterizzati.
-     * Un cluster candidato viene costruito attorno a ciascun esempio non ancora clusterizzato,
-     * includendo tutti gli altri esempi non clusterizzati che cadono entro il {@code radius} specificato.
-     * Viene restituito il candidato con il maggior numero di esempi.
+     * Crea la strategia di ricerca dei vicini configurata per questa istanza.
      *
-     * @param data L'oggetto {@link Data} contenente l'intero dataset.
-     * @param isClustered Un array booleano che tiene traccia dello stato di clusterizzazione
-     * di ciascun esempio. {@code isClustered[i]} è {@code true} se l'esempio
-     * all'indice {@code i} è già stato assegnato a un cluster, {@code false} altrimenti.
-     * @return Il {@link Cluster} candidato più popoloso. Restituisce {@code null} se non è possibile
-     * formare alcun cluster (es. tutti i punti sono già clusterizzati o nessun punto
-     * può formare un cluster con altri).
-     */
-    private Cluster buildCandidateCluster(Data data, boolean[] isClustered) {
-        Cluster bestCluster = null;
-        int maxClusterSize = 0;
-
-        // Itera su tutti gli esempi del dataset per considerarli come potenziali centroidi
-        for (int i = 0; i < data.getNumberOfExamples(); i++) {
-            // Considera solo gli esempi non ancora clusterizzati come potenziali centroidi
-            if (!isClustered[i]) {
-                Tuple centroid = data.getItemSet(i); // La tupla i-esima diventa il centroide candidato
-                Cluster currentCluster = new Cluster(centroid); // Crea un nuovo cluster con questo centroide
-                currentCluster.addData(i); // Aggiunge l'ID del centroide stesso al cluster
-
-                // Itera sugli altri esempi per vedere quali includere nel cluster candidato corrente
-                for (int j = 0; j < data.getNumberOfExamples(); j++) {
-                    // Salta se l'esempio j è lo stesso del centroide i (già aggiunto)
-                    // o se l'esempio j è già stato assegnato a un cluster precedente.
-                    if (i == j || isClustered[j]) {
-                        continue;
-                    }
+     * @param data Il dataset su cui verranno eseguite le ricerche.
+     * @return Il {@link NeighbourFinder} corrispondente a {@link #neighbourSearch}.
+     */
+    NeighbourFinder createFinder(Data data) {
+        switch (neighbourSearch) {
+            case DISTANCE_MATRIX:
+                // Ogni coppia di esempi viene valutata una sola volta
+                return new DistanceMatrix(data, checkpoint());
+            case NEIGHBOUR_GRAPH:
+                // Ogni coppia di esempi viene valutata una sola volta, ma si conservano solo i vicini
+                return new NeighbourGraph(cancellable(new BruteForceFinder(data)), data.getNumberOfExamples(), radius);
+            case VP_TREE:
+                return new VPTree(data);
+            case PIVOT_TABLE:
+                return new BruteForceFinder(data, new PivotTable(data));
+            case SWEEP:
+                return (SweepFinder.mostSpreadAttribute(data) >= 0) ? new SweepFinder(data) : new BruteForceFinder(data);
+            case GRID:
+            case BRUTE_FORCE:
+            default:
+                // La griglia e la finestra individuano gli stessi vicini della forza bruta
+                if (GridFinder.isApplicable(data, radius)) {
+                    return new GridFinder(data, radius);
+                }
+                if (neighbourSearch == NeighbourSearch.BRUTE_FORCE && SweepFinder.isApplicable(data, radius)) {
+                    return new SweepFinder(data);
+                }
+                return new BruteForceFinder(data);
+        }
+    }
+
+    /**
+     * Crea il selettore dei centroidi configurato per questa istanza.
+     *
+     * @param data Il dataset da clusterizzare.
+     * @param finder La strategia di ricerca dei vicini, o {@code null} per crearne una.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @param pool Il pool su cui valutare i candidati in parallelo, o {@code null}.
+     * @return Il {@link CandidateSelector} corrispondente a {@link #candidateSelection}.
+     */
+    private CandidateSelector createSelector(Data data, NeighbourFinder finder, int[] weights, ForkJoinPool pool) {
+        if (finder == null) {
+            finder = createFinder(data);
+        }
+        int n = data.getNumberOfExamples();
+        switch (candidateSelection) {
+            case INCREMENTAL:
+                NeighbourGraph graph = (finder instanceof NeighbourGraph)
+                        ? (NeighbourGraph) finder
+                        : new NeighbourGraph(cancellable(finder), n, radius);
+                return new IncrementalSelector(graph, weights);
+            case BITSET:
+                return new BitsetSelector(cancellable(finder), n, radius, weights);
+            case UPPER_BOUND:
+                return new UpperBoundSelector(cancellable(finder), n, radius, weights);
+            case SCAN:
+            default:
+                return new ScanSelector(cancellable(finder), n, radius, weights, pool);
+        }
+    }
+
+    /**
+     * Restituisce la strategia di ricerca dei vicini che controlla il
+     * {@link CancellationToken} e il tempo massimo prima di ogni ricerca, se sono stati
+     * impostati.
+     */
+    private NeighbourFinder cancellable(NeighbourFinder finder) {
+        Runnable checkpoint = checkpoint();
+        return (checkpoint != null) ? new CancellableFinder(finder, checkpoint) : finder;
+    }
+
+    /**
+     * Restituisce il punto di interruzione con cui le ricerche e le costruzioni delle
+     * strutture dei vicini controllano il {@link CancellationToken} e il tempo massimo
+     * dell'esecuzione corrente.
+     *
+     * @return Il punto di interruzione, o {@code null} se non sono stati impostati né un
+     * token né un tempo massimo.
+     */
+    private Runnable checkpoint() {
+        CancellationToken token = cancellation;
+        boolean timed = bounded;
+        long limit = deadline;
+        if (token == null && !timed) {
+            return null;
+        }
+        return () -> {
+            if (token != null) {
+                token.throwIfCancelled();
+            }
+            if (timed && System.nanoTime() - limit > 0) {
+                throw new TimeBudgetExceeded();
+            }
+        };
+    }
+
+    /**
+     * Segnala, dall'interno di una ricerca dei vicini, che il tempo massimo è scaduto.
+     * <p>
+     * Viene raccolta da {@link #mine}; il costruttore non è pubblico, per cui un
+     * {@link ForkJoinPool} la rilancia così com'è invece di crearne una copia.
+     * </p>
+     */
+    private static final class TimeBudgetExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
 
-                    // Calcola la distanza tra il centroide candidato e l'esempio j
-                    double distance = centroid.getDistance(data.getItemSet(j));
+        private TimeBudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
 
-                    // Se l'esempio j è sufficientemente vicino (entro il raggio), aggiungilo al cluster corrente
-                    if (distance <= radius) {
-                        currentCluster.addData(j);
+    /**
+     * Esegue l'algoritmo QT su un dataset.
+     *
+     * @param data Il dataset da clusterizzare.
+     * @param finder La strategia di ricerca dei vicini, o {@code null} per crearne una.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @param pool Il pool su cui valutare i candidati in parallelo, o {@code null}.
+     * @param keys Se non nullo, riceve nell'ordine la chiave
+     * {@link CandidateSearchTask#key(int, int)} con cui è stato scelto ciascun cluster.
+     * @param committed Se non nullo, riceve ogni cluster appena scelto.
+     * @return I cluster, nell'ordine in cui sono stati scelti; allo scadere del tempo
+     * massimo, soltanto quelli scelti fino a quel momento.
+     */
+    private List<Cluster> mine(Data data, NeighbourFinder finder, int[] weights, ForkJoinPool pool, long[] keys,
+            Consumer<Cluster> committed) {
+        List<Cluster> clusters = new ArrayList<>();
+        int countClustered = 0; // Contatore degli esempi già assegnati a un cluster
+        CandidateSelector selector;
+        try {
+            selector = createSelector(data, finder, weights, pool);
+        } catch (TimeBudgetExceeded e) {
+            partial = true;
+            return clusters;
+        }
+
+        // Continua finché tutti gli esempi non sono stati clusterizzati
+        while (countClustered != data.getNumberOfExamples()) {
+            if (bounded && System.nanoTime() - deadline > 0) {
+                partial = true;
+                break;
+            }
+            if (cancellation != null) {
+                cancellation.throwIfCancelled();
+            }
+            int centroid;
+            Cluster c;
+            try {
+                centroid = selector.nextCentroid();
+                c = buildCandidateCluster(data, selector, centroid);
+            } catch (TimeBudgetExceeded e) {
+                partial = true; // Il cluster in costruzione viene scartato
+                break;
+            }
+            BitSet members = c.getMembers();
+            if (keys != null) {
+                int size = c.getSize();
+                if (weights != null) {
+                    size = 0;
+                    for (int id = members.nextSetBit(0); id >= 0; id = members.nextSetBit(id + 1)) {
+                        size += weights[id];
                     }
                 }
+                keys[clusters.size()] = CandidateSearchTask.key(size, centroid);
+            }
+            clusters.add(c);
+            if (committed != null) {
+                committed.accept(c);
+            }
+
+            countClustered += c.getSize(); // Aggiorna il conteggio degli esempi clusterizzati
+
+            // Aggiorna lo stato di clusterizzazione per gli esempi nel nuovo cluster
+            try {
+                selector.markClustered(members);
+            } catch (TimeBudgetExceeded e) {
+                if (countClustered != data.getNumberOfExamples()) {
+                    partial = true;
+                }
+                break;
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Esegue l'algoritmo QT separatamente su ogni gruppo di esempi e fonde i risultati.
+     * <p>
+     * Nessun esempio ha vicini al di fuori del proprio gruppo, per cui la scelta di un
+     * cluster in un gruppo non influisce sugli altri. All'interno di un gruppo le chiavi
+     * {@link CandidateSearchTask#key(int, int)} dei cluster scelti sono strettamente
+     * decrescenti; estraendo a ogni passo il cluster con la chiave maggiore tra le teste dei
+     * gruppi si ottiene quindi la stessa sequenza della ricerca sull'intero dataset.
+     * </p>
+     *
+     * @param data Il dataset da clusterizzare.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @param groups Il gruppo di ciascun esempio, come da {@link Data#getDiscreteSignatures()}.
+     * @param copies Per ogni esempio, le righe identiche che rappresenta, o {@code null};
+     * servono soltanto per notificare i cluster al {@link ClusterListener}.
+     * @param pool Il pool su cui clusterizzare i gruppi in parallelo, o {@code null}.
+     * @return I cluster, con gli indici degli esempi di {@code data}, nell'ordine in cui
+     * sarebbero stati scelti sull'intero dataset.
+     */
+    private List<Cluster> mineGroups(Data data, int[] weights, int[] groups, int[][] copies, ForkJoinPool pool) {
+        int numgroups = countGroups(groups);
+        int[][] rows = rowsByGroup(groups, numgroups);
+
+        // Le chiavi sono espresse con gli indici locali al gruppo
+        List<List<Cluster>> results = new ArrayList<>();
+        long[][] keys = new long[numgroups][];
+        if (pool == null) {
+            for (int g = 0; g < numgroups; g++) {
+                keys[g] = new long[rows[g].length];
+                results.add(mine(data.subset(rows[g]), null, select(weights, rows[g]), null, keys[g], notifier(rows[g], copies)));
+            }
+        } else {
+            List<ForkJoinTask<List<Cluster>>> tasks = new ArrayList<>();
+            for (int g = 0; g < numgroups; g++) {
+                int[] groupRows = rows[g];
+                long[] groupKeys = new long[groupRows.length];
+                keys[g] = groupKeys;
+                Consumer<Cluster> committed = notifier(groupRows, copies);
+                tasks.add(pool.submit(() -> mine(data.subset(groupRows), null, select(weights, groupRows), null, groupKeys, committed)));
+            }
+            for (ForkJoinTask<List<Cluster>> task : tasks) {
+                results.add(task.join());
+            }
+        }
 
-                // Se il cluster candidato corrente è più grande del miglior cluster trovato finora,
-                // aggiorna bestCluster e maxClusterSize.
-                if (currentCluster.getSize() > maxClusterSize) {
-                    maxClusterSize = currentCluster.getSize();
-                    bestCluster = currentCluster;
+        // Fusione: la coda contiene la chiave del prossimo cluster di ogni gruppo
+        List<Cluster> clusters = new ArrayList<>();
+        int[] next = new int[numgroups];
+        CandidateHeap heap = new CandidateHeap(numgroups);
+        for (int g = 0; g < numgroups; g++) {
+            if (!results.get(g).isEmpty()) {
+                heap.push(globalKey(keys[g][0], rows[g]));
+            }
+        }
+        while (!heap.isEmpty()) {
+            int g = groups[CandidateSearchTask.index(heap.pop())];
+            clusters.add(relabel(results.get(g).get(next[g]), rows[g]));
+            if (++next[g] < results.get(g).size()) {
+                heap.push(globalKey(keys[g][next[g]], rows[g]));
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Restituisce l'azione che notifica al {@link ClusterListener} i cluster scelti su un
+     * gruppo di esempi rappresentativi, espressi con gli indici delle righe originali, e
+     * al {@link ProgressListener} l'avanzamento complessivo di tutti i gruppi.
+     *
+     * @param rows Gli indici degli esempi del gruppo, o {@code null} se il gruppo è
+     * l'intero dataset.
+     * @param copies Per ogni esempio, le righe identiche che rappresenta, o {@code null}.
+     * @return L'azione, o {@code null} se non è stato impostato alcun destinatario.
+     */
+    private Consumer<Cluster> notifier(int[] rows, int[][] copies) {
+        ClusterListener target = listener;
+        ProgressListener observer = progressListener;
+        if (target == null && observer == null) {
+            return null;
+        }
+        return c -> {
+            Cluster global = (rows != null) ? relabel(c, rows) : c;
+            if (copies != null) {
+                global = expand(global, copies);
+            }
+            // I gruppi possono essere clusterizzati in parallelo: le notifiche sono serializzate
+            synchronized (this) {
+                if (target != null) {
+                    target.clusterFound(global);
+                }
+                if (observer != null) {
+                    clusteredRows += global.getSize();
+                    clustersFound++;
+                    observer.progress(clusteredRows, clustersFound);
                 }
             }
+        };
+    }
+
+    /**
+     * Restituisce il numero di gruppi distinti in un array di identificativi densi, come
+     * quelli prodotti da {@link Data#getDiscreteSignatures()}.
+     */
+    private static int countGroups(int[] groups) {
+        int max = -1;
+        for (int group : groups) {
+            max = Math.max(max, group);
+        }
+        return max + 1;
+    }
+
+    /**
+     * Restituisce, per ogni gruppo, gli indici dei suoi esempi in ordine crescente.
+     *
+     * @param groups Il gruppo di ciascun esempio.
+     * @param numgroups Il numero di gruppi.
+     * @return Gli indici degli esempi di ciascun gruppo.
+     */
+    private static int[][] rowsByGroup(int[] groups, int numgroups) {
+        int[][] rows = new int[numgroups][];
+        int[] sizes = new int[numgroups];
+        for (int group : groups) {
+            sizes[group]++;
+        }
+        for (int g = 0; g < numgroups; g++) {
+            rows[g] = new int[sizes[g]];
+            sizes[g] = 0;
+        }
+        for (int i = 0; i < groups.length; i++) {
+            rows[groups[i]][sizes[groups[i]]++] = i;
         }
-        // Restituisce il miglior cluster candidato trovato.
-        // Potrebbe essere null se nessun punto non clusterizzato è stato trovato per iniziare,
-        // o se nessun cluster candidato valido (con dimensione > 0) è stato formato.
+        return rows;
+    }
+
+    /**
+     * Restituisce le molteplicità degli esempi indicati, o {@code null} se tutti valgono 1.
+     */
+    private static int[] select(int[] weights, int[] rows) {
+        if (weights == null) {
+            return null;
+        }
+        int[] selected = new int[rows.length];
+        for (int k = 0; k < rows.length; k++) {
+            selected[k] = weights[rows[k]];
+        }
+        return selected;
+    }
+
+    /**
+     * Converte la chiave di un cluster scelto in un gruppo esprimendo il centroide con il
+     * suo indice nell'intero dataset.
+     */
+    private static long globalKey(long key, int[] rows) {
+        return CandidateSearchTask.key(CandidateSearchTask.size(key), rows[CandidateSearchTask.index(key)]);
+    }
+
+    /**
+     * Restituisce un cluster con lo stesso centroide di {@code c} e con gli indici locali a
+     * un gruppo sostituiti dai corrispondenti indici dell'intero dataset.
+     *
+     * @param c Il cluster calcolato sul gruppo.
+     * @param rows Gli indici nell'intero dataset degli esempi del gruppo.
+     * @return Il cluster con gli indici dell'intero dataset.
+     */
+    private static Cluster relabel(Cluster c, int[] rows) {
+        Cluster relabelled = new Cluster(c.getCentroid());
+        for (int id : c) {
+            relabelled.addData(rows[id]);
+        }
+        return relabelled;
+    }
+
+    /**
+     * Restituisce un cluster con lo stesso centroide di {@code c} in cui ogni esempio
+     * rappresentativo è sostituito da tutte le righe identiche che rappresenta.
+     *
+     * @param c Il cluster calcolato sugli esempi rappresentativi.
+     * @param copies Per ogni esempio rappresentativo, gli indici delle righe identiche.
+     * @return Il cluster con gli indici di tutte le righe originali.
+     */
+    private static Cluster expand(Cluster c, int[][] copies) {
+        int count = 0;
+        for (int id : c) {
+            count += copies[id].length;
+        }
+        int[] rows = new int[count];
+        count = 0;
+        for (int id : c) {
+            System.arraycopy(copies[id], 0, rows, count, copies[id].length);
+            count += copies[id].length;
+        }
+        Arrays.sort(rows); // Le righe identiche non sono contigue: in ordine ogni aggiunta è in coda
+        Cluster expanded = new Cluster(c.getCentroid());
+        for (int row : rows) {
+            expanded.addData(row);
+        }
+        return expanded;
+    }
+
+    /**
+     * Costruisce il cluster centrato nel centroide scelto dal selettore.
+     * Il cluster include il centroide e tutti gli altri esempi non clusterizzati che cadono
+     * entro il {@code radius} specificato.
+     * <p>
+     * La scelta del centroide è delegata al {@link CandidateSelector}: il {@link Cluster}
+     * viene costruito una sola volta, per il candidato migliore, ovvero quello con il maggior
+     * numero di esempi e, a parità di dimensione, con indice minore.
+     * </p>
+     *
+     * @param data L'oggetto {@link Data} contenente l'intero dataset.
+     * @param selector Il selettore che tiene traccia degli esempi già clusterizzati.
+     * @param centroid L'indice del centroide restituito da {@link CandidateSelector#nextCentroid()}.
+     * @return Il {@link Cluster} candidato più popoloso.
+     */
+    private Cluster buildCandidateCluster(Data data, CandidateSelector selector, int centroid) {
+        Cluster bestCluster = new Cluster(data.getItemSet(centroid)); // La tupla del candidato diventa il centroide
+        selector.forEachMember(centroid, bestCluster::addData);
         return bestCluster;
     }
 }
@@ -0,0 +1,286 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import data.Data;
+import data.EmptyDatasetException;
+
+/**
+ * Stima, senza eseguire l'algoritmo QT, l'effetto di diversi raggi su un dataset.
+ * <p>
+ * Viene estratto un campione di coppie di esempi distinti e ne viene calcolata la
+ * distanza ({@link Data#distance(int, int)}, che coincide con quella tra le tuple): le
+ * distanze ordinate forniscono i quantili della distribuzione e la frazione di coppie
+ * entro un raggio. Se il dataset è abbastanza piccolo, vengono considerate tutte le
+ * coppie.
+ * </p>
+ * <p>
+ * Il numero di cluster viene stimato sommando, per ogni esempio, il reciproco del numero
+ * di esempi entro il raggio (lui compreso): un gruppo isolato di {@code m} esempi
+ * vicini tra loro contribuisce con 1, indipendentemente da {@code m}, e le zone più
+ * dense contribuiscono meno di quelle più rade. La somma viene calcolata su un campione
+ * di esempi, confrontando ognuno con tutto il dataset, e riportata al numero totale di
+ * esempi; il costo è quindi lineare nel numero di esempi, invece che quadratico come il
+ * clustering. La stima non tiene conto dell'ordine in cui QT sceglie i cluster e tende a
+ * sottostimare il risultato per i raggi intermedi, ma ne indica l'ordine di grandezza e
+ * segnala i raggi che raggrupperebbero tutti gli esempi in un unico cluster.
+ * </p>
+ *
+ * @see QTMiner
+ */
+public class RadiusAdvisor {
+
+    /**
+     * Numero predefinito di coppie del campione.
+     */
+    public static final int DEFAULT_PAIRS = 20000;
+
+    /**
+     * Numero predefinito di esempi del campione usato per stimare il numero di cluster.
+     */
+    public static final int DEFAULT_ROWS = 200;
+
+    /**
+     * I quantili in corrispondenza dei quali vengono suggeriti i raggi.
+     */
+    private static final double[] SUGGESTED_QUANTILES = {0.01, 0.05, 0.1, 0.25, 0.5};
+
+    /**
+     * Il dataset esaminato.
+     */
+    private final Data data;
+
+    /**
+     * Il numero di esempi del dataset.
+     */
+    private final int size;
+
+    /**
+     * Gli indici degli esempi del campione usato per stimare il numero di cluster.
+     */
+    private final int[] rows;
+
+    /**
+     * Le distanze delle coppie del campione, in ordine crescente ({@code NaN} in fondo).
+     */
+    private final double[] distances;
+
+    /**
+     * Costruisce le stime con le dimensioni predefinite dei campioni e un seme fisso, così
+     * che le stime per lo stesso dataset siano sempre le stesse.
+     *
+     * @param data Il dataset da esaminare.
+     * @throws EmptyDatasetException se il dataset è nullo o vuoto.
+     */
+    public RadiusAdvisor(Data data) throws EmptyDatasetException {
+        this(data, DEFAULT_PAIRS, DEFAULT_ROWS, 0L);
+    }
+
+    /**
+     * Costruisce le stime su un campione di coppie e su un campione di esempi.
+     *
+     * @param data Il dataset da esaminare.
+     * @param pairs Il numero massimo di coppie di esempi distinti da campionare.
+     * @param rows Il numero massimo di esempi con cui stimare il numero di cluster.
+     * @param seed Il seme del generatore pseudo-casuale.
+     * @throws EmptyDatasetException se il dataset è nullo o vuoto.
+     * @throws IllegalArgumentException se {@code pairs} o {@code rows} sono minori di 1.
+     */
+    public RadiusAdvisor(Data data, int pairs, int rows, long seed) throws EmptyDatasetException {
+        if (data == null || data.getNumberOfExamples() == 0) {
+            throw new EmptyDatasetException("Il dataset non può essere nullo o vuoto.");
+        }
+        if (pairs < 1) {
+            throw new IllegalArgumentException("Il numero di coppie deve essere almeno 1: " + pairs);
+        }
+        if (rows < 1) {
+            throw new IllegalArgumentException("Il numero di esempi del campione deve essere almeno 1: " + rows);
+        }
+        int n = data.getNumberOfExamples();
+        this.data = data;
+        this.size = n;
+        Random random = new Random(seed);
+        long total = (long) n * (n - 1) / 2;
+        if (total <= pairs) {
+            // Tutte le coppie
+            distances = new double[(int) total];
+            int k = 0;
+            for (int i = 1; i < n; i++) {
+                data.distances(i, 0, i, distances, k);
+                k += i;
+            }
+        } else {
+            distances = new double[pairs];
+            for (int k = 0; k < pairs; k++) {
+                int i = random.nextInt(n);
+                int j = random.nextInt(n - 1);
+                distances[k] = data.distance(i, (j >= i) ? j + 1 : j);
+            }
+        }
+        Arrays.sort(distances);
+
+        // Campione di esempi distinti (Fisher-Yates parziale), o tutti gli esempi
+        int[] shuffled = new int[n];
+        for (int i = 0; i < n; i++) {
+            shuffled[i] = i;
+        }
+        int count = Math.min(rows, n);
+        if (count < n) {
+            for (int k = 0; k < count; k++) {
+                int other = k + random.nextInt(n - k);
+                int swap = shuffled[k];
+                shuffled[k] = shuffled[other];
+                shuffled[other] = swap;
+            }
+        }
+        this.rows = Arrays.copyOf(shuffled, count);
+    }
+
+    /**
+     * Restituisce il numero di coppie su cui si basano le stime.
+     *
+     * @return La dimensione del campione.
+     */
+    public int getSampleSize() {
+        return distances.length;
+    }
+
+    /**
+     * Restituisce un quantile della distribuzione delle distanze del campione.
+     *
+     * @param q L'ordine del quantile, compreso tra 0 e 1.
+     * @return La più piccola distanza del campione maggiore o uguale a una frazione
+     * {@code q} delle distanze, o {@code NaN} se il campione è vuoto.
+     * @throws IllegalArgumentException se {@code q} non è compreso tra 0 e 1.
+     */
+    public double quantile(double q) {
+        if (!(q >= 0.0 && q <= 1.0)) {
+            throw new IllegalArgumentException("L'ordine del quantile deve essere compreso tra 0 e 1: " + q);
+        }
+        if (distances.length == 0) {
+            return Double.NaN;
+        }
+        int k = (int) Math.ceil(q * distances.length) - 1;
+        return distances[Math.max(0, Math.min(k, distances.length - 1))];
+    }
+
+    /**
+     * Stima la frazione di coppie di esempi la cui distanza non supera il raggio.
+     *
+     * @param radius Il raggio.
+     * @return La frazione di coppie del campione entro il raggio (0 se il campione è vuoto).
+     */
+    public double fractionWithin(double radius) {
+        if (distances.length == 0) {
+            return 0.0;
+        }
+        return (double) countWithin(distances, radius) / distances.length;
+    }
+
+    /**
+     * Stima il numero di cluster che l'algoritmo QT produrrebbe con il raggio dato.
+     *
+     * @param radius Il raggio.
+     * @return Il numero stimato di cluster, compreso tra 1 e il numero di esempi.
+     * @see #estimateClusters(double[])
+     */
+    public int estimateClusters(double radius) {
+        return estimateClusters(new double[]{radius})[0];
+    }
+
+    /**
+     * Stima il numero di cluster che l'algoritmo QT produrrebbe con ciascuno dei raggi.
+     * <p>
+     * Ogni esempio del campione viene confrontato una sola volta con tutto il dataset,
+     * tramite {@link Data#distances(int, int, int, double[], int)}, qualunque sia il
+     * numero di raggi.
+     * </p>
+     *
+     * @param radii I raggi da valutare.
+     * @return Per ogni raggio, il numero stimato di cluster, compreso tra 1 e il numero
+     * di esempi.
+     */
+    public int[] estimateClusters(double[] radii) {
+        double[] sums = new double[radii.length];
+        double[] row = new double[size];
+        for (int i : rows) {
+            data.distances(i, 0, size, row, 0);
+            Arrays.sort(row);
+            for (int k = 0; k < radii.length; k++) {
+                // Esempi entro il raggio, compreso i stesso se la sua distanza è definita
+                int within = countWithin(row, radii[k]);
+                sums[k] += 1.0 / Math.max(1, within);
+            }
+        }
+        int[] estimates = new int[radii.length];
+        for (int k = 0; k < radii.length; k++) {
+            long estimate = Math.round(sums[k] * size / rows.length);
+            estimates[k] = (int) Math.max(1, Math.min(size, estimate));
+        }
+        return estimates;
+    }
+
+    /**
+     * Suggerisce alcuni raggi, pari ai quantili 1%, 5%, 10%, 25% e 50% delle distanze
+     * del campione, senza ripetizioni.
+     *
+     * @return I raggi suggeriti, in ordine crescente.
+     */
+    public double[] suggestRadii() {
+        return Arrays.stream(SUGGESTED_QUANTILES)
+                .map(this::quantile)
+                .filter(Double::isFinite)
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Restituisce un resoconto testuale delle stime: i quantili principali delle
+     * distanze e, per ogni raggio, la frazione di coppie entro il raggio e il numero
+     * stimato di cluster.
+     *
+     * @param radii I raggi da valutare; se nullo o vuoto, vengono usati quelli di
+     * {@link #suggestRadii()}.
+     * @return Il resoconto, una voce per riga.
+     */
+    public String report(double[] radii) {
+        if (radii == null || radii.length == 0) {
+            radii = suggestRadii();
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Coppie esaminate: ").append(distances.length).append("\n");
+        sb.append(String.format(Locale.ROOT, "Distanze: min=%.4f q10=%.4f q25=%.4f mediana=%.4f q75=%.4f q90=%.4f max=%.4f%n",
+                quantile(0.0), quantile(0.1), quantile(0.25), quantile(0.5), quantile(0.75), quantile(0.9), quantile(1.0)));
+        int[] estimates = estimateClusters(radii);
+        for (int k = 0; k < radii.length; k++) {
+            double fraction = fractionWithin(radii[k]);
+            sb.append(String.format(Locale.ROOT, "raggio=%.4f coppie entro il raggio=%.2f%% cluster stimati=%d",
+                    radii[k], 100.0 * fraction, estimates[k]));
+            if (size > 1 && estimates[k] == 1) {
+                sb.append(" (probabilmente un unico cluster)");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Conta le distanze di un array ordinato che non superano il raggio ({@code NaN} è in
+     * fondo e non viene mai contato).
+     */
+    private static int countWithin(double[] sorted, double radius) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (sorted[middle] <= radius) {
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,329 @@
+package mining;
+
+import data.Data;
+import data.EmptyDatasetException;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Esegue l'algoritmo QT sullo stesso dataset per più raggi, condividendo la ricerca
+ * dei vicini tra tutte le esecuzioni.
+ * <p>
+ * Invece di ripetere da zero {@link QTMiner#compute(Data)} per ogni raggio, i vicini di
+ * ogni esempio entro il raggio più grande vengono calcolati una sola volta e ordinati
+ * per distanza ({@link SortedNeighbourGraph}): per ogni raggio più piccolo i vicini sono
+ * un prefisso di queste liste. Ogni raggio produce il proprio {@link QTMiner}, con lo
+ * stesso {@link ClusterSet} che si otterrebbe clusterizzando separatamente.
+ * </p>
+ * <p>
+ * Il grafo condiviso occupa memoria proporzionale al numero di coppie entro il raggio
+ * più grande, che per raggi ampi si avvicina al quadrato del numero di esempi. Per questo
+ * il numero di archi è limitato ({@link #setEdgeBudget(long)}): se la stima su un
+ * campione di coppie ({@link RadiusAdvisor#fractionWithin(double)}) o il conteggio
+ * effettivo durante la costruzione supera il limite, ogni raggio viene clusterizzato
+ * separatamente con {@link QTMiner#compute(Data)}. Il percorso condiviso rinuncia alla
+ * deduplicazione delle righe, al partizionamento e alla ricerca a griglia o per
+ * proiezione di ogni miner, per cui con raggi piccoli può risultare più lento del
+ * percorso separato.
+ * </p>
+ *
+ * @see QTMiner
+ */
+public class RadiusSweep {
+
+    /**
+     * Il numero massimo predefinito di archi del grafo condiviso: con circa 18 byte per
+     * arco durante la costruzione, poco meno di 150 MB.
+     */
+    public static final long DEFAULT_EDGE_BUDGET = 8_000_000L;
+
+    /**
+     * I raggi da valutare, nell'ordine richiesto.
+     */
+    private final double[] radii;
+
+    /**
+     * Per ogni raggio, il miner con il risultato del clustering.
+     */
+    private final QTMiner[] miners;
+
+    /**
+     * Per ogni raggio, il numero di cluster scoperti.
+     */
+    private final int[] numclusters;
+
+    /**
+     * Per ogni raggio, l'eventuale eccezione sollevata dal clustering, o {@code null}.
+     */
+    private final ClusteringRadiusException[] errors;
+
+    /**
+     * La strategia di ricerca dei vicini con cui costruire il grafo condiviso.
+     */
+    private NeighbourSearch neighbourSearch = NeighbourSearch.BRUTE_FORCE;
+
+    /**
+     * Il numero di thread con cui ciascun miner valuta i centroidi candidati.
+     */
+    private int parallelism = 1;
+
+    /**
+     * L'eventuale token con cui interrompere la valutazione.
+     */
+    private CancellationToken cancellation;
+
+    /**
+     * Il numero massimo di archi del grafo condiviso.
+     */
+    private long edgeBudget = DEFAULT_EDGE_BUDGET;
+
+    /**
+     * Indica se l'ultima valutazione ha utilizzato il grafo condiviso.
+     */
+    private boolean shared;
+
+    /**
+     * Costruisce una valutazione per i raggi specificati.
+     *
+     * @param radii I raggi da valutare.
+     * @throws IllegalArgumentException se l'array è nullo o vuoto, o se un raggio non è
+     * un numero finito.
+     */
+    public RadiusSweep(double[] radii) {
+        if (radii == null || radii.length == 0) {
+            throw new IllegalArgumentException("Occorre specificare almeno un raggio.");
+        }
+        for (double radius : radii) {
+            if (!Double.isFinite(radius)) {
+                throw new IllegalArgumentException("Raggio non valido: " + radius);
+            }
+        }
+        this.radii = radii.clone();
+        this.miners = new QTMiner[radii.length];
+        this.numclusters = new int[radii.length];
+        this.errors = new ClusteringRadiusException[radii.length];
+    }
+
+    /**
+     * Imposta la strategia con cui individuare i vicini entro il raggio più grande, o
+     * entro ciascun raggio se il grafo condiviso supera il limite di archi.
+     *
+     * @param neighbourSearch La strategia da adottare.
+     * @throws IllegalArgumentException se la strategia è nulla.
+     */
+    public void setNeighbourSearch(NeighbourSearch neighbourSearch) {
+        if (neighbourSearch == null) {
+            throw new IllegalArgumentException("La strategia di ricerca dei vicini non può essere nulla.");
+        }
+        this.neighbourSearch = neighbourSearch;
+    }
+
+    /**
+     * Imposta il numero di thread con cui ciascun miner valuta i centroidi candidati.
+     *
+     * @param parallelism Il numero di thread da utilizzare (almeno 1).
+     * @throws IllegalArgumentException se {@code parallelism} è minore di 1.
+     * @see QTMiner#setParallelism(int)
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Il numero di thread deve essere almeno 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imposta il token con cui interrompere {@link #compute(Data)} da un altro thread,
+     * controllato durante la costruzione del grafo condiviso e dai miner di ogni raggio.
+     *
+     * @param cancellation Il token, o {@code null} per una valutazione non interrompibile.
+     * @see QTMiner#setCancellationToken(CancellationToken)
+     */
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Imposta il numero massimo di archi del grafo dei vicini condiviso tra i raggi, oltre
+     * il quale ogni raggio viene clusterizzato separatamente.
+     *
+     * @param edgeBudget Il numero massimo di archi (0 per non condividere mai il grafo).
+     * @throws IllegalArgumentException se {@code edgeBudget} è negativo.
+     */
+    public void setEdgeBudget(long edgeBudget) {
+        if (edgeBudget < 0) {
+            throw new IllegalArgumentException("Il numero massimo di archi non può essere negativo: " + edgeBudget);
+        }
+        this.edgeBudget = edgeBudget;
+    }
+
+    /**
+     * Indica se l'ultima esecuzione di {@link #compute(Data)} ha condiviso il grafo dei
+     * vicini tra i raggi.
+     *
+     * @return {@code true} se il grafo è stato condiviso, {@code false} se ogni raggio è
+     * stato clusterizzato separatamente.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Esegue il clustering del dataset per ogni raggio.
+     * <p>
+     * Un raggio per cui tutti gli esempi finiscono in un unico cluster non interrompe la
+     * valutazione: l'eccezione viene conservata e sollevata da
+     * {@link #getNumberOfClusters(int)}.
+     * </p>
+     *
+     * @param data Il dataset da clusterizzare.
+     * @throws EmptyDatasetException Se il dataset è nullo o vuoto.
+     * @throws java.util.concurrent.CancellationException Se la valutazione viene annullata
+     * con il {@link CancellationToken}.
+     */
+    public void compute(Data data) throws EmptyDatasetException {
+        if (data == null || data.getNumberOfExamples() == 0) {
+            throw new EmptyDatasetException("Il dataset non può essere nullo o vuoto per l'algoritmo QTMiner.");
+        }
+        double maxRadius = radii[0];
+        for (double radius : radii) {
+            maxRadius = Math.max(maxRadius, radius);
+        }
+        SortedNeighbourGraph graph = buildGraph(data, maxRadius);
+        shared = graph != null;
+
+        for (int k = 0; k < radii.length; k++) {
+            miners[k] = new QTMiner(radii[k], neighbourSearch);
+            miners[k].setParallelism(parallelism);
+            miners[k].setCancellationToken(cancellation);
+            try {
+                numclusters[k] = shared ? miners[k].compute(data, graph) : miners[k].compute(data);
+                errors[k] = null;
+            } catch (ClusteringRadiusException e) {
+                numclusters[k] = 1;
+                errors[k] = e;
+            }
+        }
+    }
+
+    /**
+     * Costruisce il grafo dei vicini entro il raggio più grande, se il numero di archi
+     * rientra nel limite.
+     *
+     * @return Il grafo, o {@code null} se il numero stimato o effettivo di archi supera il
+     * limite.
+     */
+    private SortedNeighbourGraph buildGraph(Data data, double maxRadius) throws EmptyDatasetException {
+        long n = data.getNumberOfExamples();
+        long pairs = n * (n - 1);
+        if (pairs > edgeBudget && new RadiusAdvisor(data).fractionWithin(maxRadius) * pairs > edgeBudget) {
+            return null;
+        }
+        QTMiner widest = new QTMiner(maxRadius, neighbourSearch);
+        widest.setCancellationToken(cancellation);
+        NeighbourFinder finder = new BudgetedFinder(widest.createFinder(data), edgeBudget);
+        if (cancellation != null) {
+            finder = new CancellableFinder(finder, cancellation::throwIfCancelled);
+        }
+        try {
+            return new SortedNeighbourGraph(data, finder, maxRadius);
+        } catch (EdgeBudgetExceeded e) {
+            return null;
+        }
+    }
+
+    /**
+     * Segnala che il grafo in costruzione ha superato il numero massimo di archi.
+     */
+    private static class EdgeBudgetExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        EdgeBudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Decora un {@link NeighbourFinder} contando i vicini riportati durante la costruzione
+     * del grafo: ogni vicino corrisponde a due archi, perché il grafo riceve ogni coppia
+     * una sola volta.
+     */
+    private static class BudgetedFinder implements NeighbourFinder {
+
+        private final NeighbourFinder finder;
+
+        private final long budget;
+
+        private long edges;
+
+        BudgetedFinder(NeighbourFinder finder, long budget) {
+            this.finder = finder;
+            this.budget = budget;
+        }
+
+        @Override
+        public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+            finder.forEachNeighbour(i, radius, isClustered, j -> {
+                edges += 2;
+                if (edges > budget) {
+                    throw new EdgeBudgetExceeded();
+                }
+                action.accept(j);
+            });
+        }
+
+        @Override
+        public int countNeighbours(int i, double radius, boolean[] isClustered) {
+            return finder.countNeighbours(i, radius, isClustered);
+        }
+    }
+
+    /**
+     * Restituisce il numero di raggi valutati.
+     *
+     * @return Il numero di raggi.
+     */
+    public int size() {
+        return radii.length;
+    }
+
+    /**
+     * Restituisce uno dei raggi valutati.
+     *
+     * @param k La posizione del raggio, nell'ordine fornito al costruttore.
+     * @return Il raggio in posizione {@code k}.
+     */
+    public double getRadius(int k) {
+        return radii[k];
+    }
+
+    /**
+     * Restituisce il miner con il risultato del clustering per un raggio.
+     *
+     * @param k La posizione del raggio, nell'ordine fornito al costruttore.
+     * @return Il {@link QTMiner} del raggio, o {@code null} se {@link #compute(Data)} non
+     * è ancora stato eseguito.
+     */
+    public QTMiner getMiner(int k) {
+        return miners[k];
+    }
+
+    /**
+     * Restituisce il numero di cluster scoperti per un raggio.
+     *
+     * @param k La posizione del raggio, nell'ordine fornito al costruttore.
+     * @return Il numero di cluster scoperti.
+     * @throws ClusteringRadiusException se con questo raggio tutti gli esempi sono stati
+     * raggruppati in un unico cluster.
+     * @throws IllegalStateException se {@link #compute(Data)} non è ancora stato eseguito.
+     */
+    public int getNumberOfClusters(int k) throws ClusteringRadiusException {
+        if (miners[k] == null) {
+            throw new IllegalStateException("Il clustering non è ancora stato eseguito.");
+        }
+        if (errors[k] != null) {
+            throw errors[k];
+        }
+        return numclusters[k];
+    }
+}
@@ -0,0 +1,76 @@
+package mining;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Selettore che, a ogni iterazione, valuta da zero il vicinato di ogni candidato
+ * non clusterizzato tramite un {@link NeighbourFinder}.
+ *
+ * @see CandidateSelection#SCAN
+ */
+class ScanSelector implements CandidateSelector {
+
+    /**
+     * La strategia di ricerca dei vicini.
+     */
+    private final NeighbourFinder finder;
+
+    /**
+     * Il raggio dei cluster.
+     */
+    private final double radius;
+
+    /**
+     * Lo stato di clusterizzazione di ciascun esempio.
+     */
+    private final boolean[] isClustered;
+
+    /**
+     * La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    private final int[] weights;
+
+    /**
+     * Il pool su cui valutare i candidati in parallelo, o {@code null}.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Costruisce un selettore per scansione completa.
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param size Il numero di esempi del dataset.
+     * @param radius Il raggio dei cluster.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     * @param pool Il pool su cui valutare i candidati in parallelo, o {@code null}
+     * per una valutazione sequenziale.
+     */
+    ScanSelector(NeighbourFinder finder, int size, double radius, int[] weights, ForkJoinPool pool) {
+        this.finder = finder;
+        this.radius = radius;
+        this.isClustered = new boolean[size];
+        this.weights = weights;
+        this.pool = pool;
+    }
+
+    @Override
+    public int nextCentroid() {
+        int n = isClustered.length;
+        long best = (pool == null)
+                ? CandidateSearchTask.bestCandidate(finder, radius, isClustered, weights, 0, n)
+                : pool.invoke(new CandidateSearchTask(finder, radius, isClustered, weights, 0, n));
+        return (best == CandidateSearchTask.NONE) ? -1 : CandidateSearchTask.index(best);
+    }
+
+    @Override
+    public void forEachMember(int centroid, IntConsumer action) {
+        action.accept(centroid);
+        finder.forEachNeighbour(centroid, radius, isClustered, action);
+    }
+
+    @Override
+    public void markClustered(int id) {
+        isClustered[id] = true;
+    }
+}
@@ -0,0 +1,144 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import data.Data;
+
+/**
+ * Grafo dei vicini entro un raggio massimo, con i vicini di ogni esempio ordinati per
+ * distanza crescente.
+ * <p>
+ * Come {@link NeighbourGraph}, il grafo è memorizzato in formato CSR, ma per ogni arco
+ * conserva anche la distanza: i vicini di un esempio entro un raggio qualsiasi non
+ * maggiore di quello massimo formano quindi un prefisso della sua lista. Un solo grafo,
+ * costruito una volta per il raggio più grande, risponde così alle interrogazioni di
+ * tutti i raggi di una {@link RadiusSweep}.
+ * </p>
+ *
+ * @see RadiusSweep
+ */
+class SortedNeighbourGraph implements NeighbourFinder {
+
+    /**
+     * Il raggio massimo con cui è stato costruito il grafo.
+     */
+    private final double maxRadius;
+
+    /**
+     * Per ogni esempio, la posizione del suo primo vicino; l'ultimo elemento vale il
+     * numero totale di archi.
+     */
+    private final int[] offsets;
+
+    /**
+     * Gli indici dei vicini di tutti gli esempi, concatenati per esempio e ordinati per
+     * distanza crescente.
+     */
+    private final int[] targets;
+
+    /**
+     * Le distanze corrispondenti a {@link #targets}.
+     */
+    private final double[] distances;
+
+    /**
+     * Costruisce il grafo interrogando un {@link NeighbourFinder} con il raggio massimo.
+     * <p>
+     * Gli archi vengono raccolti in un {@link NeighbourGraph}, così che ogni coppia venga
+     * valutata una sola volta; le distanze dei soli archi vengono poi calcolate con
+     * {@link Data#distance(int, int)} e ogni lista viene ordinata per (distanza, indice).
+     * </p>
+     *
+     * @param data Il dataset su cui calcolare le distanze.
+     * @param finder La strategia di ricerca dei vicini sullo stesso dataset.
+     * @param maxRadius Il raggio massimo delle interrogazioni.
+     */
+    SortedNeighbourGraph(Data data, NeighbourFinder finder, double maxRadius) {
+        NeighbourGraph graph = new NeighbourGraph(finder, data.getNumberOfExamples(), maxRadius);
+        int n = graph.size();
+        this.maxRadius = maxRadius;
+        this.offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = graph.endEdge(i);
+        }
+        this.targets = new int[offsets[n]];
+        this.distances = new double[offsets[n]];
+
+        for (int i = 0; i < n; i++) {
+            int from = graph.firstEdge(i);
+            int degree = graph.degree(i);
+            // Ordina le posizioni degli archi per distanza e, a parità, per indice del vicino
+            double[] local = new double[degree];
+            Integer[] sorted = new Integer[degree];
+            for (int k = 0; k < degree; k++) {
+                local[k] = data.distance(i, graph.target(from + k));
+                sorted[k] = k;
+            }
+            Arrays.sort(sorted, (x, y) -> {
+                int byDistance = Double.compare(local[x], local[y]);
+                return (byDistance != 0) ? byDistance : Integer.compare(graph.target(from + x), graph.target(from + y));
+            });
+            for (int k = 0; k < degree; k++) {
+                targets[from + k] = graph.target(from + sorted[k]);
+                distances[from + k] = local[sorted[k]];
+            }
+        }
+    }
+
+    /**
+     * Restituisce il raggio massimo con cui è stato costruito il grafo.
+     *
+     * @return Il raggio massimo delle interrogazioni.
+     */
+    double getMaxRadius() {
+        return maxRadius;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Vengono visitati soltanto i vicini del prefisso entro {@code radius}, in ordine di
+     * distanza crescente.
+     * </p>
+     *
+     * @throws IllegalArgumentException se {@code radius} è maggiore del raggio massimo.
+     */
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        checkRadius(radius);
+        for (int k = offsets[i]; k < offsets[i + 1] && distances[k] <= radius; k++) {
+            int j = targets[k];
+            if (!isClustered[j]) {
+                action.accept(j);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException se {@code radius} è maggiore del raggio massimo.
+     */
+    @Override
+    public int countNeighbours(int i, double radius, boolean[] isClustered) {
+        checkRadius(radius);
+        int count = 0;
+        for (int k = offsets[i]; k < offsets[i + 1] && distances[k] <= radius; k++) {
+            if (!isClustered[targets[k]]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Verifica che il raggio richiesto non superi quello del grafo.
+     */
+    private void checkRadius(double radius) {
+        if (radius > maxRadius) {
+            throw new IllegalArgumentException("Il grafo è stato costruito con raggio massimo " + maxRadius
+                    + " e non può rispondere per il raggio " + radius + ".");
+        }
+    }
+}
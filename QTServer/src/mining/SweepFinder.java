@@ -0,0 +1,192 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import data.ContinuousAttribute;
+import data.Data;
+
+/**
+ * Ricerca dei vicini che ordina gli esempi secondo un solo attributo continuo e
+ * confronta ogni candidato soltanto con gli esempi di una finestra di ampiezza pari
+ * al raggio.
+ * <p>
+ * La distanza tra due esempi è una somma di termini non negativi, uno dei quali è la
+ * differenza assoluta dei valori scalati sull'attributo scelto: se questa supera il
+ * raggio, la coppia può essere scartata. Gli esempi vengono ordinati una sola volta
+ * secondo l'attributo con la varianza maggiore; la finestra di un candidato viene
+ * individuata per ricerca binaria con lo stesso test {@code |a - b| <= radius} usato
+ * nel calcolo della distanza, che è monotono lungo l'ordinamento, per cui il risultato
+ * coincide esattamente con quello della ricerca per forza bruta. La distanza degli
+ * esempi della finestra viene calcolata con {@link Data#distance(int, int, double)}.
+ * </p>
+ * <p>
+ * Gli esempi con un valore scalato non finito sull'attributo scelto non hanno vicini:
+ * vengono esclusi dall'ordinamento.
+ * </p>
+ *
+ * @see NeighbourSearch#SWEEP
+ */
+class SweepFinder implements NeighbourFinder {
+
+    /**
+     * Il dataset su cui vengono calcolate le distanze.
+     */
+    private final Data data;
+
+    /**
+     * I valori scalati dell'attributo scelto, in ordine crescente.
+     */
+    private final double[] values;
+
+    /**
+     * Gli indici degli esempi ordinati secondo l'attributo scelto.
+     */
+    private final int[] order;
+
+    /**
+     * Per ogni esempio, la sua posizione in {@link #order}, o {@code -1} se escluso.
+     */
+    private final int[] positions;
+
+    /**
+     * Restituisce l'attributo continuo con la varianza maggiore dei valori scalati finiti.
+     *
+     * @param data Il dataset da esaminare.
+     * @return L'indice dell'attributo nello schema, o {@code -1} se lo schema non contiene
+     * attributi continui con almeno un valore finito.
+     */
+    static int mostSpreadAttribute(Data data) {
+        int best = -1;
+        double bestVariance = -1.0;
+        for (int a = 0; a < data.getNumberOfExplanatoryAttributes(); a++) {
+            if (!(data.getAttributeSchema().get(a) instanceof ContinuousAttribute)) {
+                continue;
+            }
+            double variance = variance(data, a);
+            if (variance > bestVariance) {
+                best = a;
+                bestVariance = variance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Verifica se conviene usare la finestra per un dataset e un raggio.
+     *
+     * @param data Il dataset da clusterizzare.
+     * @param radius Il raggio dei cluster.
+     * @return {@code true} se lo schema contiene un attributo continuo la cui deviazione
+     * standard supera il raggio, così che le finestre escludano buona parte degli esempi.
+     */
+    static boolean isApplicable(Data data, double radius) {
+        int attribute = mostSpreadAttribute(data);
+        return attribute >= 0 && radius * radius < variance(data, attribute);
+    }
+
+    /**
+     * Calcola la varianza dei valori scalati finiti di un attributo continuo.
+     */
+    private static double variance(Data data, int attribute) {
+        int count = 0;
+        double mean = 0.0;
+        double squares = 0.0;
+        for (int i = 0; i < data.getNumberOfExamples(); i++) {
+            double value = data.getScaledValue(i, attribute);
+            if (Double.isFinite(value)) {
+                // Algoritmo di Welford
+                count++;
+                double delta = value - mean;
+                mean += delta / count;
+                squares += delta * (value - mean);
+            }
+        }
+        return (count > 0) ? squares / count : -1.0;
+    }
+
+    /**
+     * Costruisce l'ordinamento secondo l'attributo continuo più disperso del dataset.
+     *
+     * @param data Il dataset su cui eseguire le ricerche; deve contenere almeno un
+     * attributo continuo (vedi {@link #mostSpreadAttribute(Data)}).
+     */
+    SweepFinder(Data data) {
+        int n = data.getNumberOfExamples();
+        int attribute = mostSpreadAttribute(data);
+        this.data = data;
+        this.positions = new int[n];
+
+        int count = 0;
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            if (Double.isFinite(data.getScaledValue(i, attribute))) {
+                sorted[count++] = i;
+            }
+        }
+        sorted = Arrays.copyOf(sorted, count);
+        Arrays.sort(sorted, (x, y) -> Double.compare(data.getScaledValue(x, attribute), data.getScaledValue(y, attribute)));
+
+        this.values = new double[count];
+        this.order = new int[count];
+        Arrays.fill(positions, -1);
+        for (int k = 0; k < count; k++) {
+            order[k] = sorted[k];
+            values[k] = data.getScaledValue(order[k], attribute);
+            positions[order[k]] = k;
+        }
+    }
+
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        int position = positions[i];
+        if (position < 0) {
+            return;
+        }
+        int end = windowEnd(position, radius);
+        for (int k = windowStart(position, radius); k < end; k++) {
+            int j = order[k];
+            if (j != i && !isClustered[j] && data.distance(i, j, radius) <= radius) {
+                action.accept(j);
+            }
+        }
+    }
+
+    /**
+     * Restituisce la prima posizione {@code k <= position} tale che
+     * {@code |values[position] - values[k]| <= radius}.
+     */
+    private int windowStart(int position, double radius) {
+        double value = values[position];
+        int lo = 0;
+        int hi = position;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (Math.abs(value - values[middle]) <= radius) {
+                hi = middle;
+            } else {
+                lo = middle + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Restituisce la prima posizione {@code k > position} tale che
+     * {@code |values[position] - values[k]| > radius}, o la lunghezza dell'ordinamento.
+     */
+    private int windowEnd(int position, double radius) {
+        double value = values[position];
+        int lo = position + 1;
+        int hi = values.length;
+        while (lo < hi) {
+            int middle = (lo + hi) >>> 1;
+            if (Math.abs(value - values[middle]) <= radius) {
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,123 @@
+package mining;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Selettore che, come {@link ScanSelector}, ricalcola il vicinato dei candidati con un
+ * {@link NeighbourFinder}, ma evita di rivalutare i candidati che non possono battere
+ * il migliore dell'iterazione corrente.
+ * <p>
+ * Poiché gli esempi clusterizzati non tornano mai disponibili, il numero di vicini non
+ * clusterizzati di un candidato può soltanto diminuire: l'ultimo conteggio calcolato è
+ * quindi un limite superiore per tutte le iterazioni successive. I candidati sono
+ * conservati in una {@link CandidateHeap} ordinata per (limite, indice) e vengono
+ * estratti in ordine decrescente; un candidato il cui limite non è stato calcolato
+ * nell'iterazione corrente viene rivalutato e reinserito con il conteggio esatto. Il
+ * primo candidato estratto con un conteggio aggiornato è il migliore dell'iterazione:
+ * tutti gli altri hanno un limite, e quindi un conteggio, non superiore.
+ * </p>
+ * <p>
+ * Nelle iterazioni successive alla prima, di norma, vengono rivalutati soltanto pochi
+ * candidati, mentre la memoria aggiuntiva è lineare nel numero di esempi.
+ * </p>
+ *
+ * @see CandidateSelection#UPPER_BOUND
+ */
+class UpperBoundSelector implements CandidateSelector {
+
+    /**
+     * La strategia di ricerca dei vicini.
+     */
+    private final NeighbourFinder finder;
+
+    /**
+     * Il raggio dei cluster.
+     */
+    private final double radius;
+
+    /**
+     * Lo stato di clusterizzazione di ciascun esempio.
+     */
+    private final boolean[] isClustered;
+
+    /**
+     * La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    private final int[] weights;
+
+    /**
+     * Per ogni esempio, l'ultima dimensione calcolata del cluster che avrebbe come
+     * centroide: un limite superiore della dimensione corrente.
+     */
+    private final int[] bounds;
+
+    /**
+     * Per ogni esempio, il valore di {@link #version} con cui è stato calcolato {@link #bounds}.
+     */
+    private final int[] evaluatedAt;
+
+    /**
+     * La coda dei candidati non clusterizzati, una voce per candidato.
+     */
+    private final CandidateHeap heap;
+
+    /**
+     * La versione dello stato di clusterizzazione, incrementata a ogni esempio clusterizzato.
+     */
+    private int version;
+
+    /**
+     * Costruisce il selettore calcolando la dimensione iniziale del cluster di ogni esempio.
+     *
+     * @param finder La strategia di ricerca dei vicini.
+     * @param size Il numero di esempi del dataset.
+     * @param radius Il raggio dei cluster.
+     * @param weights La molteplicità di ciascun esempio, o {@code null} se tutti valgono 1.
+     */
+    UpperBoundSelector(NeighbourFinder finder, int size, double radius, int[] weights) {
+        this.finder = finder;
+        this.radius = radius;
+        this.isClustered = new boolean[size];
+        this.weights = weights;
+        this.bounds = new int[size];
+        this.evaluatedAt = new int[size];
+        this.heap = new CandidateHeap(size);
+        for (int i = 0; i < size; i++) {
+            bounds[i] = CandidateSearchTask.clusterSize(finder, i, radius, isClustered, weights);
+            heap.push(CandidateSearchTask.key(bounds[i], i));
+        }
+    }
+
+    @Override
+    public int nextCentroid() {
+        while (!heap.isEmpty()) {
+            long key = heap.pop();
+            int i = CandidateSearchTask.index(key);
+            if (isClustered[i]) {
+                continue;
+            }
+            if (evaluatedAt[i] == version) {
+                return i;
+            }
+            // Limite obsoleto: si rivaluta il candidato e lo si reinserisce
+            bounds[i] = CandidateSearchTask.clusterSize(finder, i, radius, isClustered, weights);
+            evaluatedAt[i] = version;
+            heap.push(CandidateSearchTask.key(bounds[i], i));
+        }
+        return -1;
+    }
+
+    @Override
+    public void forEachMember(int centroid, IntConsumer action) {
+        action.accept(centroid);
+        finder.forEachNeighbour(centroid, radius, isClustered, action);
+    }
+
+    @Override
+    public void markClustered(int id) {
+        if (!isClustered[id]) {
+            isClustered[id] = true;
+            version++;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import data.Data;
+
+/**
+ * Indice metrico (<i>vantage-point tree</i>) per le interrogazioni di raggio sugli
+ * esempi di un dataset.
+ * <p>
+ * La distanza calcolata da {@link Data#distance(int, int)} (differenza assoluta dei
+ * valori scalati per gli attributi continui, 0/1 per gli attributi discreti) è una
+ * metrica: vale quindi la disuguaglianza triangolare, che permette di escludere interi
+ * sottoalberi senza calcolarne le distanze. Ogni nodo dell'albero sceglie un esempio
+ * di riferimento (<i>vantage point</i>) e divide i rimanenti in due metà, quelli a
+ * distanza minore o uguale alla mediana {@code mu} e quelli a distanza maggiore o uguale.
+ * </p>
+ * <p>
+ * L'albero è memorizzato implicitamente in un array di indici: il sottoalbero che
+ * copre le posizioni {@code [from, to)} ha il vantage point in {@code from}, la metà
+ * interna in {@code [from + 1, middle)} e quella esterna in {@code [middle, to)}.
+ * L'indice non dipende dal raggio e viene costruito una sola volta per dataset.
+ * </p>
+ * <p>
+ * Gli esempi con valori non numerici dopo la normalizzazione (ad esempio un attributo
+ * continuo con minimo e massimo coincidenti) hanno distanza {@code NaN} da qualunque
+ * altro esempio: non vengono inseriti nell'albero e non risultano vicini di nessuno,
+ * esattamente come nella ricerca per forza bruta.
+ * </p>
+ *
+ * @see NeighbourSearch#VP_TREE
+ */
+class VPTree implements NeighbourFinder {
+
+    /**
+     * Dimensione massima di un sottoalbero che viene scandito linearmente.
+     */
+    private static final int LEAF_SIZE = 8;
+
+    /**
+     * Tolleranza relativa applicata ai test di esclusione, per compensare gli errori di
+     * arrotondamento che possono violare di poco la disuguaglianza triangolare.
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Il dataset indicizzato.
+     */
+    private final Data data;
+
+    /**
+     * Gli indici degli esempi indicizzati, nell'ordine implicito dell'albero.
+     */
+    private final int[] items;
+
+    /**
+     * Per ogni posizione che ospita un vantage point, la mediana delle distanze dei
+     * suoi discendenti.
+     */
+    private final double[] medians;
+
+    /**
+     * Per ogni posizione che ospita un vantage point, l'inizio della metà esterna.
+     */
+    private final int[] middles;
+
+    /**
+     * Costruisce l'indice sugli esempi del dataset specificato.
+     *
+     * @param data Il dataset da indicizzare.
+     */
+    VPTree(Data data) {
+        this.data = data;
+        int n = data.getNumberOfExamples();
+        int count = 0;
+        int[] indexed = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (data.distance(i, i) == 0.0) {
+                indexed[count++] = i;
+            }
+        }
+        items = Arrays.copyOf(indexed, count);
+        medians = new double[count];
+        middles = new int[count];
+        build(0, count, new double[count]);
+    }
+
+    /**
+     * Costruisce ricorsivamente il sottoalbero sulle posizioni {@code [from, to)}.
+     *
+     * @param from La prima posizione (inclusa).
+     * @param to L'ultima posizione (esclusa).
+     * @param distances Un array di appoggio della stessa lunghezza di {@link #items}.
+     */
+    private void build(int from, int to, double[] distances) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        int vantage = items[from];
+        for (int k = from + 1; k < to; k++) {
+            distances[k] = data.distance(vantage, items[k]);
+        }
+        int middle = (from + 1 + to) >>> 1;
+        select(distances, from + 1, to, middle);
+        // Dopo la selezione: [from+1, middle) <= distances[middle] <= [middle, to)
+        double mu = distances[middle];
+        for (int k = from + 1; k < middle; k++) {
+            mu = Math.max(mu, distances[k]);
+        }
+        medians[from] = mu;
+        middles[from] = middle;
+        build(from + 1, middle, distances);
+        build(middle, to, distances);
+    }
+
+    /**
+     * Riordina {@code [from, to)} in modo che la posizione {@code nth} contenga il valore che
+     * vi comparirebbe in un ordinamento crescente delle distanze, con valori minori o
+     * uguali prima e maggiori o uguali dopo (<i>quickselect</i>). Gli indici in
+     * {@link #items} seguono gli spostamenti delle distanze.
+     */
+    private void select(double[] distances, int from, int to, int nth) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = distances[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(distances, i++, j--);
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scambia due posizioni sia nelle distanze sia negli indici.
+     */
+    private void swap(double[] distances, int a, int b) {
+        double d = distances[a];
+        distances[a] = distances[b];
+        distances[b] = d;
+        int t = items[a];
+        items[a] = items[b];
+        items[b] = t;
+    }
+
+    @Override
+    public void forEachNeighbour(int i, double radius, boolean[] isClustered, IntConsumer action) {
+        if (data.distance(i, i) == 0.0) {
+            search(0, items.length, i, radius, isClustered, action);
+        }
+    }
+
+    /**
+     * Visita il sottoalbero sulle posizioni {@code [from, to)} riportando i vicini di {@code query}.
+     */
+    private void search(int from, int to, int query, double radius, boolean[] isClustered, IntConsumer action) {
+        if (to - from <= LEAF_SIZE) {
+            for (int k = from; k < to; k++) {
+                int j = items[k];
+                if (j != query && !isClustered[j] && data.distance(query, j, radius) <= radius) {
+                    action.accept(j);
+                }
+            }
+            return;
+        }
+        int vantage = items[from];
+        double tau = data.distance(query, vantage);
+        if (vantage != query && !isClustered[vantage] && tau <= radius) {
+            action.accept(vantage);
+        }
+        double mu = medians[from];
+        double slack = radius + TOLERANCE * (1.0 + radius + tau + mu);
+        if (tau - mu <= slack) {
+            search(from + 1, middles[from], query, radius, isClustered, action);
+        }
+        if (mu - tau <= slack) {
+            search(middles[from], to, query, radius, isClustered, action);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Una connessione servita da {@link SelectorServer}, con i buffer che separano l'I/O non
+ * bloccante del selettore dall'elaborazione delle richieste.
+ * <p>
+ * Il thread del selettore riconosce nei byte ricevuti le richieste complete
+ * ({@link RequestFramer}) e soltanto allora le accoda in un {@link InputStream} interno;
+ * trasmette inoltre sul canale i byte accodati dall'{@link OutputStream} interno. Le
+ * richieste vengono deserializzate ed elaborate da un {@link ClientSession} su un thread
+ * del pool dei worker, che non attende mai il client: una connessione inattiva, o un
+ * client lento a inviare una richiesta, non occupa alcun thread. Gli stream di oggetti di una connessione vengono creati una sola volta,
+ * perché la serializzazione Java fa riferimento agli oggetti già trasmessi sullo stesso
+ * stream; per lo stesso motivo una connessione viene servita da un solo worker alla volta.
+ * </p>
+ * <p>
+ * Il selettore continua a leggere il canale anche mentre un worker esegue un clustering,
+ * per cui la chiusura della connessione viene segnalata subito alla sessione
+ * ({@link ClientSession#disconnected()}), che annulla il clustering. Da quel momento il
+ * canale non viene più letto e il worker chiude la connessione al termine della
+ * richiesta in corso.
+ * </p>
+ *
+ * @see SelectorServer
+ */
+class ChannelConnection {
+
+    /**
+     * Il canale della connessione.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * La registrazione del canale presso il selettore che lo serve.
+     */
+    private final SelectionKey key;
+
+    /**
+     * Il pool su cui vengono elaborate le richieste.
+     */
+    private final Executor workers;
+
+    /**
+     * I byte ricevuti che non formano ancora una richiesta completa.
+     */
+    private final RequestFramer framer = new RequestFramer();
+
+    /**
+     * Le richieste complete non ancora elaborate.
+     */
+    private final Input input = new Input();
+
+    /**
+     * I buffer in attesa di essere trasmessi sul canale.
+     */
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+
+    /**
+     * Lo stream su cui la sessione scrive le risposte.
+     */
+    private final ObjectOutputStream out;
+
+    /**
+     * Lo stream da cui la sessione legge le richieste, creato alla prima elaborazione.
+     */
+    private ObjectInputStream in;
+
+    /**
+     * La sessione del client, creata insieme a {@link #in}.
+     */
+    private volatile ClientSession session;
+
+    /**
+     * Indica se un worker sta servendo la connessione.
+     */
+    private boolean busy;
+
+    /**
+     * Indica se la connessione è stata chiusa.
+     */
+    private boolean closed;
+
+    /**
+     * Costruisce una connessione e accoda l'intestazione dello stream di oggetti, che il
+     * client attende prima di inviare le richieste.
+     *
+     * @param channel Il canale della connessione, in modalità non bloccante.
+     * @param key La registrazione del canale presso il selettore.
+     * @param workers Il pool su cui elaborare le richieste.
+     * @throws IOException se la scrittura dell'intestazione fallisce.
+     */
+    ChannelConnection(SocketChannel channel, SelectionKey key, Executor workers) throws IOException {
+        this.channel = channel;
+        this.key = key;
+        this.workers = workers;
+        this.out = new ObjectOutputStream(new Output());
+        this.out.flush();
+    }
+
+    /**
+     * Legge dal canale i byte disponibili; invocato dal thread del selettore.
+     *
+     * @param buffer Il buffer di appoggio del selettore.
+     * @throws IOException se la lettura dal canale fallisce.
+     */
+    void read(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        int count = channel.read(buffer);
+        if (count < 0) {
+            input.close();
+            synchronized (this) {
+                if (!busy) {
+                    close();
+                    return;
+                }
+                if (session != null) {
+                    session.disconnected(); // Il worker sta elaborando una richiesta: la annulla
+                }
+            }
+            // Il canale resterebbe sempre leggibile: la chiusura spetta al worker
+            synchronized (pending) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            return;
+        }
+        if (count > 0) {
+            byte[] bytes = new byte[count];
+            buffer.flip();
+            buffer.get(bytes);
+            byte[] requests;
+            try {
+                requests = framer.append(bytes, count);
+            } catch (StreamCorruptedException e) {
+                System.err.println("Server: Richiesta non valida dal client: " + e.getMessage());
+                close();
+                return;
+            }
+            if (requests.length == 0) {
+                return; // La richiesta non è ancora completa
+            }
+            input.append(requests);
+            synchronized (this) {
+                if (!busy && !closed) {
+                    busy = true;
+                    workers.execute(this::serve);
+                }
+            }
+        }
+    }
+
+    /**
+     * Trasmette sul canale i buffer accodati, finché il canale li accetta; invocato dal
+     * thread del selettore.
+     *
+     * @throws IOException se la scrittura sul canale fallisce.
+     */
+    void write() throws IOException {
+        synchronized (pending) {
+            while (!pending.isEmpty()) {
+                ByteBuffer head = pending.peek();
+                channel.write(head);
+                if (head.hasRemaining()) {
+                    return; // Il canale è pieno: si riprende alla prossima segnalazione
+                }
+                pending.poll();
+            }
+            key.interestOps(readInterest());
+        }
+    }
+
+    /**
+     * Chiude la connessione; le risposte non ancora trasmesse vengono scartate.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        input.close();
+        if (session != null) {
+            session.disconnected();
+        }
+        try {
+            System.out.println("Server: Client " + channel.getRemoteAddress() + " si è disconnesso.");
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Errore durante la chiusura del canale: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Elabora le richieste finché ci sono byte ricevuti; invocato da un worker.
+     */
+    private void serve() {
+        try {
+            if (in == null) {
+                in = new ObjectInputStream(input);
+                session = new ClientSession(in, out);
+            }
+            while (hasPendingInput()) {
+                int requestCode = (Integer) in.readObject();
+                session.handle(requestCode);
+            }
+        } catch (EOFException e) {
+            // Il client ha chiuso la connessione a metà di una richiesta
+            close();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("Server: Errore di comunicazione con il client: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Verifica se ci sono byte da elaborare; in caso contrario libera la connessione, che
+     * verrà di nuovo affidata a un worker all'arrivo di altri byte.
+     */
+    private synchronized boolean hasPendingInput() {
+        if (!closed && input.available() > 0) {
+            return true;
+        }
+        busy = false;
+        if (input.isClosed()) {
+            close();
+        }
+        return false;
+    }
+
+    /**
+     * Restituisce l'interesse alla lettura del canale, che cessa quando il client ha
+     * chiuso la connessione.
+     */
+    private int readInterest() {
+        return input.isClosed() ? 0 : SelectionKey.OP_READ;
+    }
+
+    /**
+     * Accoda dei byte da trasmettere e chiede al selettore di segnalare quando il canale
+     * è scrivibile.
+     */
+    private void send(ByteBuffer buffer) throws IOException {
+        synchronized (pending) {
+            pending.add(buffer);
+            try {
+                key.interestOps(readInterest() | SelectionKey.OP_WRITE);
+            } catch (CancelledKeyException e) {
+                throw new IOException("La connessione è stata chiusa.", e);
+            }
+        }
+        key.selector().wakeup();
+    }
+
+    /**
+     * Lo stream da cui il worker legge le richieste complete accodate dal selettore. La
+     * lettura non attende mai: il worker legge soltanto richieste già arrivate per intero.
+     */
+    private static class Input extends InputStream {
+
+        /**
+         * I blocchi di byte ricevuti, nell'ordine di arrivo.
+         */
+        private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+
+        /**
+         * La posizione del prossimo byte da leggere nel primo blocco.
+         */
+        private int position;
+
+        /**
+         * Il numero di byte ricevuti e non ancora letti.
+         */
+        private int available;
+
+        /**
+         * Indica se non arriveranno altri byte.
+         */
+        private boolean closed;
+
+        synchronized void append(byte[] bytes) {
+            chunks.add(bytes);
+            available += bytes.length;
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public synchronized int available() {
+            return available;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return (read(single, 0, 1) < 0) ? -1 : (single[0] & 0xFF);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (available == 0) {
+                if (closed) {
+                    return -1;
+                }
+                throw new StreamCorruptedException("Lettura oltre l'ultima richiesta completa.");
+            }
+            int count = 0;
+            while (count < len && available > 0) {
+                byte[] head = chunks.peek();
+                int n = Math.min(len - count, head.length - position);
+                System.arraycopy(head, position, b, off + count, n);
+                count += n;
+                position += n;
+                available -= n;
+                if (position == head.length) {
+                    chunks.poll();
+                    position = 0;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Lo stream che accoda le risposte della sessione per la trasmissione sul canale.
+     */
+    private class Output extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            send(ByteBuffer.wrap(new byte[]{(byte) b}));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                send(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package server;
+
+import data.Data;
+import mining.CancellationToken;
+import mining.ClusteringRadiusException;
+import mining.QTMiner;
+import mining.RadiusAdvisor;
+import mining.RadiusSweep;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lo stato e l'elaborazione delle richieste di un singolo client, indipendenti dal modo
+ * in cui la connessione viene servita.
+ * <p>
+ * Una sessione conserva il dataset caricato e l'ultimo risultato di clustering, e legge i
+ * parametri di ogni richiesta e scrive la risposta sugli stream della connessione. Viene
+ * usata sia da {@link ServerOneClient}, con un thread dedicato per connessione, sia da
+ * {@link SelectorServer}, che serve più connessioni con pochi thread.
+ * </p>
+ * <p>
+ * I clustering sincroni vengono annullati quando il client si disconnette
+ * ({@link #disconnected()}), così da non occupare i core per un risultato che nessuno
+ * riceverà; i job asincroni invece sopravvivono alla connessione.
+ * </p>
+ *
+ * @see ServerOneClient
+ * @see SelectorServer
+ */
+class ClientSession {
+
+    /**
+     * Lo stream per ricevere oggetti (richieste) dal client.
+     */
+    private final ObjectInputStream in;
+    /**
+     * Lo stream per inviare oggetti (risposte) al client.
+     */
+    private final ObjectOutputStream out;
+
+    /**
+     * Il dataset attualmente caricato in memoria (es. da una tabella di database).
+     * Questo stato viene mantenuto per tutta la durata della sessione del client.
+     */
+    private Data data;
+    /**
+     * L'istanza del miner che contiene il risultato di un'operazione di clustering.
+     * Viene riutilizzato per operazioni successive, come il salvataggio su file.
+     */
+    private QTMiner kmeans;
+
+    /**
+     * L'eventuale strumento con cui rilevare la chiusura della connessione durante un
+     * clustering.
+     */
+    private final ConnectionMonitor monitor;
+
+    /**
+     * Il token del clustering in corso, o {@code null}.
+     */
+    private volatile CancellationToken running;
+
+    /**
+     * Indica se il client si è disconnesso.
+     */
+    private volatile boolean disconnected;
+
+    /**
+     * Rileva la chiusura della connessione mentre la sessione esegue un clustering e non
+     * legge dallo stream.
+     */
+    interface ConnectionMonitor {
+
+        /**
+         * Inizia a controllare la connessione.
+         *
+         * @param onClose L'azione da eseguire se il client chiude la connessione.
+         */
+        void start(Runnable onClose);
+
+        /**
+         * Smette di controllare la connessione.
+         */
+        void stop();
+    }
+
+    /**
+     * Costruisce una sessione sugli stream di una connessione la cui chiusura viene
+     * segnalata con {@link #disconnected()}.
+     *
+     * @param in Lo stream da cui leggere i parametri delle richieste.
+     * @param out Lo stream su cui scrivere le risposte.
+     */
+    ClientSession(ObjectInputStream in, ObjectOutputStream out) {
+        this(in, out, null);
+    }
+
+    /**
+     * Costruisce una sessione sugli stream di una connessione.
+     *
+     * @param in Lo stream da cui leggere i parametri delle richieste.
+     * @param out Lo stream su cui scrivere le risposte.
+     * @param monitor Lo strumento con cui rilevare la chiusura della connessione durante
+     * un clustering, o {@code null}.
+     */
+    ClientSession(ObjectInputStream in, ObjectOutputStream out, ConnectionMonitor monitor) {
+        this.in = in;
+        this.out = out;
+        this.monitor = monitor;
+    }
+
+    /**
+     * Segnala che il client si è disconnesso e annulla l'eventuale clustering sincrono in
+     * corso.
+     */
+    void disconnected() {
+        disconnected = true;
+        CancellationToken token = running;
+        if (token != null) {
+            token.cancel();
+        }
+    }
+
+    /**
+     * Restituisce il numero di parametri che {@link #handle(int)} legge dopo il codice di
+     * una richiesta, così che la richiesta possa essere riconosciuta come completa prima
+     * di essere elaborata ({@link RequestFramer}).
+     *
+     * @param requestCode Il codice della richiesta.
+     * @return Il numero di oggetti che seguono il codice; 0 per un codice non valido.
+     */
+    static int parameterCount(int requestCode) {
+        switch (requestCode) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 8:
+            case 9:
+            case 10:
+            case 11:
+                return 1;
+            case 6:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Elabora una richiesta, leggendone i parametri e scrivendone la risposta.
+     * <p>
+     * A seconda del codice ricevuto, esegue una delle seguenti operazioni:
+     * </p>
+     * <ul>
+     * <li><b>0:</b> Carica un dataset da una tabella di un database.</li>
+     * <li><b>1:</b> Esegue l'algoritmo di clustering (QTMiner) sul dataset in memoria.</li>
+     * <li><b>2:</b> Salva il risultato del clustering su un file.</li>
+     * <li><b>3:</b> Carica un risultato di clustering pre-calcolato da un file.</li>
+     * <li><b>4:</b> Esegue il clustering per più raggi ({@code double[]}) in un'unica richiesta,
+     * condividendo la ricerca dei vicini ({@link RadiusSweep}). La risposta contiene, dopo
+     * {@code "OK"} e il numero di raggi, per ogni raggio il raggio stesso seguito dalla
+     * stessa risposta della richiesta 1. Il risultato dell'ultimo raggio può essere salvato
+     * con la richiesta 2.</li>
+     * <li><b>5:</b> Stima l'effetto di alcuni raggi ({@code double[]}, eventualmente vuoto)
+     * senza eseguire il clustering ({@link RadiusAdvisor}): la risposta contiene
+     * {@code "OK"} seguito da un resoconto testuale con i quantili delle distanze tra
+     * coppie di esempi campionate e il numero stimato di cluster per ogni raggio. Se non
+     * viene indicato alcun raggio, il resoconto riguarda dei raggi suggeriti.</li>
+     * <li><b>6:</b> Esegue il clustering con un raggio ({@code Double}) e un tempo massimo
+     * in millisecondi ({@code Long}). Ogni cluster viene inviato appena confermato, come
+     * {@code "CLUSTER"} seguito dalla sua descrizione; al termine vengono inviati
+     * {@code "OK"}, o {@code "PARTIAL"} se il tempo è scaduto, il numero di cluster e gli
+     * indici delle righe non assegnate ({@code int[]}, vuoto se il clustering è completo).
+     * Il risultato può essere salvato con la richiesta 2.</li>
+     * <li><b>7:</b> Restituisce {@code "OK"} seguito da un resoconto testuale dello stato
+     * di {@link MiningScheduler}: slot occupati, richieste in coda, tempi di attesa e
+     * richieste rifiutate.</li>
+     * <li><b>8:</b> Invia un clustering asincrono con un raggio ({@code Double}) e
+     * restituisce subito {@code "OK"} seguito dall'identificativo del job ({@code Long}).
+     * Il job sopravvive alla connessione ({@link JobRegistry}): le richieste da 9 a 11
+     * possono essere inviate anche da una nuova connessione. Il job viene ammesso da
+     * {@link MiningScheduler} prima della risposta: se gli slot e la coda sono pieni la
+     * risposta è {@code "BUSY"}, come per le richieste 1, 4 e 6.</li>
+     * <li><b>9:</b> Restituisce lo stato di un job ({@code Long}): {@code "OK"}, lo stato
+     * ({@code QUEUED}, {@code RUNNING}, {@code DONE}, {@code FAILED} o {@code CANCELLED}),
+     * il numero di cluster confermati, il numero di righe assegnate e il numero totale di
+     * righe.</li>
+     * <li><b>10:</b> Restituisce il risultato di un job completato ({@code Long}), con la
+     * stessa risposta della richiesta 1. Il risultato può essere salvato con la
+     * richiesta 2.</li>
+     * <li><b>11:</b> Annulla un job ({@code Long}) e restituisce {@code "OK"} seguito dallo
+     * stato del job.</li>
+     * </ul>
+     * I clustering delle richieste 1, 4 e 6 vengono eseguiti da {@link MiningScheduler},
+     * che ne limita il numero contemporaneo su tutto il server. Se gli slot e la coda di
+     * attesa sono pieni la richiesta viene rifiutata con la risposta {@code "BUSY"},
+     * seguita dal tempo suggerito in millisecondi ({@code Long}) prima di riprovare.
+     * Gli errori di elaborazione vengono comunicati al client con una risposta
+     * {@code "ERROR: ..."}; soltanto gli errori di comunicazione vengono propagati.
+     *
+     * @param requestCode Il codice della richiesta, già letto dallo stream.
+     * @throws IOException se la comunicazione con il client fallisce.
+     * @throws ClassNotFoundException se un parametro ricevuto ha una classe sconosciuta.
+     */
+    void handle(int requestCode) throws IOException, ClassNotFoundException {
+        System.out.println("Server: Ricevuta richiesta [" + requestCode + "]");
+
+        switch (requestCode) {
+            case 0: // Richiesta di caricare dati da DB
+                try {
+                    String tableName = (String) in.readObject();
+                    System.out.println("Server: Caricamento dati da tabella '" + tableName + "'...");
+                    this.data = new Data(tableName);
+                    out.writeObject("OK");
+                    System.out.println("Server: Dati caricati con successo.");
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 1: // Richiesta di eseguire clustering
+                try {
+                    double radius = (Double) in.readObject();
+                    if (this.data == null) throw new IllegalStateException("Nessun dato caricato su cui eseguire il clustering.");
+                    System.out.println("Server: Esecuzione clustering con raggio " + radius + "...");
+                    QTMiner miner = new QTMiner(radius);
+                    MiningScheduler scheduler = MiningScheduler.getShared();
+                    // Distribuisce la valutazione dei candidati sulla quota di core di uno slot
+                    miner.setParallelism(scheduler.getParallelism());
+                    CancellationToken token = new CancellationToken();
+                    miner.setCancellationToken(token);
+                    int numClusters = mine(token, () -> miner.compute(this.data));
+                    this.kmeans = miner;
+
+                    out.writeObject("OK");
+                    out.writeObject(numClusters);
+                    out.writeObject(kmeans.getC().toString(this.data));
+                    System.out.println("Server: Clustering completato.");
+                } catch (ServerBusyException e) {
+                    reject(e);
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 2: // Richiesta di salvare i risultati su file
+                try {
+                    String fileName = (String) in.readObject();
+                    if (this.kmeans == null) throw new IllegalStateException("Nessun risultato di clustering da salvare.");
+                    System.out.println("Server: Salvataggio cluster su file '" + fileName + "'...");
+                    this.kmeans.salva(fileName);
+                    out.writeObject("OK");
+                    System.out.println("Server: Salvataggio completato.");
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 3: // Richiesta di caricare risultati da file
+                try {
+                    String fileNameToLoad = (String) in.readObject();
+                    System.out.println("Server: Caricamento cluster da file '" + fileNameToLoad + "'...");
+                    this.kmeans = new QTMiner(fileNameToLoad);
+
+                    out.writeObject("OK");
+                    // Invia la rappresentazione dei cluster caricati
+                    out.writeObject(this.kmeans.getC().toString());
+                     System.out.println("Server: Caricamento da file completato.");
+                } catch (FileNotFoundException e) {
+                    out.writeObject("ERROR: File non trovato sul server. Dettagli: " + e.getMessage());
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 4: // Richiesta di eseguire clustering per più raggi
+                try {
+                    double[] radii = (double[]) in.readObject();
+                    if (this.data == null) throw new IllegalStateException("Nessun dato caricato su cui eseguire il clustering.");
+                    System.out.println("Server: Esecuzione clustering per " + radii.length + " raggi...");
+                    RadiusSweep sweep = new RadiusSweep(radii);
+                    MiningScheduler scheduler = MiningScheduler.getShared();
+                    sweep.setParallelism(scheduler.getParallelism());
+                    CancellationToken token = new CancellationToken();
+                    sweep.setCancellationToken(token);
+                    mine(token, () -> {
+                        sweep.compute(this.data);
+                        return null;
+                    });
+
+                    out.writeObject("OK");
+                    out.writeObject(sweep.size());
+                    for (int k = 0; k < sweep.size(); k++) {
+                        out.writeObject(sweep.getRadius(k));
+                        try {
+                            int numClusters = sweep.getNumberOfClusters(k);
+                            out.writeObject("OK");
+                            out.writeObject(numClusters);
+                            out.writeObject(sweep.getMiner(k).getC().toString(this.data));
+                        } catch (ClusteringRadiusException e) {
+                            out.writeObject("ERROR: " + e.getMessage());
+                        }
+                    }
+                    this.kmeans = sweep.getMiner(sweep.size() - 1);
+                    System.out.println("Server: Clustering per più raggi completato.");
+                } catch (ServerBusyException e) {
+                    reject(e);
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 5: // Richiesta di stimare l'effetto di alcuni raggi
+                try {
+                    double[] radii = (double[]) in.readObject();
+                    if (this.data == null) throw new IllegalStateException("Nessun dato caricato su cui stimare i raggi.");
+                    RadiusAdvisor advisor = new RadiusAdvisor(this.data);
+                    out.writeObject("OK");
+                    out.writeObject(advisor.report(radii));
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 6: // Richiesta di eseguire clustering entro un tempo massimo
+                try {
+                    double radius = (Double) in.readObject();
+                    long timeBudget = (Long) in.readObject();
+                    if (this.data == null) throw new IllegalStateException("Nessun dato caricato su cui eseguire il clustering.");
+                    System.out.println("Server: Esecuzione clustering con raggio " + radius + " entro " + timeBudget + " ms...");
+                    QTMiner miner = new QTMiner(radius);
+                    MiningScheduler scheduler = MiningScheduler.getShared();
+                    miner.setParallelism(scheduler.getParallelism());
+                    // Il tempo massimo decorre dall'inizio del clustering, non dall'ingresso in coda
+                    miner.setTimeBudget(timeBudget);
+                    CancellationToken token = new CancellationToken();
+                    miner.setCancellationToken(token);
+                    Data loaded = this.data;
+                    miner.setClusterListener(c -> {
+                        try {
+                            out.writeObject("CLUSTER");
+                            out.writeObject(c.toString(loaded));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    int numClusters = mine(token, () -> miner.compute(loaded));
+                    this.kmeans = miner;
+
+                    out.writeObject(miner.isPartial() ? "PARTIAL" : "OK");
+                    out.writeObject(numClusters);
+                    out.writeObject(miner.getUnclustered().stream().toArray());
+                    System.out.println("Server: Clustering " + (miner.isPartial() ? "interrotto allo scadere del tempo." : "completato."));
+                } catch (ServerBusyException e) {
+                    reject(e);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 7: // Richiesta dello stato dello scheduler dei clustering
+                out.writeObject("OK");
+                out.writeObject(MiningScheduler.getShared().toString());
+                break;
+
+            case 8: // Richiesta di inviare un clustering asincrono
+                try {
+                    double radius = (Double) in.readObject();
+                    if (this.data == null) throw new IllegalStateException("Nessun dato caricato su cui eseguire il clustering.");
+                    MiningJob job = JobRegistry.getShared().submit(this.data, radius);
+                    out.writeObject("OK");
+                    out.writeObject(job.getId());
+                    System.out.println("Server: Job " + job.getId() + " inviato con raggio " + radius + ".");
+                } catch (ServerBusyException e) {
+                    reject(e);
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 9: // Richiesta dello stato di un job
+                try {
+                    MiningJob job = JobRegistry.getShared().get((Long) in.readObject());
+                    out.writeObject("OK");
+                    out.writeObject(job.getState().name());
+                    out.writeObject(job.getClustersFound());
+                    out.writeObject(job.getRowsClustered());
+                    out.writeObject(job.getNumberOfRows());
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 10: // Richiesta del risultato di un job
+                try {
+                    MiningJob job = JobRegistry.getShared().get((Long) in.readObject());
+                    int numClusters = job.getNumClusters();
+                    this.kmeans = job.getMiner();
+                    out.writeObject("OK");
+                    out.writeObject(numClusters);
+                    out.writeObject(job.getResult());
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            case 11: // Richiesta di annullare un job
+                try {
+                    MiningJob job = JobRegistry.getShared().get((Long) in.readObject());
+                    job.cancel();
+                    out.writeObject("OK");
+                    out.writeObject(job.getState().name());
+                    System.out.println("Server: Job " + job.getId() + " " + job.getState().name() + ".");
+                } catch (Exception e) {
+                    out.writeObject("ERROR: " + e.getMessage());
+                }
+                break;
+
+            default:
+                out.writeObject("ERROR: Codice richiesta non valido.");
+                break;
+        }
+    }
+
+    /**
+     * Esegue un clustering sincrono tramite {@link MiningScheduler}, annullandolo con
+     * {@code token} se il client si disconnette nel frattempo.
+     */
+    private <T> T mine(CancellationToken token, Callable<T> job) throws Exception {
+        running = token;
+        if (disconnected) {
+            token.cancel();
+        }
+        if (monitor != null) {
+            monitor.start(this::disconnected);
+        }
+        try {
+            return MiningScheduler.getShared().run(job, token);
+        } catch (CancellationException e) {
+            System.out.println("Server: Clustering annullato, il client si è disconnesso.");
+            throw e;
+        } finally {
+            if (monitor != null) {
+                monitor.stop();
+            }
+            running = null;
+        }
+    }
+
+    /**
+     * Comunica al client che il clustering richiesto è stato rifiutato perché il server è
+     * occupato, con il tempo suggerito prima di riprovare.
+     */
+    private void reject(ServerBusyException e) throws IOException {
+        System.out.println("Server: Richiesta rifiutata, server occupato (" + MiningScheduler.getShared() + ").");
+        out.writeObject("BUSY");
+        out.writeObject(e.getRetryAfter());
+    }
+}
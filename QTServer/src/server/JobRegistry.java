@@ -0,0 +1,159 @@
+package server;
+
+import data.Data;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * I job di clustering asincroni del server, condivisi da tutte le connessioni.
+ * <p>
+ * Un job è identificato da un numero restituito al client al momento dell'invio e
+ * sopravvive alla connessione che lo ha inviato: il client può riconnettersi e
+ * interrogarne lo stato o ritirarne il risultato con lo stesso identificativo.
+ * </p>
+ * <p>
+ * Un job viene ammesso da {@link MiningScheduler} al momento dell'invio, come i
+ * clustering sincroni: se gli slot e la coda sono pieni l'invio viene rifiutato con una
+ * {@link ServerBusyException}. I job non terminati sono quindi al più quanti gli slot e i
+ * posti in coda, e così i thread dedicati che li eseguono. I job terminati vengono
+ * conservati per {@link #RETENTION} millisecondi, e comunque al più
+ * {@link #MAX_FINISHED}: oltre questo numero vengono eliminati per primi quelli terminati
+ * da più tempo.
+ * </p>
+ *
+ * @see MiningJob
+ * @see ClientSession
+ */
+class JobRegistry {
+
+    /**
+     * Il tempo, in millisecondi, per cui un job terminato resta disponibile.
+     */
+    static final long RETENTION = 10 * 60 * 1000;
+
+    /**
+     * Il numero massimo di job terminati conservati.
+     */
+    static final int MAX_FINISHED = 1000;
+
+    /**
+     * Il registro condiviso da tutte le sessioni del server.
+     */
+    private static final JobRegistry SHARED = new JobRegistry(null);
+
+    /**
+     * Lo scheduler che ammette i job, o {@code null} per lo scheduler condiviso.
+     */
+    private final MiningScheduler scheduler;
+
+    /**
+     * I job inviati e non ancora eliminati, per identificativo.
+     */
+    private final Map<Long, MiningJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * L'identificativo del prossimo job.
+     */
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * I thread che eseguono i job; sono thread demone, per non impedire la terminazione
+     * del server.
+     */
+    private final ExecutorService runners = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "mining-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Costruisce un registro i cui job vengono ammessi da uno scheduler.
+     *
+     * @param scheduler Lo scheduler, o {@code null} per usare quello condiviso al momento
+     * di ogni invio ({@link MiningScheduler#getShared()}).
+     */
+    JobRegistry(MiningScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Restituisce il registro condiviso da tutte le sessioni del server.
+     *
+     * @return Il registro condiviso.
+     */
+    static JobRegistry getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Invia un clustering da eseguire in modo asincrono.
+     *
+     * @param data Il dataset da partizionare.
+     * @param radius Il raggio dei cluster.
+     * @return Il job creato, già in coda.
+     * @throws ServerBusyException se tutti gli slot sono occupati e la coda è piena.
+     * @throws IllegalArgumentException se il raggio non è valido.
+     */
+    MiningJob submit(Data data, double radius) throws ServerBusyException {
+        expire();
+        MiningScheduler admitting = (scheduler != null) ? scheduler : MiningScheduler.getShared();
+        MiningScheduler.Ticket ticket = admitting.admit();
+        try {
+            MiningJob job = new MiningJob(nextId.getAndIncrement(), data, radius,
+                    admitting.getParallelism(), ticket);
+            jobs.put(job.getId(), job);
+            runners.execute(job);
+            return job;
+        } catch (RuntimeException e) {
+            ticket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Restituisce un job inviato in precedenza.
+     *
+     * @param id L'identificativo del job.
+     * @return Il job.
+     * @throws IllegalArgumentException se il job non esiste o è stato eliminato.
+     */
+    MiningJob get(long id) {
+        expire();
+        MiningJob job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Job " + id + " inesistente o scaduto.");
+        }
+        return job;
+    }
+
+    /**
+     * Restituisce il numero di job conservati, terminati o meno.
+     *
+     * @return Il numero di job.
+     */
+    int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Elimina i job terminati da più di {@link #RETENTION} millisecondi e, oltre
+     * {@link #MAX_FINISHED}, quelli terminati da più tempo.
+     */
+    private void expire() {
+        long limit = System.currentTimeMillis() - RETENTION;
+        jobs.values().removeIf(job -> job.getState().isFinished() && job.getFinishedAt() < limit);
+        long excess = jobs.values().stream().filter(job -> job.getState().isFinished()).count() - MAX_FINISHED;
+        if (excess > 0) {
+            jobs.values().stream()
+                    .filter(job -> job.getState().isFinished())
+                    .sorted(Comparator.comparingLong(MiningJob::getFinishedAt))
+                    .limit(excess)
+                    .forEach(job -> jobs.remove(job.getId()));
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package server;
+
+import data.Data;
+import mining.CancellationToken;
+import mining.QTMiner;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un clustering eseguito in modo asincrono rispetto alla connessione che lo ha richiesto.
+ * <p>
+ * Il job viene creato con uno slot o un posto in coda già riservato presso
+ * {@link MiningScheduler}, attende lo slot ({@link State#QUEUED}), esegue il
+ * clustering ({@link State#RUNNING}) e ne conserva il risultato ({@link State#DONE}) o il
+ * messaggio di errore ({@link State#FAILED}), così che possa essere ritirato anche da
+ * un'altra connessione. Durante l'esecuzione tiene il conto dei cluster confermati e
+ * delle righe assegnate, ricevuti come {@link mining.ProgressListener}, e può essere
+ * interrotto con un {@link CancellationToken}.
+ * </p>
+ *
+ * @see JobRegistry
+ */
+class MiningJob implements Runnable {
+
+    /**
+     * Gli stati di un job.
+     */
+    enum State {
+        /** In attesa di uno slot di clustering. */
+        QUEUED,
+        /** Clustering in corso. */
+        RUNNING,
+        /** Clustering completato, risultato disponibile. */
+        DONE,
+        /** Clustering terminato con un errore. */
+        FAILED,
+        /** Job annullato dal client. */
+        CANCELLED;
+
+        boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * L'identificativo del job.
+     */
+    private final long id;
+
+    /**
+     * Il miner che esegue il clustering e ne conserva il risultato.
+     */
+    private final QTMiner miner;
+
+    /**
+     * Il token con cui interrompere il clustering quando il job viene annullato.
+     */
+    private final CancellationToken cancellation = new CancellationToken();
+
+    /**
+     * La prenotazione presso lo scheduler, rilasciata al termine del job.
+     */
+    private final MiningScheduler.Ticket ticket;
+
+    /**
+     * Il numero di righe del dataset.
+     */
+    private final int numberOfRows;
+
+    /**
+     * Il dataset da partizionare, rilasciato al termine del job.
+     */
+    private Data data;
+
+    /**
+     * Il numero di cluster confermati e di righe assegnate fino a questo momento.
+     */
+    private final AtomicInteger clustersFound = new AtomicInteger();
+    private final AtomicInteger rowsClustered = new AtomicInteger();
+
+    /**
+     * Lo stato del job.
+     */
+    private State state = State.QUEUED;
+
+    /**
+     * Il thread che esegue il job, interrotto se il job viene annullato in coda.
+     */
+    private Thread runner;
+
+    /**
+     * Il numero di cluster, la loro descrizione e il messaggio di errore, disponibili al
+     * termine del job.
+     */
+    private int numClusters;
+    private String result;
+    private String error;
+
+    /**
+     * L'istante, in millisecondi, in cui il job è terminato.
+     */
+    private long finishedAt;
+
+    /**
+     * Costruisce un job di clustering.
+     *
+     * @param id L'identificativo del job.
+     * @param data Il dataset da partizionare.
+     * @param radius Il raggio dei cluster.
+     * @param parallelism Il numero di thread di calcolo.
+     * @param ticket La prenotazione presso lo scheduler, che il job rilascia al termine.
+     * @throws IllegalArgumentException se il raggio non è valido.
+     */
+    MiningJob(long id, Data data, double radius, int parallelism, MiningScheduler.Ticket ticket) {
+        this.id = id;
+        this.ticket = ticket;
+        this.data = data;
+        this.numberOfRows = data.getNumberOfExamples();
+        this.miner = new QTMiner(radius);
+        this.miner.setParallelism(parallelism);
+        this.miner.setCancellationToken(cancellation);
+        this.miner.setProgressListener((rows, clusters) -> {
+            rowsClustered.set(rows);
+            clustersFound.set(clusters);
+        });
+    }
+
+    /**
+     * Esegue il clustering non appena lo slot riservato è disponibile.
+     */
+    @Override
+    public void run() {
+        Data loaded;
+        synchronized (this) {
+            if (state != State.QUEUED) {
+                ticket.close(); // Annullato prima di essere avviato
+                return;
+            }
+            runner = Thread.currentThread();
+            loaded = data;
+        }
+        try {
+            int count = ticket.run(() -> {
+                synchronized (this) {
+                    if (state != State.QUEUED) {
+                        throw new CancellationException();
+                    }
+                    state = State.RUNNING;
+                }
+                return miner.compute(loaded);
+            }, cancellation);
+            synchronized (this) {
+                numClusters = count;
+                result = miner.getC().toString(loaded);
+            }
+            finish(State.DONE, null);
+        } catch (CancellationException | InterruptedException e) {
+            finish(State.CANCELLED, null);
+        } catch (Exception e) {
+            finish(State.FAILED, e.getMessage());
+        } finally {
+            synchronized (this) {
+                runner = null;
+            }
+            Thread.interrupted(); // Il thread torna al pool senza l'interruzione dell'annullamento
+        }
+    }
+
+    /**
+     * Annulla il job. Un job in coda non viene eseguito e libera subito il suo posto; un
+     * job in esecuzione viene interrotto alla successiva verifica del
+     * {@link CancellationToken} e libera il suo slot di clustering.
+     *
+     * @return {@code true} se il job è stato annullato, {@code false} se era già terminato.
+     */
+    synchronized boolean cancel() {
+        if (state.isFinished()) {
+            return false;
+        }
+        if (state == State.QUEUED) {
+            if (runner != null) {
+                runner.interrupt(); // Libera il thread in attesa di uno slot
+            } else {
+                ticket.close(); // Il job non è ancora stato avviato
+            }
+        }
+        cancellation.cancel();
+        finish(State.CANCELLED, null);
+        return true;
+    }
+
+    /**
+     * Registra la terminazione del job, a meno che non sia già stato annullato, e
+     * rilascia il dataset.
+     */
+    private synchronized void finish(State outcome, String message) {
+        if (state == State.CANCELLED) {
+            return;
+        }
+        state = outcome;
+        error = message;
+        data = null;
+        finishedAt = System.currentTimeMillis();
+    }
+
+    long getId() {
+        return id;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Restituisce l'istante in cui il job è terminato.
+     *
+     * @return L'istante in millisecondi, o 0 se il job non è terminato.
+     */
+    synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    int getClustersFound() {
+        return clustersFound.get();
+    }
+
+    int getRowsClustered() {
+        return rowsClustered.get();
+    }
+
+    int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Restituisce il miner con il risultato del job, per poterlo salvare su file.
+     *
+     * @return Il miner del job.
+     * @throws IllegalStateException se il job non è terminato con successo.
+     */
+    synchronized QTMiner getMiner() {
+        checkDone();
+        return miner;
+    }
+
+    /**
+     * Restituisce il numero di cluster trovati.
+     *
+     * @return Il numero di cluster.
+     * @throws IllegalStateException se il job non è terminato con successo.
+     */
+    synchronized int getNumClusters() {
+        checkDone();
+        return numClusters;
+    }
+
+    /**
+     * Restituisce la descrizione dei cluster trovati.
+     *
+     * @return La descrizione dei cluster, come nella risposta alla richiesta 1.
+     * @throws IllegalStateException se il job non è terminato con successo.
+     */
+    synchronized String getResult() {
+        checkDone();
+        return result;
+    }
+
+    private void checkDone() {
+        switch (state) {
+            case DONE:
+                return;
+            case FAILED:
+                throw new IllegalStateException("Il job " + id + " è terminato con un errore: " + error);
+            default:
+                throw new IllegalStateException("Il job " + id + " non ha un risultato (stato " + state + ").");
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package server;
+
+import mining.CancellationToken;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita il numero di clustering eseguiti contemporaneamente da tutto il server.
+ * <p>
+ * Ogni clustering occupa uno dei {@code slots} disponibili ed è eseguito dal thread della
+ * sessione che lo ha richiesto, con {@link #getParallelism()} thread di calcolo, così che
+ * i clustering in corso non si contendano più core di quelli disponibili. Le richieste
+ * che trovano tutti gli slot occupati attendono in una coda di capacità limitata, in
+ * ordine di arrivo; quando anche la coda è piena la richiesta viene rifiutata subito con
+ * una {@link ServerBusyException}, che suggerisce quanto attendere prima di riprovare in
+ * base alla durata media dei clustering già completati.
+ * </p>
+ * <p>
+ * L'ammissione ({@link #admit()}) è separata dall'esecuzione ({@link Ticket#run}): chi
+ * riceve un {@link Ticket} ha uno slot o un posto in coda riservato, e può rispondere
+ * subito al client prima di eseguire il clustering su un altro thread. Una richiesta in
+ * coda il cui {@link CancellationToken} viene annullato, per esempio perché il client si
+ * è disconnesso, lascia la coda entro {@link #POLL_INTERVAL} millisecondi.
+ * </p>
+ * <p>
+ * Il numero di richieste in coda, i tempi di attesa e il numero di rifiuti sono
+ * disponibili con {@link #toString()}, per dimensionare gli slot e la coda.
+ * </p>
+ *
+ * @see ClientSession
+ */
+class MiningScheduler {
+
+    /**
+     * Il tempo suggerito prima di riprovare quando non è ancora stato completato alcun
+     * clustering.
+     */
+    private static final long DEFAULT_RETRY_AFTER = 1000;
+
+    /**
+     * L'intervallo, in millisecondi, con cui una richiesta in coda controlla il proprio
+     * {@link CancellationToken}.
+     */
+    static final long POLL_INTERVAL = 100;
+
+    /**
+     * Lo scheduler condiviso da tutte le sessioni del server.
+     */
+    private static MiningScheduler shared;
+
+    /**
+     * Il numero totale di slot.
+     */
+    private final int capacity;
+
+    /**
+     * Il numero massimo di richieste in attesa di uno slot.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Il numero di thread di calcolo di ogni clustering.
+     */
+    private final int parallelism;
+
+    /**
+     * Le richieste in attesa di uno slot, in ordine di arrivo.
+     */
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+
+    /**
+     * Il numero di slot assegnati.
+     */
+    private int occupied;
+
+    /**
+     * Il numero di clustering completati.
+     */
+    private long completed;
+
+    /**
+     * Il numero di richieste rifiutate.
+     */
+    private long rejected;
+
+    /**
+     * La somma e il massimo dei tempi di attesa, in nanosecondi.
+     */
+    private long totalWait;
+    private long maxWait;
+
+    /**
+     * La somma delle durate dei clustering completati, in nanosecondi.
+     */
+    private long totalRun;
+
+    /**
+     * Costruisce uno scheduler che divide i core disponibili tra gli slot.
+     *
+     * @param slots Il numero di clustering eseguibili contemporaneamente (almeno 1).
+     * @param queueCapacity Il numero massimo di richieste in attesa (almeno 0).
+     * @throws IllegalArgumentException se uno dei parametri non è valido.
+     */
+    MiningScheduler(int slots, int queueCapacity) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Il numero di slot deve essere almeno 1: " + slots);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("La capacità della coda non può essere negativa: " + queueCapacity);
+        }
+        this.capacity = slots;
+        this.queueCapacity = queueCapacity;
+        this.parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / slots);
+    }
+
+    /**
+     * Restituisce lo scheduler condiviso da tutte le sessioni del server, creandolo alla
+     * prima invocazione con uno slot ogni quattro core e una coda di 16 richieste.
+     *
+     * @return Lo scheduler condiviso.
+     */
+    static synchronized MiningScheduler getShared() {
+        if (shared == null) {
+            shared = new MiningScheduler(Math.max(1, Runtime.getRuntime().availableProcessors() / 4), 16);
+        }
+        return shared;
+    }
+
+    /**
+     * Sostituisce lo scheduler condiviso; va invocato prima di accettare connessioni.
+     *
+     * @param scheduler Il nuovo scheduler condiviso.
+     */
+    static synchronized void setShared(MiningScheduler scheduler) {
+        shared = scheduler;
+    }
+
+    /**
+     * Restituisce il numero di thread di calcolo con cui eseguire ogni clustering.
+     *
+     * @return Il numero di core diviso per il numero di slot (almeno 1).
+     */
+    int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Restituisce il numero di clustering eseguibili contemporaneamente.
+     *
+     * @return Il numero di slot.
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Restituisce il numero massimo di richieste in attesa di uno slot.
+     *
+     * @return La capacità della coda.
+     */
+    int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Restituisce il numero di slot assegnati, anche a richieste che non hanno ancora
+     * iniziato il clustering.
+     *
+     * @return Il numero di slot occupati.
+     */
+    synchronized int getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Restituisce il numero di richieste in attesa di uno slot.
+     *
+     * @return Il numero di richieste in coda.
+     */
+    synchronized int getWaiting() {
+        return queue.size();
+    }
+
+    /**
+     * Riserva uno slot libero o, se sono tutti occupati, un posto in coda.
+     * <p>
+     * Il {@link Ticket} restituito va eseguito con {@link Ticket#run} o rilasciato con
+     * {@link Ticket#close()}, altrimenti lo slot o il posto in coda restano occupati.
+     * </p>
+     *
+     * @return La prenotazione.
+     * @throws ServerBusyException se tutti gli slot sono occupati e la coda è piena.
+     */
+    synchronized Ticket admit() throws ServerBusyException {
+        Ticket ticket = new Ticket();
+        if (occupied < capacity && queue.isEmpty()) {
+            occupied++;
+            ticket.admitted = true;
+        } else if (queue.size() < queueCapacity) {
+            queue.addLast(ticket);
+        } else {
+            rejected++;
+            throw new ServerBusyException(retryAfter());
+        }
+        return ticket;
+    }
+
+    /**
+     * Esegue un clustering non appena si libera uno slot.
+     *
+     * @param job Il clustering da eseguire sul thread corrente.
+     * @param token Il token con cui la richiesta lascia la coda se viene annullata, o
+     * {@code null}.
+     * @param <T> Il tipo del risultato.
+     * @return Il risultato del clustering.
+     * @throws ServerBusyException se tutti gli slot sono occupati e la coda è piena.
+     * @throws CancellationException se il token viene annullato durante l'attesa.
+     * @throws Exception se il clustering solleva un'eccezione o l'attesa viene interrotta.
+     */
+    <T> T run(Callable<T> job, CancellationToken token) throws Exception {
+        try (Ticket ticket = admit()) {
+            return ticket.run(job, token);
+        }
+    }
+
+    /**
+     * Assegna gli slot liberi alle richieste in coda, in ordine di arrivo.
+     */
+    private void promote() {
+        while (occupied < capacity && !queue.isEmpty()) {
+            Ticket next = queue.pollFirst();
+            occupied++;
+            next.admitted = true;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Stima il tempo necessario perché si liberi uno slot per una nuova richiesta: la
+     * durata media di un clustering per il numero di turni necessari a smaltire la coda.
+     */
+    private synchronized long retryAfter() {
+        if (completed == 0) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        long averageRun = TimeUnit.NANOSECONDS.toMillis(totalRun / completed);
+        return Math.max(1, averageRun * (queue.size() / capacity + 1));
+    }
+
+    /**
+     * Restituisce un resoconto dello stato dello scheduler: slot occupati, richieste in
+     * coda, clustering completati e rifiutati, tempi medio e massimo di attesa.
+     *
+     * @return Il resoconto su una riga.
+     */
+    @Override
+    public synchronized String toString() {
+        long admittedCount = completed + occupied;
+        long averageWait = (admittedCount > 0) ? totalWait / admittedCount : 0;
+        return "slot occupati=" + occupied + "/" + capacity
+                + " in coda=" + queue.size() + "/" + queueCapacity
+                + " completati=" + completed
+                + " rifiutati=" + rejected
+                + " attesa media=" + TimeUnit.NANOSECONDS.toMillis(averageWait) + " ms"
+                + " attesa massima=" + TimeUnit.NANOSECONDS.toMillis(maxWait) + " ms"
+                + " thread per clustering=" + parallelism;
+    }
+
+    /**
+     * Uno slot o un posto in coda riservato da {@link #admit()}.
+     * <p>
+     * Lo stato della prenotazione è protetto dal monitor dello scheduler.
+     * </p>
+     */
+    final class Ticket implements AutoCloseable {
+
+        /**
+         * L'istante, in nanosecondi, in cui la richiesta è stata ammessa.
+         */
+        private final long created = System.nanoTime();
+
+        /**
+         * Indica se alla richiesta è stato assegnato uno slot.
+         */
+        private boolean admitted;
+
+        /**
+         * Indica se lo slot o il posto in coda sono stati rilasciati.
+         */
+        private boolean released;
+
+        private Ticket() {
+        }
+
+        /**
+         * Attende lo slot riservato ed esegue il clustering; al termine rilascia lo slot.
+         * <p>
+         * Durante l'attesa il token viene controllato ogni {@link #POLL_INTERVAL}
+         * millisecondi: se è stato annullato la richiesta lascia la coda.
+         * </p>
+         *
+         * @param job Il clustering da eseguire sul thread corrente.
+         * @param token Il token della richiesta, o {@code null}.
+         * @param <T> Il tipo del risultato.
+         * @return Il risultato del clustering.
+         * @throws CancellationException se il token viene annullato durante l'attesa.
+         * @throws IllegalStateException se la prenotazione è già stata usata o rilasciata.
+         * @throws Exception se il clustering solleva un'eccezione o l'attesa viene
+         * interrotta.
+         */
+        <T> T run(Callable<T> job, CancellationToken token) throws Exception {
+            synchronized (MiningScheduler.this) {
+                if (released) {
+                    throw new IllegalStateException("La prenotazione è già stata utilizzata.");
+                }
+                try {
+                    while (!admitted) {
+                        if (token != null && token.isCancelled()) {
+                            throw new CancellationException("Richiesta annullata durante l'attesa.");
+                        }
+                        MiningScheduler.this.wait(POLL_INTERVAL);
+                    }
+                } catch (CancellationException | InterruptedException e) {
+                    close();
+                    throw e;
+                }
+                long waited = System.nanoTime() - created;
+                totalWait += waited;
+                maxWait = Math.max(maxWait, waited);
+            }
+            long start = System.nanoTime();
+            try {
+                return job.call();
+            } finally {
+                synchronized (MiningScheduler.this) {
+                    completed++;
+                    totalRun += System.nanoTime() - start;
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Rilascia lo slot o il posto in coda, se non è già stato fatto.
+         */
+        @Override
+        public void close() {
+            synchronized (MiningScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (admitted) {
+                    occupied--;
+                    promote();
+                } else {
+                    queue.remove(this);
+                }
+            }
+        }
+    }
+}
@@ -3,18 +3,29 @@ package server;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Gestisce un server multi-threaded in grado di accettare connessioni multiple.
  * <p>
  * Questa classe apre una {@link ServerSocket} su una porta specifica e si mette in
  * ascolto di connessioni client in un ciclo infinito. Per ogni connessione accettata,
- * istanzia e avvia un nuovo thread {@link ServerOneClient} che gestirà la
+ * avvia un nuovo thread che esegue un {@link ServerOneClient}, il quale gestirà la
  * comunicazione con quel singolo client, permettendo al server principale di rimanere
  * disponibile per nuove connessioni.
  * </p>
+ * <p>
+ * In alternativa, ogni {@code ServerOneClient} può essere eseguito su un thread virtuale:
+ * un client in attesa di risposta, per esempio durante il caricamento da database della
+ * richiesta 0 o l'I/O su file delle richieste 2 e 3, non occupa un thread del sistema
+ * operativo. Il codice delle sessioni non usa blocchi {@code synchronized} attorno a
+ * operazioni bloccanti e, dalla versione 24 di Java, nemmeno quelli del driver JDBC
+ * vincolano il thread virtuale al proprio carrier.
+ * </p>
  *
  * @see ServerOneClient
+ * @see SelectorServer
  */
 public class MultiServer {
 
@@ -23,37 +34,60 @@ public class MultiServer {
      */
     private final int PORT;
 
+    /**
+     * Indica se ogni client viene servito da un thread virtuale invece che da un thread
+     * di piattaforma.
+     */
+    private final boolean virtualThreads;
+
     /**
      * Costruisce una nuova istanza di MultiServer.
      *
      * @param port La porta di rete su cui il server accetterà le connessioni.
      */
     public MultiServer(int port) {
+        this(port, false);
+    }
+
+    /**
+     * Costruisce una nuova istanza di MultiServer specificando il tipo di thread con cui
+     * servire i client.
+     *
+     * @param port La porta di rete su cui il server accetterà le connessioni.
+     * @param virtualThreads {@code true} per servire ogni client con un thread virtuale.
+     */
+    public MultiServer(int port, boolean virtualThreads) {
         this.PORT = port;
+        this.virtualThreads = virtualThreads;
     }
 
     /**
      * Avvia il ciclo di vita del server.
      * <p>
      * Apre la {@code ServerSocket} e si mette in un ciclo infinito di attesa ({@code accept()}).
-     * Per ogni richiesta, delega la gestione del client a un nuovo {@code ServerOneClient}.
+     * Per ogni richiesta, delega la gestione del client a un nuovo {@code ServerOneClient},
+     * eseguito su un thread virtuale se richiesto.
      * Gestisce internamente le {@code IOException} sia in fase di avvio del server
      * sia durante l'accettazione di una singola connessione, stampando messaggi di errore
      * senza interrompere il servizio.
      * </p>
      */
     public void run() {
+        ExecutorService connections = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("MultiServer in ascolto sulla porta: " + PORT);
+            System.out.println("MultiServer in ascolto sulla porta: " + PORT
+                    + ((connections != null) ? " (thread virtuali)" : ""));
 
             while (true) {
                 try {
                     Socket clientSocket = serverSocket.accept();
                     System.out.println("Connessione accettata da: " + clientSocket.getInetAddress());
                     // Avvia un nuovo gestore per il client appena connesso.
-                    // Si assume che ServerOneClient estenda Thread o implementi Runnable
-                    // e che il suo costruttore avvii il thread.
-                    new ServerOneClient(clientSocket);
+                    if (connections != null) {
+                        new ServerOneClient(clientSocket, connections);
+                    } else {
+                        new ServerOneClient(clientSocket);
+                    }
                 } catch (IOException e) {
                     System.err.println("Errore: Impossibile accettare la connessione client. " + e.getMessage());
                     // Il ciclo continua per poter accettare i client successivi.
@@ -62,18 +96,27 @@ public class MultiServer {
         } catch (IOException e) {
             System.err.println("Errore fatale: Impossibile avviare il server sulla porta " + PORT + ". " + e.getMessage());
             // Se la ServerSocket non può essere creata, l'applicazione termina.
+        } finally {
+            if (connections != null) {
+                connections.shutdown();
+            }
         }
     }
 
     /**
      * Punto di ingresso principale per l'applicazione server.
      * <p>
-     * Analizza gli argomenti della riga di comando per determinare la porta,
-     * istanzia e avvia il {@code MultiServer}.
+     * Analizza gli argomenti della riga di comando per determinare la porta e la
+     * modalità, istanzia e avvia il server: {@code MultiServer}, con un thread per
+     * connessione (su thread virtuali con la modalità {@code virtual}), oppure
+     * {@link SelectorServer} con la modalità {@code nio}.
      * </p>
      *
      * @param args Argomenti della riga di comando. Se fornito, {@code args[0]} dovrebbe
-     * contenere il numero di porta da utilizzare.
+     * contenere il numero di porta da utilizzare e {@code args[1]} la modalità
+     * ({@code thread}, default, {@code virtual} oppure {@code nio}). {@code args[2]} e
+     * {@code args[3]}, se forniti, indicano il numero di clustering contemporanei e la
+     * capacità della coda di attesa di {@link MiningScheduler}.
      */
     public static void main(String[] args) {
         // Imposta una porta di default nel caso non venga fornita.
@@ -85,6 +128,28 @@ public class MultiServer {
                 System.err.println("Argomento porta '" + args[0] + "' non valido. Utilizzo della porta di default 8080.");
             }
         }
-        new MultiServer(port).run();
+        if (args.length > 3) {
+            try {
+                MiningScheduler.setShared(new MiningScheduler(Integer.parseInt(args[2]), Integer.parseInt(args[3])));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Parametri dello scheduler non validi: " + e.getMessage() + ". Utilizzo dei valori di default.");
+            }
+        }
+        String mode = (args.length > 1) ? args[1] : "thread";
+        switch (mode) {
+            case "nio":
+                new SelectorServer(port).run();
+                break;
+            case "virtual":
+                new MultiServer(port, true).run();
+                break;
+            case "thread":
+                new MultiServer(port).run();
+                break;
+            default:
+                System.err.println("Modalità '" + mode + "' non valida. Utilizzo della modalità di default thread.");
+                new MultiServer(port).run();
+                break;
+        }
     }
 }
\ No newline at end of file
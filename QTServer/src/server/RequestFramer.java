@@ -0,0 +1,446 @@
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static java.io.ObjectStreamConstants.*;
+
+/**
+ * Riconosce nei byte ricevuti da una connessione le richieste complete, senza
+ * deserializzarle.
+ * <p>
+ * Il client invia con un {@link java.io.ObjectOutputStream} il codice di ogni richiesta
+ * ({@code Integer}) seguito dai suoi parametri ({@link ClientSession#parameterCount(int)}).
+ * Il thread del selettore accoda i byte ricevuti e ne segue la grammatica della
+ * serializzazione Java (descrittori di classe, riferimenti agli oggetti già trasmessi,
+ * stringhe, array, dati a blocchi); i byte vengono consegnati al worker soltanto quando
+ * una richiesta è arrivata per intero, così che la deserializzazione non debba mai
+ * attendere il client. Un oggetto incompleto viene analizzato di nuovo all'arrivo di
+ * altri byte: la dimensione di una richiesta è limitata a {@link #MAX_REQUEST_SIZE} byte.
+ * </p>
+ * <p>
+ * Non è thread-safe: viene usato soltanto dal thread del selettore della connessione.
+ * </p>
+ *
+ * @see ChannelConnection
+ */
+class RequestFramer {
+
+    /**
+     * La dimensione massima, in byte, di una richiesta non ancora completa.
+     */
+    static final int MAX_REQUEST_SIZE = 1024 * 1024;
+
+    /**
+     * Il valore registrato per gli oggetti di cui non serve conoscere il contenuto.
+     */
+    private static final Object OBJECT = new Object();
+
+    /**
+     * I byte ricevuti e non ancora consegnati.
+     */
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    /**
+     * Indica se l'intestazione dello stream è già stata riconosciuta.
+     */
+    private boolean header;
+
+    /**
+     * Gli oggetti a cui lo stream può fare riferimento, nell'ordine in cui sono stati
+     * trasmessi: descrittori di classe, valori dei codici di richiesta o {@link #OBJECT}.
+     */
+    private ArrayList<Object> handles = new ArrayList<>();
+
+    /**
+     * La posizione dell'analisi in corso.
+     */
+    private int position;
+
+    /**
+     * Accoda dei byte ricevuti e restituisce quelli delle richieste diventate complete.
+     *
+     * @param bytes I byte ricevuti.
+     * @param count Il numero di byte ricevuti.
+     * @return I byte di zero o più richieste complete, nell'ordine di arrivo, preceduti
+     * alla prima richiesta dall'intestazione dello stream.
+     * @throws StreamCorruptedException se i byte non rispettano la grammatica della
+     * serializzazione o una richiesta supera {@link #MAX_REQUEST_SIZE} byte.
+     */
+    byte[] append(byte[] bytes, int count) throws StreamCorruptedException {
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + count, 2 * buffer.length));
+        }
+        System.arraycopy(bytes, 0, buffer, length, count);
+        length += count;
+
+        int complete = 0;
+        while (true) {
+            // Un azzeramento sostituisce la tabella, per cui basta ripristinarne la lunghezza
+            ArrayList<Object> table = handles;
+            int size = table.size();
+            position = complete;
+            try {
+                if (!header && (u2() != (STREAM_MAGIC & 0xFFFF) || u2() != STREAM_VERSION)) {
+                    throw new StreamCorruptedException("Intestazione dello stream non valida.");
+                }
+                readRequest();
+                header = true;
+            } catch (Underflow e) {
+                table.subList(size, table.size()).clear();
+                handles = table;
+                checkSize(length - complete);
+                break;
+            }
+            checkSize(position - complete);
+            complete = position;
+        }
+        byte[] requests = Arrays.copyOf(buffer, complete);
+        System.arraycopy(buffer, complete, buffer, 0, length - complete);
+        length -= complete;
+        return requests;
+    }
+
+    /**
+     * Analizza il codice di una richiesta e i suoi parametri.
+     */
+    private void readRequest() throws StreamCorruptedException {
+        Object code = readTopLevel();
+        // Un codice che non è un Integer viene consegnato da solo: il worker lo rifiuterà
+        int parameters = (code instanceof Integer) ? ClientSession.parameterCount((Integer) code) : 0;
+        for (int k = 0; k < parameters; k++) {
+            readTopLevel();
+        }
+    }
+
+    /**
+     * Analizza un elemento dello stream al livello più esterno, preceduto da eventuali
+     * azzeramenti della tabella degli oggetti, ammessi soltanto a questo livello.
+     */
+    private Object readTopLevel() throws StreamCorruptedException {
+        while (peek() == TC_RESET) {
+            position++;
+            handles = new ArrayList<>();
+        }
+        return readContent();
+    }
+
+    /**
+     * Analizza un oggetto o un blocco di dati primitivi.
+     */
+    private Object readContent() throws StreamCorruptedException {
+        switch (peek()) {
+            case TC_BLOCKDATA:
+                position++;
+                skip(u1());
+                return null;
+            case TC_BLOCKDATALONG:
+                position++;
+                skip(s4());
+                return null;
+            default:
+                return readObject();
+        }
+    }
+
+    /**
+     * Analizza un oggetto.
+     *
+     * @return Il valore di un {@code Integer}, il descrittore di una classe o
+     * {@link #OBJECT}.
+     */
+    private Object readObject() throws StreamCorruptedException {
+        int tc = u1();
+        switch (tc) {
+            case TC_NULL:
+                return null;
+            case TC_REFERENCE:
+                return reference(s4());
+            case TC_CLASSDESC:
+            case TC_PROXYCLASSDESC:
+                position--;
+                return readClassDesc();
+            case TC_STRING:
+                handles.add(OBJECT);
+                skip(u2());
+                return OBJECT;
+            case TC_LONGSTRING:
+                handles.add(OBJECT);
+                skip(s8());
+                return OBJECT;
+            case TC_CLASS:
+                readClassDesc();
+                handles.add(OBJECT);
+                return OBJECT;
+            case TC_ENUM:
+                readClassDesc();
+                handles.add(OBJECT);
+                readObject(); // Il nome della costante
+                return OBJECT;
+            case TC_ARRAY:
+                return readArray();
+            case TC_OBJECT:
+                return readOrdinaryObject();
+            case TC_EXCEPTION:
+                handles = new ArrayList<>();
+                readObject();
+                handles = new ArrayList<>();
+                return OBJECT;
+            default:
+                throw new StreamCorruptedException(String.format("Codice di tipo non valido: %02X", tc));
+        }
+    }
+
+    /**
+     * Analizza un descrittore di classe, un riferimento a un descrittore o {@code null}.
+     */
+    private ClassDesc readClassDesc() throws StreamCorruptedException {
+        int tc = u1();
+        switch (tc) {
+            case TC_NULL:
+                return null;
+            case TC_REFERENCE: {
+                Object desc = reference(s4());
+                if (!(desc instanceof ClassDesc)) {
+                    throw new StreamCorruptedException("Il riferimento non indica un descrittore di classe.");
+                }
+                return (ClassDesc) desc;
+            }
+            case TC_CLASSDESC: {
+                String name = utf();
+                skip(8); // serialVersionUID
+                ClassDesc desc = new ClassDesc(name);
+                handles.add(desc);
+                desc.flags = u1();
+                int fields = u2();
+                desc.types = new char[fields];
+                for (int k = 0; k < fields; k++) {
+                    desc.types[k] = (char) u1();
+                    skip(u2()); // Il nome del campo
+                    if (desc.types[k] == '[' || desc.types[k] == 'L') {
+                        readObject(); // Il nome della classe del campo
+                    }
+                }
+                skipAnnotation();
+                desc.superDesc = readClassDesc();
+                return desc;
+            }
+            case TC_PROXYCLASSDESC: {
+                ClassDesc desc = new ClassDesc(null);
+                handles.add(desc);
+                desc.flags = SC_SERIALIZABLE;
+                desc.types = new char[0];
+                int interfaces = s4();
+                for (int k = 0; k < interfaces; k++) {
+                    skip(u2());
+                }
+                skipAnnotation();
+                desc.superDesc = readClassDesc();
+                return desc;
+            }
+            default:
+                throw new StreamCorruptedException(String.format("Descrittore di classe non valido: %02X", tc));
+        }
+    }
+
+    /**
+     * Analizza un array.
+     */
+    private Object readArray() throws StreamCorruptedException {
+        ClassDesc desc = readClassDesc();
+        if (desc == null || desc.name == null || desc.name.length() < 2 || desc.name.charAt(0) != '[') {
+            throw new StreamCorruptedException("Descrittore di array non valido.");
+        }
+        handles.add(OBJECT);
+        int size = s4();
+        if (size < 0) {
+            throw new StreamCorruptedException("Dimensione di array non valida: " + size);
+        }
+        char type = desc.name.charAt(1);
+        if (type == '[' || type == 'L') {
+            for (int k = 0; k < size; k++) {
+                readObject();
+            }
+        } else {
+            skip((long) size * width(type));
+        }
+        return OBJECT;
+    }
+
+    /**
+     * Analizza un oggetto serializzabile o esternalizzabile, con i dati di ogni classe
+     * della gerarchia a partire dalla superclasse.
+     */
+    private Object readOrdinaryObject() throws StreamCorruptedException {
+        ClassDesc desc = readClassDesc();
+        if (desc == null) {
+            throw new StreamCorruptedException("Oggetto senza descrittore di classe.");
+        }
+        int handle = handles.size();
+        handles.add(OBJECT);
+        ArrayList<ClassDesc> hierarchy = new ArrayList<>();
+        for (ClassDesc d = desc; d != null; d = d.superDesc) {
+            hierarchy.add(0, d);
+        }
+        Object value = OBJECT;
+        for (ClassDesc d : hierarchy) {
+            if ((d.flags & SC_EXTERNALIZABLE) != 0) {
+                if ((d.flags & SC_BLOCK_DATA) == 0) {
+                    throw new StreamCorruptedException("Protocollo di esternalizzazione non supportato: " + d.name);
+                }
+                skipAnnotation();
+                continue;
+            }
+            boolean integer = "java.lang.Integer".equals(d.name) && d.types.length == 1 && d.types[0] == 'I';
+            for (char type : d.types) {
+                if (integer) {
+                    value = s4();
+                } else if (type == '[' || type == 'L') {
+                    readObject();
+                } else {
+                    skip(width(type));
+                }
+            }
+            if ((d.flags & SC_WRITE_METHOD) != 0) {
+                skipAnnotation();
+            }
+        }
+        handles.set(handle, value);
+        return value;
+    }
+
+    /**
+     * Salta gli elementi che seguono i dati di una classe, fino a {@code TC_ENDBLOCKDATA}.
+     */
+    private void skipAnnotation() throws StreamCorruptedException {
+        while (peek() != TC_ENDBLOCKDATA) {
+            readContent();
+        }
+        position++;
+    }
+
+    private Object reference(int handle) throws StreamCorruptedException {
+        int index = handle - baseWireHandle;
+        if (index < 0 || index >= handles.size()) {
+            throw new StreamCorruptedException("Riferimento non valido: " + Integer.toHexString(handle));
+        }
+        return handles.get(index);
+    }
+
+    private static int width(char type) throws StreamCorruptedException {
+        switch (type) {
+            case 'B':
+            case 'Z':
+                return 1;
+            case 'C':
+            case 'S':
+                return 2;
+            case 'I':
+            case 'F':
+                return 4;
+            case 'J':
+            case 'D':
+                return 8;
+            default:
+                throw new StreamCorruptedException("Tipo di campo non valido: " + type);
+        }
+    }
+
+    private static void checkSize(int size) throws StreamCorruptedException {
+        if (size > MAX_REQUEST_SIZE) {
+            throw new StreamCorruptedException("Richiesta troppo grande: oltre " + MAX_REQUEST_SIZE + " byte.");
+        }
+    }
+
+    private void require(long count) {
+        if (count > length - position) {
+            throw Underflow.INSTANCE;
+        }
+    }
+
+    private int peek() {
+        require(1);
+        return buffer[position] & 0xFF;
+    }
+
+    private int u1() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    private int u2() {
+        require(2);
+        int value = ((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF);
+        position += 2;
+        return value;
+    }
+
+    private int s4() {
+        require(4);
+        int value = 0;
+        for (int k = 0; k < 4; k++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    private long s8() {
+        long high = s4() & 0xFFFFFFFFL;
+        return (high << 32) | (s4() & 0xFFFFFFFFL);
+    }
+
+    private void skip(long count) throws StreamCorruptedException {
+        if (count < 0) {
+            throw new StreamCorruptedException("Lunghezza non valida: " + count);
+        }
+        require(count);
+        position += (int) count;
+    }
+
+    private String utf() throws StreamCorruptedException {
+        int start = position;
+        skip(u2());
+        try {
+            return new DataInputStream(new ByteArrayInputStream(buffer, start, position - start)).readUTF();
+        } catch (IOException e) {
+            throw new StreamCorruptedException("Nome di classe non valido.");
+        }
+    }
+
+    /**
+     * Un descrittore di classe: il nome, i flag e i tipi dei campi serializzati.
+     */
+    private static class ClassDesc {
+
+        private final String name;
+
+        private int flags;
+
+        private char[] types;
+
+        private ClassDesc superDesc;
+
+        ClassDesc(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Segnala che l'elemento analizzato non è ancora arrivato per intero.
+     */
+    private static class Underflow extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Underflow INSTANCE = new Underflow();
+
+        private Underflow() {
+            super(null, null, false, false);
+        }
+    }
+}
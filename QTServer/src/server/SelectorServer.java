@@ -0,0 +1,217 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server alternativo a {@link MultiServer} che serve tutte le connessioni con pochi
+ * thread.
+ * <p>
+ * Invece di dedicare un thread bloccato in lettura a ogni client, le connessioni accettate
+ * vengono distribuite tra alcuni thread di I/O, ciascuno con il proprio {@link Selector},
+ * che leggono e scrivono i canali in modalità non bloccante. Le richieste vengono
+ * elaborate su un pool di worker di dimensione fissa, soltanto quando il client ha inviato
+ * una richiesta completa ({@link ChannelConnection}): centinaia di connessioni inattive, o
+ * client lenti a trasmettere, non occupano alcun thread. Il protocollo e il significato delle richieste sono gli stessi di
+ * {@link ServerOneClient} ({@link ClientSession}).
+ * </p>
+ *
+ * @see MultiServer
+ * @see ChannelConnection
+ */
+public class SelectorServer {
+
+    /**
+     * La dimensione del buffer con cui ogni thread di I/O legge i canali.
+     */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * La porta di rete sulla quale il server rimane in ascolto.
+     */
+    private final int PORT;
+
+    /**
+     * Il numero di thread di I/O.
+     */
+    private final int ioThreads;
+
+    /**
+     * Il numero di worker che elaborano le richieste.
+     */
+    private final int workerThreads;
+
+    /**
+     * Costruisce un server con un thread di I/O e un worker per ogni clustering che
+     * {@link MiningScheduler} può eseguire o tenere in coda, più uno per ogni core.
+     * <p>
+     * Un worker resta occupato per tutto un clustering sincrono, attesa in coda compresa,
+     * o per il caricamento di un dataset: così anche con slot e coda pieni restano
+     * worker liberi per le altre richieste, che altrimenti attenderebbero la fine di un
+     * clustering. Lo scheduler condiviso va quindi configurato prima di costruire il
+     * server.
+     * </p>
+     *
+     * @param port La porta di rete su cui il server accetterà le connessioni.
+     */
+    public SelectorServer(int port) {
+        this(port, 1, defaultWorkerThreads());
+    }
+
+    /**
+     * Costruisce un server con il numero di thread specificato.
+     *
+     * @param port La porta di rete su cui il server accetterà le connessioni.
+     * @param ioThreads Il numero di thread di I/O (almeno 1).
+     * @param workerThreads Il numero di worker che elaborano le richieste (almeno 1).
+     * @throws IllegalArgumentException se uno dei due numeri di thread è minore di 1.
+     */
+    public SelectorServer(int port, int ioThreads, int workerThreads) {
+        if (ioThreads < 1 || workerThreads < 1) {
+            throw new IllegalArgumentException("Il numero di thread deve essere almeno 1: " + ioThreads + ", " + workerThreads);
+        }
+        this.PORT = port;
+        this.ioThreads = ioThreads;
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * Restituisce il numero predefinito di worker: gli slot e i posti in coda dello
+     * scheduler condiviso più il numero di core.
+     */
+    private static int defaultWorkerThreads() {
+        MiningScheduler scheduler = MiningScheduler.getShared();
+        return scheduler.getCapacity() + scheduler.getQueueCapacity() + Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Avvia il ciclo di vita del server.
+     * <p>
+     * Avvia i thread di I/O e si mette in un ciclo infinito di attesa delle connessioni,
+     * assegnando ogni connessione accettata a uno dei thread di I/O a turno. Come in
+     * {@link MultiServer#run()}, gli errori vengono stampati senza interrompere il servizio.
+     * </p>
+     */
+    public void run() {
+        ExecutorService workers = Executors.newFixedThreadPool(workerThreads);
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(PORT));
+            IoLoop[] loops = new IoLoop[ioThreads];
+            for (int k = 0; k < ioThreads; k++) {
+                loops[k] = new IoLoop(Selector.open(), workers);
+                Thread thread = new Thread(loops[k], "selector-" + k);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            System.out.println("SelectorServer in ascolto sulla porta: " + PORT
+                    + " (" + ioThreads + " thread di I/O, " + workerThreads + " worker)");
+
+            for (int next = 0; ; next = (next + 1) % ioThreads) {
+                try {
+                    SocketChannel channel = server.accept();
+                    System.out.println("Connessione accettata da: " + channel.getRemoteAddress());
+                    loops[next].register(channel);
+                } catch (IOException e) {
+                    System.err.println("Errore: Impossibile accettare la connessione client. " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Errore fatale: Impossibile avviare il server sulla porta " + PORT + ". " + e.getMessage());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Un thread di I/O: registra i canali assegnati presso il proprio selettore, legge i
+     * byte ricevuti e trasmette le risposte accodate dai worker.
+     */
+    private static class IoLoop implements Runnable {
+
+        /**
+         * Il selettore dei canali serviti da questo thread.
+         */
+        private final Selector selector;
+
+        /**
+         * Il pool su cui elaborare le richieste.
+         */
+        private final ExecutorService workers;
+
+        /**
+         * I canali accettati e non ancora registrati presso il selettore.
+         */
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+
+        IoLoop(Selector selector, ExecutorService workers) {
+            this.selector = selector;
+            this.workers = workers;
+        }
+
+        /**
+         * Affida un canale appena accettato a questo thread.
+         */
+        void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (true) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    System.err.println("Errore fatale del selettore: " + e.getMessage());
+                    return;
+                }
+
+                for (SocketChannel channel; (channel = accepted.poll()) != null; ) {
+                    try {
+                        channel.configureBlocking(false);
+                        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                        key.attach(new ChannelConnection(channel, key, workers));
+                    } catch (IOException e) {
+                        System.err.println("Errore: Impossibile registrare la connessione client. " + e.getMessage());
+                        try {
+                            channel.close();
+                        } catch (IOException ignored) {
+                            // Il canale è comunque inutilizzabile
+                        }
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ChannelConnection connection = (ChannelConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read(buffer);
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    } catch (RuntimeException e) {
+                        // Chiave annullata da un worker durante l'elaborazione
+                        connection.close();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package server;
+
+/**
+ * Eccezione sollevata da {@link MiningScheduler} quando tutti gli slot di clustering sono
+ * occupati e la coda di attesa è piena.
+ * <p>
+ * Porta con sé il tempo suggerito prima di ripetere la richiesta, che il server
+ * comunica al client.
+ * </p>
+ */
+public class ServerBusyException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Il tempo suggerito, in millisecondi, prima di ripetere la richiesta.
+     */
+    private final long retryAfter;
+
+    /**
+     * Costruisce l'eccezione con il tempo suggerito prima di riprovare.
+     *
+     * @param retryAfter Il tempo suggerito, in millisecondi.
+     */
+    public ServerBusyException(long retryAfter) {
+        super("Server occupato: riprovare tra " + retryAfter + " ms.");
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Restituisce il tempo suggerito prima di ripetere la richiesta.
+     *
+     * @return Il tempo in millisecondi.
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,27 +1,41 @@
 package server;
 
-import data.Data;
-import mining.QTMiner;
-
-import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Gestisce la sessione di comunicazione con un singolo client in un thread dedicato.
  * <p>
- * Questa classe è un "worker thread" istanziato da {@link MultiServer} per ogni
- * connessione client accettata. Ascolta le richieste del client in un ciclo,
+ * Questa classe è l'attività istanziata da {@link MultiServer} per ogni connessione
+ * client accettata. Ascolta le richieste del client in un ciclo,
  * le elabora e invia le risposte. La comunicazione si basa su un protocollo
  * a codici interi (request code) inviati dal client.
  * </p>
+ * <p>
+ * Per default ogni sessione viene eseguita da un thread di piattaforma avviato dal
+ * costruttore; in alternativa la sessione può essere eseguita da un {@link Executor}, per esempio su un
+ * thread virtuale per connessione (vedi {@link MultiServer}).
+ * </p>
+ * <p>
+ * Mentre la sessione esegue un clustering il thread non legge dal socket; un'attività di
+ * controllo, eseguita dallo stesso executor della sessione, legge nel frattempo i byte del
+ * client ({@link MonitoredInput}), così che la chiusura della connessione annulli il
+ * clustering.
+ * </p>
  *
  * @see MultiServer
+ * @see ClientSession
  */
-public class ServerOneClient extends Thread {
+public final class ServerOneClient implements Runnable {
 
     /**
      * Il socket di comunicazione specifico per questo client.
@@ -30,28 +44,29 @@ public class ServerOneClient extends Thread {
     /**
      * Lo stream per ricevere oggetti (richieste) dal client.
      */
-    private final ObjectInputStream in;
+    private ObjectInputStream in;
     /**
      * Lo stream per inviare oggetti (risposte) al client.
      */
-    private final ObjectOutputStream out;
+    private ObjectOutputStream out;
 
     /**
-     * Il dataset attualmente caricato in memoria (es. da una tabella di database).
-     * Questo stato viene mantenuto per tutta la durata della sessione del client.
+     * Lo stato della sessione e l'elaborazione delle richieste del client.
      */
-    private Data data;
+    private ClientSession session;
+
     /**
-     * L'istanza del miner che contiene il risultato di un'operazione di clustering.
-     * Viene riutilizzato per operazioni successive, come il salvataggio su file.
+     * L'executor su cui viene controllata la connessione durante un clustering: lo stesso
+     * che esegue la sessione, o un thread di piattaforma per controllo se la sessione è
+     * un thread dedicato.
      */
-    private QTMiner kmeans;
+    private final Executor monitors;
 
     /**
      * Costruisce e avvia un nuovo thread per gestire la comunicazione con un client.
      * <p>
      * Inizializza gli stream di input/output a partire dal socket fornito e avvia
-     * immediatamente il thread chiamando {@code this.start()}.
+     * immediatamente un thread che esegue {@link #run()}.
      * </p>
      *
      * @param s Il socket che rappresenta la connessione al client,
@@ -60,25 +75,51 @@ public class ServerOneClient extends Thread {
      */
     public ServerOneClient(Socket s) throws IOException {
         this.socket = s;
+        this.monitors = task -> {
+            Thread probe = new Thread(task, "monitor-" + s.getPort());
+            probe.setDaemon(true);
+            probe.start();
+        };
+        openStreams();
+        new Thread(this, "client-" + s.getPort()).start();
+    }
+
+    /**
+     * Costruisce una sessione per un client e ne affida l'esecuzione a un {@link Executor},
+     * invece di avviarla come thread.
+     * <p>
+     * Gli stream vengono inizializzati dal thread dell'executor, per cui un client lento a
+     * inviare l'intestazione dello stream non blocca il thread che accetta le connessioni.
+     * </p>
+     *
+     * @param s Il socket che rappresenta la connessione al client.
+     * @param executor L'executor che esegue la sessione, per esempio con un thread virtuale
+     * per ogni connessione.
+     */
+    ServerOneClient(Socket s, Executor executor) {
+        this.socket = s;
+        this.monitors = executor;
+        executor.execute(this);
+    }
+
+    /**
+     * Inizializza gli stream di input/output e la sessione a partire dal socket.
+     */
+    private void openStreams() throws IOException {
         this.out = new ObjectOutputStream(socket.getOutputStream());
         this.out.flush();
-        this.in = new ObjectInputStream(socket.getInputStream());
-        System.out.println("[SERVER-THREAD] Stream per il client " + s.getInetAddress() + " inizializzati.");
-        this.start();
+        MonitoredInput input = new MonitoredInput(socket.getInputStream());
+        this.in = new ObjectInputStream(input);
+        this.session = new ClientSession(in, out, input);
+        System.out.println("[SERVER-THREAD] Stream per il client " + socket.getInetAddress() + " inizializzati.");
     }
 
     /**
-     * Esegue il ciclo di vita principale del thread, gestendo le richieste del client.
+     * Esegue il ciclo di vita principale della sessione, gestendo le richieste del client.
      * <p>
-     * Si mette in un ciclo infinito in attesa di ricevere un codice intero dal client.
-     * A seconda del codice ricevuto, esegue una delle seguenti operazioni:
-     * <ul>
-     * <li><b>0:</b> Carica un dataset da una tabella di un database.</li>
-     * <li><b>1:</b> Esegue l'algoritmo di clustering (QTMiner) sul dataset in memoria.</li>
-     * <li><b>2:</b> Salva il risultato del clustering su un file.</li>
-     * <li><b>3:</b> Carica un risultato di clustering pre-calcolato da un file.</li>
-     * </ul>
-     * Il ciclo termina e il thread si arresta quando il client chiude la connessione,
+     * Si mette in un ciclo infinito in attesa di ricevere un codice intero dal client e
+     * delega l'elaborazione di ogni richiesta a {@link ClientSession#handle(int)}.
+     * Il ciclo termina quando il client chiude la connessione,
      * causando una {@link java.net.SocketException}. Il blocco {@code finally} assicura che
      * il socket venga sempre chiuso correttamente.
      * </p>
@@ -86,74 +127,12 @@ public class ServerOneClient extends Thread {
     @Override
     public void run() {
         try {
+            if (session == null) {
+                openStreams();
+            }
             while (true) {
                 int requestCode = (Integer) in.readObject();
-                System.out.println("Server: Ricevuta richiesta [" + requestCode + "]");
-
-                switch (requestCode) {
-                    case 0: // Richiesta di caricare dati da DB
-                        try {
-                            String tableName = (String) in.readObject();
-                            System.out.println("Server: Caricamento dati da tabella '" + tableName + "'...");
-                            this.data = new Data(tableName);
-                            out.writeObject("OK");
-                            System.out.println("Server: Dati caricati con successo.");
-                        } catch (Exception e) {
-                            out.writeObject("ERROR: " + e.getMessage());
-                        }
-                        break;
-
-                    case 1: // Richiesta di eseguire clustering
-                        try {
-                            if (this.data == null) throw new IllegalStateException("Nessun dato caricato su cui eseguire il clustering.");
-                            double radius = (Double) in.readObject();
-                            System.out.println("Server: Esecuzione clustering con raggio " + radius + "...");
-                            this.kmeans = new QTMiner(radius);
-                            int numClusters = kmeans.compute(this.data);
-
-                            out.writeObject("OK");
-                            out.writeObject(numClusters);
-                            out.writeObject(kmeans.getC().toString(this.data));
-                            System.out.println("Server: Clustering completato.");
-                        } catch (Exception e) {
-                            out.writeObject("ERROR: " + e.getMessage());
-                        }
-                        break;
-
-                    case 2: // Richiesta di salvare i risultati su file
-                        try {
-                            if (this.kmeans == null) throw new IllegalStateException("Nessun risultato di clustering da salvare.");
-                            String fileName = (String) in.readObject();
-                            System.out.println("Server: Salvataggio cluster su file '" + fileName + "'...");
-                            this.kmeans.salva(fileName);
-                            out.writeObject("OK");
-                            System.out.println("Server: Salvataggio completato.");
-                        } catch (Exception e) {
-                            out.writeObject("ERROR: " + e.getMessage());
-                        }
-                        break;
-
-                    case 3: // Richiesta di caricare risultati da file
-                        try {
-                            String fileNameToLoad = (String) in.readObject();
-                            System.out.println("Server: Caricamento cluster da file '" + fileNameToLoad + "'...");
-                            this.kmeans = new QTMiner(fileNameToLoad);
-
-                            out.writeObject("OK");
-                            // Invia la rappresentazione dei cluster caricati
-                            out.writeObject(this.kmeans.getC().toString());
-                             System.out.println("Server: Caricamento da file completato.");
-                        } catch (FileNotFoundException e) {
-                            out.writeObject("ERROR: File non trovato sul server. Dettagli: " + e.getMessage());
-                        } catch (Exception e) {
-                            out.writeObject("ERROR: " + e.getMessage());
-                        }
-                        break;
-
-                    default:
-                        out.writeObject("ERROR: Codice richiesta non valido.");
-                        break;
-                }
+                session.handle(requestCode);
             }
         } catch (SocketException e) {
             // Eccezione normale che si verifica quando il client chiude la connessione.
@@ -170,4 +149,199 @@ public class ServerOneClient extends Thread {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Lo stream da cui la sessione legge le richieste, che durante un clustering viene
+     * letto in anticipo da un'attività di controllo per accorgersi della chiusura della
+     * connessione.
+     * <p>
+     * L'attività di controllo, eseguita da {@link #monitors}, accumula i byte ricevuti
+     * (al più {@link #LOOKAHEAD_CAPACITY}) finché la sessione controlla la connessione,
+     * anche quando il client invia in anticipo la richiesta successiva; la sessione li
+     * legge prima di tornare a leggere dal socket, e attende che il controllo sia terminato
+     * prima di farlo, per cui il socket non viene mai letto da due thread insieme. A fine
+     * clustering il controllo termina entro {@link #POLL_INTERVAL} millisecondi.
+     * </p>
+     */
+    private class MonitoredInput extends FilterInputStream implements ClientSession.ConnectionMonitor {
+
+        /**
+         * L'intervallo, in millisecondi, con cui l'attività di controllo verifica se il
+         * clustering è terminato.
+         */
+        private static final int POLL_INTERVAL = 200;
+
+        /**
+         * Il numero massimo di byte letti in anticipo: raggiunto il limite il controllo
+         * termina, perché un client che continua a inviare dati è ancora connesso.
+         */
+        private static final int LOOKAHEAD_CAPACITY = 64 * 1024;
+
+        /**
+         * I byte letti in anticipo, nelle posizioni da {@link #head} a {@link #tail}.
+         */
+        private byte[] lookahead = new byte[0];
+        private int head;
+        private int tail;
+
+        /**
+         * Indica se l'attività di controllo ha letto la fine dello stream.
+         */
+        private boolean eof;
+
+        /**
+         * Indica se la sessione ha chiesto di controllare la connessione.
+         */
+        private boolean watching;
+
+        /**
+         * Indica se l'attività di controllo sta leggendo dal socket.
+         */
+        private boolean probing;
+
+        MonitoredInput(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized void start(Runnable onClose) {
+            watching = true;
+            if (eof) {
+                onClose.run(); // Il client si era già disconnesso
+                return;
+            }
+            if (probing || tail - head >= LOOKAHEAD_CAPACITY) {
+                return; // Già sotto controllo, o il client ha già inviato molti altri byte
+            }
+            probing = true;
+            try {
+                monitors.execute(() -> probe(onClose));
+            } catch (RejectedExecutionException e) {
+                probing = false; // Server in chiusura: la connessione non viene controllata
+            }
+        }
+
+        @Override
+        public synchronized void stop() {
+            watching = false;
+        }
+
+        /**
+         * Accumula i byte del client finché la sessione controlla la connessione.
+         */
+        private void probe(Runnable onClose) {
+            boolean closed = false;
+            try {
+                socket.setSoTimeout(POLL_INTERVAL);
+                byte[] chunk = new byte[4096];
+                while (true) {
+                    int room;
+                    synchronized (this) {
+                        room = LOOKAHEAD_CAPACITY - (tail - head);
+                        if (!watching || room == 0) {
+                            break;
+                        }
+                    }
+                    int count;
+                    try {
+                        count = in.read(chunk, 0, Math.min(room, chunk.length));
+                    } catch (SocketTimeoutException e) {
+                        continue;
+                    }
+                    if (count < 0) {
+                        closed = true;
+                        break;
+                    }
+                    append(chunk, count);
+                }
+            } catch (IOException e) {
+                closed = true; // Connessione interrotta
+            } finally {
+                try {
+                    socket.setSoTimeout(0);
+                } catch (SocketException e) {
+                    // Il socket è già stato chiuso
+                }
+                synchronized (this) {
+                    eof |= closed;
+                    probing = false;
+                    notifyAll();
+                }
+            }
+            if (closed) {
+                onClose.run();
+            }
+        }
+
+        /**
+         * Accoda i byte letti in anticipo, compattando o ingrandendo il buffer.
+         */
+        private synchronized void append(byte[] chunk, int count) {
+            int size = tail - head;
+            if (tail + count > lookahead.length) {
+                byte[] target = (size + count > lookahead.length)
+                        ? new byte[Math.min(LOOKAHEAD_CAPACITY, Math.max(size + count, 2 * lookahead.length))]
+                        : lookahead;
+                System.arraycopy(lookahead, head, target, 0, size);
+                lookahead = target;
+                head = 0;
+                tail = size;
+            }
+            System.arraycopy(chunk, 0, lookahead, tail, count);
+            tail += count;
+        }
+
+        /**
+         * Attende la fine del controllo e copia i byte letti in anticipo.
+         *
+         * @return Il numero di byte copiati, {@code -1} se la connessione è stata chiusa, o
+         * {@code 0} se non ci sono byte letti in anticipo e si può leggere dal socket.
+         */
+        private synchronized int takeLookahead(byte[] b, int off, int len) throws IOException {
+            while (probing && head == tail) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Lettura interrotta.");
+                }
+            }
+            if (head == tail) {
+                return eof ? -1 : 0; // La fine dello stream resta segnalata alle letture successive
+            }
+            int count = Math.min(len, tail - head);
+            System.arraycopy(lookahead, head, b, off, count);
+            head += count;
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int count = read(b, 0, 1);
+            return (count > 0) ? (b[0] & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int count = takeLookahead(b, off, len);
+            return (count != 0) ? count : in.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return (n > 0 && read() >= 0) ? 1 : 0;
+        }
+
+        @Override
+        public synchronized int available() throws IOException {
+            if (head != tail) {
+                return tail - head;
+            }
+            return (probing || eof) ? 0 : in.available();
+        }
+    }
+}
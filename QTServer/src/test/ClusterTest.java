@@ -5,6 +5,13 @@ import mining.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 class ClusterTest {
@@ -49,4 +56,82 @@ class ClusterTest {
         assertEquals(1, clusterA.compareTo(clusterB),
                 "Dovrebbe restituire 1 per dimensioni uguali, come da implementazione.");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Gli indici dovrebbero essere restituiti in ordine crescente, senza duplicati")
+    void membersShouldBeUniqueAndSorted() {
+        assertTrue(clusterA.addData(7));
+        assertTrue(clusterA.addData(2));
+        assertFalse(clusterA.addData(7), "Un indice già presente non dovrebbe essere aggiunto.");
+        clusterA.addData(130);
+
+        List<Integer> ids = new ArrayList<>();
+        clusterA.forEach(ids::add);
+        assertEquals(List.of(2, 7, 130), ids);
+    }
+
+    @Test
+    @DisplayName("Un cluster serializzato dovrebbe conservare i propri indici")
+    void serializationShouldPreserveMembers() throws Exception {
+        clusterA.addData(3);
+        clusterA.addData(64);
+        clusterB.addData(5); // Dimensione 1
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(clusterA);
+        }
+        Cluster copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Cluster) in.readObject();
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        copy.forEach(ids::add);
+        assertEquals(List.of(3, 64), ids);
+        assertEquals(1, copy.compareTo(clusterB), "La dimensione dovrebbe essere ricostruita dopo la lettura.");
+    }
+
+    @Test
+    @DisplayName("Un cluster con pochi indici elevati dovrebbe restare piccolo una volta serializzato")
+    void sparseClusterShouldStaySmall() throws Exception {
+        clusterA.addData(0);
+        clusterB.addData(150000);
+        int low = serialize(clusterA).length;
+        int high = serialize(clusterB).length;
+        assertTrue(high - low <= 4, "Un solo indice non dovrebbe occupare " + (high - low) + " byte in più.");
+
+        // Indici sparsi, aggiunti in disordine, e un intervallo denso
+        Cluster mixed = new Cluster(new Tuple(0));
+        List<Integer> expected = new ArrayList<>();
+        for (int id : new int[]{Integer.MAX_VALUE, 150000, 7, 1 << 21, 300}) {
+            assertTrue(mixed.addData(id));
+        }
+        for (int id = 1000; id < 2000; id++) {
+            mixed.addData(id);
+        }
+        expected.addAll(List.of(7, 300));
+        for (int id = 1000; id < 2000; id++) {
+            expected.add(id);
+        }
+        expected.addAll(List.of(150000, 1 << 21, Integer.MAX_VALUE));
+        byte[] bytes = serialize(mixed);
+        assertTrue(bytes.length < serialize(clusterA).length + 1100, "Un intervallo denso dovrebbe occupare circa un byte per indice.");
+
+        Cluster copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            copy = (Cluster) in.readObject();
+        }
+        List<Integer> ids = new ArrayList<>();
+        copy.forEach(ids::add);
+        assertEquals(expected, ids);
+    }
+
+    private static byte[] serialize(Cluster cluster) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cluster);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,143 @@
+package test;
+
+import server.MultiServer;
+import server.SelectorServer;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Confronta il numero di connessioni contemporanee e l'occupazione di memoria delle
+ * modalità del server: un thread di piattaforma per connessione ({@code thread}), un
+ * thread virtuale per connessione ({@code virtual}) e il selettore non bloccante
+ * ({@code nio}).
+ * <p>
+ * Per ogni modalità il server viene avviato nello stesso processo e vengono aperte fino
+ * a {@code connessioni} connessioni; ogni client completa l'apertura degli stream e
+ * riceve la risposta a una richiesta, poi resta inattivo come un utente in attesa. Con
+ * tutte le connessioni aperte vengono stampati il numero di connessioni riuscite e la
+ * crescita del numero di thread, della memoria heap e, se disponibile, della memoria
+ * residente del processo ({@code VmRSS}).
+ * </p>
+ * <p>
+ * Uso: {@code java test.ConnectionLoadBenchmark [connessioni] [modalità...]}
+ * </p>
+ */
+public class ConnectionLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int connections = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        String[] modes = (args.length > 1) ? Arrays.copyOfRange(args, 1, args.length)
+                : new String[]{"thread", "virtual", "nio"};
+
+        System.out.printf("%8s %12s %10s %10s %10s%n", "modalità", "connessioni", "thread", "heap MB", "RSS MB");
+        PrintStream console = System.out;
+        PrintStream errors = System.err;
+        for (String mode : modes) {
+            int port = freePort();
+            // I messaggi del server per ogni connessione non interessano la misura
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                start(mode, port);
+                long[] before = measure();
+                List<Socket> sockets = new ArrayList<>();
+                int opened = open(port, connections, sockets, errors);
+                long[] after = measure();
+                console.printf("%8s %12d %10d %10.1f %10.1f%n", mode, opened, after[0] - before[0],
+                        (after[1] - before[1]) / 1048576.0, (after[2] - before[2]) / 1048576.0);
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+                Thread.sleep(1000); // Lascia terminare le sessioni prima della modalità successiva
+            } finally {
+                System.setOut(console);
+                System.setErr(errors);
+            }
+        }
+        System.exit(0); // I server non prevedono un arresto: termina anche i loro thread
+    }
+
+    // Avvia il server in un thread demone: il benchmark termina con il main
+    private static void start(String mode, int port) throws InterruptedException {
+        Runnable server;
+        if (mode.equals("nio")) {
+            server = new SelectorServer(port)::run;
+        } else {
+            server = new MultiServer(port, mode.equals("virtual"))::run;
+        }
+        Thread thread = new Thread(server, "server-" + mode);
+        thread.setDaemon(true);
+        thread.start();
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Il server " + mode + " non è partito.");
+    }
+
+    // Apre le connessioni fino al primo errore; ogni client riceve la risposta a una richiesta
+    private static int open(int port, int connections, List<Socket> sockets, PrintStream errors) {
+        for (int c = 0; c < connections; c++) {
+            try {
+                Socket socket = new Socket("localhost", port);
+                sockets.add(socket);
+                socket.setSoTimeout(10_000);
+                ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+                out.flush();
+                ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                out.writeObject(-1); // Codice non valido: la risposta è un messaggio di errore
+                out.flush();
+                in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                errors.println("Connessione " + c + " fallita: " + e.getMessage());
+                return c;
+            }
+        }
+        return connections;
+    }
+
+    // Numero di thread, heap usato dopo una garbage collection, memoria residente
+    private static long[] measure() throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        Runtime runtime = Runtime.getRuntime();
+        long threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        return new long[]{threads, heap, residentMemory()};
+    }
+
+    // VmRSS da /proc/self/status (Linux), o 0 se non disponibile
+    private static long residentMemory() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Misura non disponibile su questa piattaforma
+        }
+        return 0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
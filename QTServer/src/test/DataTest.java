@@ -0,0 +1,183 @@
+package test;
+
+import data.*;
+import database.Example;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataTest {
+
+    private Data data;
+
+    @BeforeEach
+    void setUp() {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("temperature", 0, 10.0, 40.0));
+        schema.add(new DiscreteAttribute("outlook", 1, new String[]{"sunny", "rainy", "overcast"}));
+
+        List<Example> examples = new ArrayList<>();
+        examples.add(createExample(25.0, "sunny"));
+        examples.add(createExample(13.0, "rainy"));
+        examples.add(createExample(40.0, "sunny"));
+        examples.add(createExample(10, "overcast")); // Intero: viene convertito a double
+
+        data = new Data(examples, schema);
+    }
+
+    private Example createExample(Object temperature, Object outlook) {
+        Example ex = new Example();
+        ex.add(temperature);
+        ex.add(outlook);
+        return ex;
+    }
+
+    @Test
+    @DisplayName("La distanza per colonne dovrebbe coincidere con quella tra tuple")
+    void testDistanceMatchesTupleDistance() {
+        for (int i = 0; i < data.getNumberOfExamples(); i++) {
+            for (int j = 0; j < data.getNumberOfExamples(); j++) {
+                assertEquals(data.getItemSet(i).getDistance(data.getItemSet(j)), data.distance(i, j), 0.0,
+                        "Distanza diversa tra gli esempi " + i + " e " + j);
+            }
+        }
+        // |0.5 - 0.1| + 1.0 ("sunny" != "rainy")
+        assertEquals(1.4, data.distance(0, 1), 0.001);
+    }
+
+    @Test
+    @DisplayName("getAttributeValue dovrebbe restituire i valori originali")
+    void testGetAttributeValue() {
+        assertEquals(25.0, data.getAttributeValue(0, 0));
+        assertEquals("rainy", data.getAttributeValue(1, 1));
+        assertEquals(10.0, data.getAttributeValue(3, 0));
+        assertNull(data.getAttributeValue(0, 2), "Un attributo inesistente dovrebbe restituire null.");
+    }
+
+    @Test
+    @DisplayName("La distanza tra una tupla e una riga dovrebbe coincidere con quella tra tuple")
+    void testDistanceFromTupleMatchesTupleDistance() {
+        Tuple centroid = data.getItemSet(0);
+        for (int j = 0; j < data.getNumberOfExamples(); j++) {
+            assertEquals(centroid.getDistance(data.getItemSet(j)), data.distance(centroid, j), 0.0,
+                    "Distanza diversa tra il centroide e l'esempio " + j);
+        }
+    }
+
+    @Test
+    @DisplayName("I valori estranei al dominio dovrebbero avere codici distinti da quelli del dominio")
+    void testValuesOutsideDomain() {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("temperature", 0, 10.0, 40.0));
+        DiscreteAttribute outlook = new DiscreteAttribute("outlook", 1, new String[]{"sunny", "rainy"});
+        schema.add(outlook);
+
+        List<Example> examples = new ArrayList<>();
+        examples.add(createExample(25.0, "sunny"));
+        examples.add(createExample(25.0, "foggy"));
+        examples.add(createExample(25.0, "foggy"));
+        Data mixed = new Data(examples, schema);
+
+        assertEquals("foggy", mixed.getAttributeValue(1, 1));
+        assertEquals(1.0, mixed.distance(0, 1), 0.0);
+        assertEquals(0.0, mixed.distance(1, 2), 0.0);
+        for (int i = 0; i < mixed.getNumberOfExamples(); i++) {
+            Tuple tuple = mixed.getItemSet(i);
+            for (int j = 0; j < mixed.getNumberOfExamples(); j++) {
+                assertEquals(tuple.getDistance(mixed.getItemSet(j)), mixed.distance(tuple, j), 0.0);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Il calcolo delle distanze a blocchi dovrebbe coincidere con quello per coppie")
+    void testBlockDistancesMatchPairDistances() {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("temperature", 0, 10.0, 40.0));
+        schema.add(new DiscreteAttribute("outlook", 1, new String[]{"sunny", "rainy", "overcast"}));
+        schema.add(new ContinuousAttribute("humidity", 2, 0.0, 100.0));
+        String[] outlooks = {"sunny", "rainy", "overcast"};
+        Random random = new Random(7);
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < 37; i++) {
+            Example ex = createExample(10.0 + random.nextInt(300) / 10.0, outlooks[random.nextInt(3)]);
+            ex.add(random.nextDouble() * 100.0);
+            examples.add(ex);
+        }
+        Data block = new Data(examples, schema);
+
+        for (boolean vectorized : new boolean[]{false, true}) {
+            assertEquals(vectorized && Data.isVectorSupported(), block.setVectorized(vectorized));
+            double[] out = new double[block.getNumberOfExamples() + 1];
+            for (int i = 0; i < block.getNumberOfExamples(); i++) {
+                block.distances(i, 0, block.getNumberOfExamples(), out, 1);
+                for (int j = 0; j < block.getNumberOfExamples(); j++) {
+                    assertEquals(block.distance(i, j), out[j + 1], 0.0,
+                            "Distanza diversa tra gli esempi " + i + " e " + j + " (vettoriale: " + vectorized + ")");
+                }
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> block.distances(0, 0, 37, new double[36], 0));
+    }
+
+    @Test
+    @DisplayName("La distanza con soglia dovrebbe coincidere con quella esatta entro la soglia")
+    void testBoundedDistance() {
+        double[] bounds = {0.0, 0.2, 0.4, 0.5, 0.99, 1.0, 1.4, 2.0, Double.POSITIVE_INFINITY};
+        for (int i = 0; i < data.getNumberOfExamples(); i++) {
+            for (int j = 0; j < data.getNumberOfExamples(); j++) {
+                double exact = data.distance(i, j);
+                for (double bound : bounds) {
+                    double bounded = data.distance(i, j, bound);
+                    assertEquals(exact <= bound, bounded <= bound,
+                            "Esito diverso per gli esempi " + i + " e " + j + " con soglia " + bound);
+                    if (exact <= bound) {
+                        assertEquals(exact, bounded, 0.0);
+                    }
+                }
+            }
+        }
+        // "sunny" != "rainy": la coppia viene scartata dopo il solo confronto discreto
+        assertEquals(1.0, data.distance(0, 1, 0.5), 0.0);
+    }
+
+    @Test
+    @DisplayName("Le righe con gli stessi valori discreti dovrebbero avere la stessa firma")
+    void testDiscreteSignaturesAndSubset() {
+        assertArrayEquals(new int[]{0, 1, 0, 2}, data.getDiscreteSignatures());
+
+        Data sunny = data.subset(new int[]{2, 0});
+        assertEquals(2, sunny.getNumberOfExamples());
+        assertEquals(40.0, sunny.getAttributeValue(0, 0));
+        assertEquals("sunny", sunny.getAttributeValue(1, 1));
+        assertEquals(data.distance(2, 0), sunny.distance(0, 1), 0.0);
+        assertThrows(IndexOutOfBoundsException.class, () -> data.subset(new int[]{4}));
+    }
+
+    @Test
+    @DisplayName("Gli esempi con molteplicità dovrebbero occupare righe identiche consecutive")
+    void testWeightedExamplesAndDuplicateGroups() {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("temperature", 0, 10.0, 40.0));
+        schema.add(new DiscreteAttribute("outlook", 1, new String[]{"sunny", "rainy", "overcast"}));
+        List<Example> examples = new ArrayList<>();
+        Example repeated = createExample(25.0, "sunny");
+        repeated.setWeight(3);
+        examples.add(repeated);
+        examples.add(createExample(13.0, "rainy"));
+        examples.add(createExample(25.0, "sunny"));
+        Data weighted = new Data(examples, schema);
+
+        assertEquals(5, weighted.getNumberOfExamples());
+        assertEquals("sunny", weighted.getAttributeValue(2, 1));
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0}, weighted.getDuplicateGroups());
+        // Il raggruppamento viene calcolato una volta sola, ma ogni chiamata ne riceve una copia
+        weighted.getDuplicateGroups()[0] = 7;
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0}, weighted.getDuplicateGroups());
+        assertThrows(IllegalArgumentException.class, () -> repeated.setWeight(0));
+    }
+}
@@ -0,0 +1,142 @@
+package test;
+
+import data.*;
+import mining.*;
+import database.Example;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Confronta il kernel scalare e quello vettoriale (SIMD) per il calcolo delle distanze
+ * tra un esempio e un blocco di esempi.
+ * <p>
+ * Per diverse composizioni dello schema viene misurato il tempo necessario a calcolare
+ * le distanze di un insieme di esempi da tutti gli altri, sia coppia per coppia con
+ * {@link Data#distance(int, int)} sia a blocchi con i due kernel, e il tempo di un
+ * clustering completo per forza bruta con ciascun kernel.
+ * </p>
+ * <p>
+ * Uso: {@code java --add-modules jdk.incubator.vector test.DistanceKernelBenchmark [esempi] [ripetizioni]}.
+ * Senza l'opzione {@code --add-modules} viene misurato soltanto il kernel scalare.
+ * </p>
+ */
+public class DistanceKernelBenchmark {
+
+    // Numero di esempi di riferimento per le misure sulle distanze
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) throws Exception {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int repetitions = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        int[][] schemas = {{4, 0}, {16, 0}, {4, 4}, {2, 14}};
+
+        System.out.println("Kernel vettoriale disponibile: " + Data.isVectorSupported());
+        System.out.printf("%10s %10s %12s %12s %12s %12s %12s%n", "continui", "discreti",
+                "coppie", "scalare", "vettoriale", "QT scalare", "QT vett.");
+
+        for (int[] schema : schemas) {
+            Data data = createData(size, schema[0], schema[1], 2024);
+            System.out.printf("%10d %10d", schema[0], schema[1]);
+            System.out.printf(" %12.1f", timePairs(data, repetitions));
+            for (boolean vectorized : new boolean[]{false, true}) {
+                if (data.setVectorized(vectorized) == vectorized) {
+                    System.out.printf(" %12.1f", timeBlocks(data, repetitions));
+                } else {
+                    System.out.printf(" %12s", "-");
+                }
+            }
+            Data small = createData(Math.min(size, 3000), schema[0], schema[1], 2024);
+            for (boolean vectorized : new boolean[]{false, true}) {
+                if (small.setVectorized(vectorized) == vectorized) {
+                    System.out.printf(" %12.1f", timeClustering(small, schema[0] * 0.05, repetitions));
+                } else {
+                    System.out.printf(" %12s", "-");
+                }
+            }
+            System.out.println("   (ms)");
+        }
+    }
+
+    private static double timePairs(Data data, int repetitions) {
+        double sink = 0.0;
+        long start = System.nanoTime();
+        for (int r = 0; r <= repetitions; r++) {
+            if (r == 1) {
+                start = System.nanoTime();
+            }
+            for (int i = 0; i < QUERIES; i++) {
+                for (int j = 0; j < data.getNumberOfExamples(); j++) {
+                    sink += data.distance(i, j);
+                }
+            }
+        }
+        consume(sink);
+        return (System.nanoTime() - start) / 1e6 / repetitions;
+    }
+
+    private static double timeBlocks(Data data, int repetitions) {
+        double[] out = new double[data.getNumberOfExamples()];
+        double sink = 0.0;
+        long start = System.nanoTime();
+        for (int r = 0; r <= repetitions; r++) {
+            if (r == 1) {
+                start = System.nanoTime();
+            }
+            for (int i = 0; i < QUERIES; i++) {
+                data.distances(i, 0, data.getNumberOfExamples(), out, 0);
+                sink += out[i + 1];
+            }
+        }
+        consume(sink);
+        return (System.nanoTime() - start) / 1e6 / repetitions;
+    }
+
+    private static double timeClustering(Data data, double radius, int repetitions) throws Exception {
+        long start = System.nanoTime();
+        for (int r = 0; r <= repetitions; r++) {
+            if (r == 1) {
+                start = System.nanoTime();
+            }
+            QTMiner miner = new QTMiner(radius, NeighbourSearch.BRUTE_FORCE);
+            miner.setCandidateSelection(CandidateSelection.INCREMENTAL);
+            try {
+                miner.compute(data);
+            } catch (ClusteringRadiusException e) {
+                // Un unico cluster è un risultato valido ai fini della misura
+            }
+        }
+        return (System.nanoTime() - start) / 1e6 / repetitions;
+    }
+
+    // Impedisce al compilatore JIT di eliminare i calcoli misurati
+    private static void consume(double value) {
+        if (value == 42.0) {
+            System.out.println();
+        }
+    }
+
+    private static Data createData(int size, int continuous, int discrete, long seed) {
+        Random random = new Random(seed);
+        List<Attribute> schema = new ArrayList<>();
+        for (int a = 0; a < continuous; a++) {
+            schema.add(new ContinuousAttribute("C" + a, a, 0.0, 100.0));
+        }
+        String[] values = {"a", "b", "c", "d", "e"};
+        for (int a = 0; a < discrete; a++) {
+            schema.add(new DiscreteAttribute("D" + a, continuous + a, values));
+        }
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Example ex = new Example();
+            for (int a = 0; a < continuous; a++) {
+                ex.add(random.nextDouble() * 100.0);
+            }
+            for (int a = 0; a < discrete; a++) {
+                ex.add(values[random.nextInt(values.length)]);
+            }
+            examples.add(ex);
+        }
+        return new Data(examples, schema);
+    }
+}
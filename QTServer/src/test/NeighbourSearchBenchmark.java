@@ -0,0 +1,93 @@
+package test;
+
+import data.*;
+import mining.*;
+import database.Example;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Confronta i tempi di clustering ottenuti con le diverse strategie di ricerca dei vicini.
+ * <p>
+ * Per isolare il costo delle interrogazioni di raggio, tutte le esecuzioni usano la
+ * selezione incrementale dei candidati, che interroga ogni esempio una sola volta.
+ * Per ogni dimensione del dataset e ogni raggio viene stampato il tempo medio di
+ * ciascuna strategia, così da individuare il punto di incrocio rispetto alla forza bruta.
+ * </p>
+ * <p>
+ * Uso: {@code java test.NeighbourSearchBenchmark [attributi] [ripetizioni]}
+ * </p>
+ */
+public class NeighbourSearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int attributes = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+        int repetitions = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        int[] sizes = {250, 1000, 4000};
+        double[] radii = {0.02, 0.05, 0.1, 0.2, 0.4, 0.8, 1.6};
+        NeighbourSearch[] searches = {NeighbourSearch.BRUTE_FORCE, NeighbourSearch.VP_TREE};
+
+        System.out.printf("%8s %8s", "esempi", "raggio");
+        for (NeighbourSearch search : searches) {
+            System.out.printf(" %14s", search);
+        }
+        System.out.println("   (ms)");
+
+        for (int size : sizes) {
+            Data data = createData(size, attributes, 2024);
+            for (double radius : radii) {
+                System.out.printf("%8d %8.2f", size, radius);
+                for (NeighbourSearch search : searches) {
+                    System.out.printf(" %14.1f", time(data, radius, search, repetitions));
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    // Tempo medio (ms) di un clustering completo, dopo un'esecuzione di riscaldamento
+    private static double time(Data data, double radius, NeighbourSearch search, int repetitions) throws Exception {
+        run(data, radius, search);
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            run(data, radius, search);
+        }
+        return (System.nanoTime() - start) / 1e6 / repetitions;
+    }
+
+    private static void run(Data data, double radius, NeighbourSearch search) throws EmptyDatasetException {
+        QTMiner miner = new QTMiner(radius, search);
+        miner.setCandidateSelection(CandidateSelection.INCREMENTAL);
+        try {
+            miner.compute(data);
+        } catch (ClusteringRadiusException e) {
+            // Un unico cluster è un risultato valido ai fini della misura
+        }
+    }
+
+    // Dataset con attributi continui raggruppati attorno ad alcuni centri
+    private static Data createData(int size, int attributes, long seed) {
+        Random random = new Random(seed);
+        List<Attribute> schema = new ArrayList<>();
+        for (int a = 0; a < attributes; a++) {
+            schema.add(new ContinuousAttribute("A" + a, a, 0.0, 100.0));
+        }
+        double[][] centres = new double[10][attributes];
+        for (double[] centre : centres) {
+            for (int a = 0; a < attributes; a++) {
+                centre[a] = random.nextDouble() * 100.0;
+            }
+        }
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            double[] centre = centres[random.nextInt(centres.length)];
+            Example ex = new Example();
+            for (int a = 0; a < attributes; a++) {
+                ex.add(Math.min(100.0, Math.max(0.0, centre[a] + random.nextGaussian() * 8.0)));
+            }
+            examples.add(ex);
+        }
+        return new Data(examples, schema);
+    }
+}
@@ -7,7 +7,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
 import static org.junit.jupiter.api.Assertions.*;
 
 class QTMinerTest {
@@ -43,6 +47,36 @@ class QTMinerTest {
         return ex;
     }
 
+    // Dataset pseudo-casuale (riproducibile) con attributi continui e discreti
+    private Data createMixedData(long seed, int size) {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("A", 0, 0.0, 100.0));
+        schema.add(new DiscreteAttribute("B", 1, new String[]{"x", "y", "z"}));
+        schema.add(new ContinuousAttribute("C", 2, -5.0, 5.0));
+        Random random = new Random(seed);
+        String[] values = {"x", "y", "z"};
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Example ex = new Example();
+            ex.add((double) random.nextInt(100));
+            ex.add(values[random.nextInt(values.length)]);
+            ex.add(random.nextInt(100) / 10.0 - 5.0);
+            examples.add(ex);
+        }
+        return new Data(examples, schema);
+    }
+
+    // Descrive i cluster come lista ordinata di centroidi e indici degli esempi
+    private List<String> describe(ClusterSet clusters) {
+        List<String> description = new ArrayList<>();
+        for (Cluster c : clusters) {
+            TreeSet<Integer> ids = new TreeSet<>();
+            c.forEach(ids::add);
+            description.add(c + " " + ids);
+        }
+        return description;
+    }
+
     @Test
     @DisplayName("compute dovrebbe trovare due cluster con un raggio appropriato")
     void testComputeShouldFindTwoClusters() throws EmptyDatasetException, ClusteringRadiusException {
@@ -63,4 +97,388 @@ class QTMinerTest {
             miner.compute(testData);
         }, "Dovrebbe lanciare ClusteringRadiusException se si forma un solo cluster.");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("La matrice delle distanze dovrebbe produrre gli stessi cluster della forza bruta")
+    void testDistanceMatrixMatchesBruteForce() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(42, 200);
+        QTMiner bruteForce = new QTMiner(0.3);
+        QTMiner matrix = new QTMiner(0.3, NeighbourSearch.DISTANCE_MATRIX);
+
+        assertEquals(bruteForce.compute(data), matrix.compute(data));
+        assertEquals(describe(bruteForce.getC()), describe(matrix.getC()),
+                "I cluster calcolati con la matrice delle distanze dovrebbero coincidere.");
+    }
+
+    @Test
+    @DisplayName("La valutazione parallela dovrebbe scegliere gli stessi cluster di quella sequenziale")
+    void testParallelMatchesSequential() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(7, 300);
+        QTMiner sequential = new QTMiner(0.25);
+        QTMiner parallel = new QTMiner(0.25);
+        parallel.setParallelism(4);
+
+        assertEquals(sequential.compute(data), parallel.compute(data));
+        assertEquals(describe(sequential.getC()), describe(parallel.getC()),
+                "La versione parallela dovrebbe produrre esattamente gli stessi cluster.");
+    }
+
+    @Test
+    @DisplayName("La selezione incrementale dovrebbe produrre gli stessi cluster della scansione completa")
+    void testIncrementalMatchesScan() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(11, 300);
+        QTMiner scan = new QTMiner(0.4);
+        QTMiner incremental = new QTMiner(0.4);
+        incremental.setCandidateSelection(CandidateSelection.INCREMENTAL);
+
+        assertEquals(scan.compute(data), incremental.compute(data));
+        assertEquals(describe(scan.getC()), describe(incremental.getC()),
+                "La selezione incrementale dovrebbe produrre esattamente gli stessi cluster.");
+    }
+
+    @Test
+    @DisplayName("Il grafo dei vicini CSR dovrebbe produrre gli stessi cluster della forza bruta")
+    void testNeighbourGraphMatchesBruteForce() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(3, 250);
+        QTMiner bruteForce = new QTMiner(0.2);
+        QTMiner graph = new QTMiner(0.2, NeighbourSearch.NEIGHBOUR_GRAPH);
+        QTMiner graphIncremental = new QTMiner(0.2, NeighbourSearch.NEIGHBOUR_GRAPH);
+        graphIncremental.setCandidateSelection(CandidateSelection.INCREMENTAL);
+
+        int expected = bruteForce.compute(data);
+        assertEquals(expected, graph.compute(data));
+        assertEquals(expected, graphIncremental.compute(data));
+        assertEquals(describe(bruteForce.getC()), describe(graph.getC()));
+        assertEquals(describe(bruteForce.getC()), describe(graphIncremental.getC()));
+    }
+
+    @Test
+    @DisplayName("Il VP-tree dovrebbe trovare gli stessi vicini della forza bruta")
+    void testVPTreeMatchesBruteForce() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(5, 400);
+        for (double radius : new double[]{0.05, 0.3, 1.2}) {
+            QTMiner bruteForce = new QTMiner(radius);
+            QTMiner vpTree = new QTMiner(radius, NeighbourSearch.VP_TREE);
+
+            assertEquals(bruteForce.compute(data), vpTree.compute(data));
+            assertEquals(describe(bruteForce.getC()), describe(vpTree.getC()),
+                    "Il VP-tree dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La selezione con insiemi di bit dovrebbe produrre gli stessi cluster della scansione")
+    void testBitsetSelectionMatchesScan() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(11, 300);
+        for (double radius : new double[]{0.1, 0.6, 1.5}) {
+            QTMiner scan = new QTMiner(radius);
+            QTMiner bitset = new QTMiner(radius);
+            bitset.setCandidateSelection(CandidateSelection.BITSET);
+
+            assertEquals(scan.compute(data), bitset.compute(data));
+            assertEquals(describe(scan.getC()), describe(bitset.getC()),
+                    "La selezione con insiemi di bit dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La potatura con limite superiore dovrebbe produrre gli stessi cluster della scansione")
+    void testUpperBoundSelectionMatchesScan() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(13, 300);
+        for (double radius : new double[]{0.1, 0.6, 1.5}) {
+            QTMiner scan = new QTMiner(radius);
+            QTMiner upperBound = new QTMiner(radius);
+            upperBound.setCandidateSelection(CandidateSelection.UPPER_BOUND);
+
+            assertEquals(scan.compute(data), upperBound.compute(data));
+            assertEquals(describe(scan.getC()), describe(upperBound.getC()),
+                    "La potatura con limite superiore dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La suddivisione per valori discreti dovrebbe produrre gli stessi cluster dell'intero dataset")
+    void testPartitioningMatchesWholeDataset() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(17, 400);
+        for (double radius : new double[]{0.05, 0.2, 0.6}) {
+            QTMiner whole = new QTMiner(radius);
+            whole.setPartitioning(false);
+            QTMiner partitioned = new QTMiner(radius);
+            QTMiner partitionedParallel = new QTMiner(radius);
+            partitionedParallel.setParallelism(4);
+
+            int expected = whole.compute(data);
+            assertEquals(expected, partitioned.compute(data));
+            assertEquals(expected, partitionedParallel.compute(data));
+            assertEquals(describe(whole.getC()), describe(partitioned.getC()),
+                    "La suddivisione dovrebbe produrre gli stessi cluster con raggio " + radius);
+            assertEquals(describe(whole.getC()), describe(partitionedParallel.getC()),
+                    "La suddivisione parallela dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La griglia dovrebbe produrre gli stessi cluster della matrice delle distanze")
+    void testGridMatchesDistanceMatrix() throws EmptyDatasetException, ClusteringRadiusException {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("X", 0, 0.0, 10.0));
+        schema.add(new ContinuousAttribute("Y", 1, 0.0, 10.0));
+        Random random = new Random(19);
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            // Valori su una griglia regolare, per verificare i casi al confine tra le celle
+            examples.add(createExample(random.nextInt(20) / 2.0, random.nextInt(20) / 2.0));
+        }
+        Data data = new Data(examples, schema);
+        for (double radius : new double[]{0.05, 0.1, 0.25, 0.5}) {
+            QTMiner matrix = new QTMiner(radius, NeighbourSearch.DISTANCE_MATRIX);
+            QTMiner grid = new QTMiner(radius, NeighbourSearch.GRID);
+
+            assertEquals(matrix.compute(data), grid.compute(data));
+            assertEquals(describe(matrix.getC()), describe(grid.getC()),
+                    "La griglia dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La finestra sull'attributo più disperso dovrebbe produrre gli stessi cluster della matrice delle distanze")
+    void testSweepMatchesDistanceMatrix() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(23, 400);
+        for (double radius : new double[]{0.05, 0.3, 1.2}) {
+            QTMiner matrix = new QTMiner(radius, NeighbourSearch.DISTANCE_MATRIX);
+            QTMiner sweep = new QTMiner(radius, NeighbourSearch.SWEEP);
+
+            assertEquals(matrix.compute(data), sweep.compute(data));
+            assertEquals(describe(matrix.getC()), describe(sweep.getC()),
+                    "La finestra dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("Il filtro dei pivot dovrebbe produrre gli stessi cluster della matrice delle distanze")
+    void testPivotTableMatchesDistanceMatrix() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(29, 400);
+        for (double radius : new double[]{0.05, 0.3, 1.2}) {
+            QTMiner matrix = new QTMiner(radius, NeighbourSearch.DISTANCE_MATRIX);
+            QTMiner pivots = new QTMiner(radius, NeighbourSearch.PIVOT_TABLE);
+
+            assertEquals(matrix.compute(data), pivots.compute(data));
+            assertEquals(describe(matrix.getC()), describe(pivots.getC()),
+                    "Il filtro dei pivot dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La fusione delle righe identiche dovrebbe produrre gli stessi cluster")
+    void testDeduplicationMatchesDuplicatedRows() throws EmptyDatasetException, ClusteringRadiusException {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("A", 0, 0.0, 10.0));
+        schema.add(new DiscreteAttribute("B", 1, new String[]{"x", "y"}));
+        Random random = new Random(31);
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Example ex = new Example();
+            ex.add((double) random.nextInt(10));
+            ex.add(random.nextBoolean() ? "x" : "y");
+            ex.setWeight(1 + random.nextInt(3));
+            examples.add(ex);
+        }
+        Data data = new Data(examples, schema);
+        for (double radius : new double[]{0.1, 0.4, 1.2}) {
+            QTMiner plain = new QTMiner(radius);
+            plain.setDeduplication(false);
+            QTMiner deduplicated = new QTMiner(radius);
+            deduplicated.setCandidateSelection(CandidateSelection.INCREMENTAL);
+
+            assertEquals(plain.compute(data), deduplicated.compute(data));
+            assertEquals(describe(plain.getC()), describe(deduplicated.getC()),
+                    "La fusione delle righe identiche dovrebbe produrre gli stessi cluster con raggio " + radius);
+        }
+    }
+
+    @Test
+    @DisplayName("La valutazione di più raggi dovrebbe produrre gli stessi cluster di esecuzioni separate")
+    void testRadiusSweepMatchesSeparateRuns() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(37, 300);
+        double[] radii = {0.6, 0.05, 1.5, 0.3};
+        RadiusSweep sweep = new RadiusSweep(radii);
+        sweep.compute(data);
+
+        assertEquals(radii.length, sweep.size());
+        for (int k = 0; k < radii.length; k++) {
+            QTMiner separate = new QTMiner(radii[k]);
+            assertEquals(separate.compute(data), sweep.getNumberOfClusters(k));
+            assertEquals(describe(separate.getC()), describe(sweep.getMiner(k).getC()),
+                    "La valutazione di più raggi dovrebbe produrre gli stessi cluster con raggio " + radii[k]);
+        }
+        assertThrows(ClusteringRadiusException.class, () -> {
+            RadiusSweep wide = new RadiusSweep(new double[]{0.1, 10.0});
+            wide.compute(testData);
+            wide.getNumberOfClusters(1);
+        });
+    }
+
+    @Test
+    @DisplayName("Oltre il limite di archi ogni raggio viene clusterizzato separatamente con lo stesso risultato")
+    void testRadiusSweepFallsBackOverEdgeBudget() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(41, 300);
+        double[] radii = {0.3, 1.5};
+        RadiusSweep shared = new RadiusSweep(radii);
+        shared.compute(data);
+        assertTrue(shared.isShared(), "Entro il limite il grafo dei vicini dovrebbe essere condiviso");
+
+        for (long budget : new long[]{0, 2000}) {
+            for (NeighbourSearch search : NeighbourSearch.values()) {
+                RadiusSweep separate = new RadiusSweep(radii);
+                separate.setEdgeBudget(budget);
+                separate.setNeighbourSearch(search);
+                separate.compute(data);
+                assertFalse(separate.isShared(), "Oltre il limite il grafo non dovrebbe essere costruito");
+                for (int k = 0; k < radii.length; k++) {
+                    assertEquals(shared.getNumberOfClusters(k), separate.getNumberOfClusters(k));
+                    assertEquals(describe(shared.getMiner(k).getC()), describe(separate.getMiner(k).getC()),
+                            "Il percorso separato dovrebbe produrre gli stessi cluster con raggio " + radii[k] + " e " + search);
+                }
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> shared.setEdgeBudget(-1));
+    }
+
+    @Test
+    @DisplayName("Le stime dei raggi sono coerenti con le distanze e con il clustering")
+    void testRadiusAdvisorEstimates() throws EmptyDatasetException {
+        Data data = createMixedData(41, 120);
+        RadiusAdvisor advisor = new RadiusAdvisor(data);
+        int n = data.getNumberOfExamples();
+        assertEquals(n * (n - 1) / 2, advisor.getSampleSize(), "Un dataset piccolo dovrebbe essere esaminato per intero");
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = 0.0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                min = Math.min(min, data.distance(i, j));
+                max = Math.max(max, data.distance(i, j));
+            }
+        }
+        assertEquals(min, advisor.quantile(0.0));
+        assertEquals(max, advisor.quantile(1.0));
+        assertEquals(1.0, advisor.fractionWithin(max));
+        assertEquals(1, advisor.estimateClusters(max));
+        assertEquals(n, advisor.estimateClusters(-1.0));
+
+        int previous = n;
+        for (double radius : advisor.suggestRadii()) {
+            int estimate = advisor.estimateClusters(radius);
+            assertTrue(estimate <= previous, "La stima non dovrebbe crescere con il raggio");
+            previous = estimate;
+        }
+
+        RadiusAdvisor sampled = new RadiusAdvisor(data, 500, 50, 7L);
+        assertEquals(500, sampled.getSampleSize());
+        assertEquals(sampled.quantile(0.5), new RadiusAdvisor(data, 500, 50, 7L).quantile(0.5),
+                "Lo stesso seme dovrebbe produrre le stesse stime");
+        assertTrue(sampled.report(null).contains("cluster stimati="));
+        assertThrows(EmptyDatasetException.class, () -> new RadiusAdvisor(null));
+    }
+
+    @Test
+    @DisplayName("Allo scadere del tempo il risultato parziale contiene soltanto cluster del risultato completo")
+    void testTimeBudgetReturnsPartialResult() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(13, 300);
+        QTMiner complete = new QTMiner(0.3);
+        complete.compute(data);
+        assertFalse(complete.isPartial());
+        assertTrue(complete.getUnclustered().isEmpty());
+
+        // Il destinatario rallenta ogni conferma, così che il tempo scada prima della fine
+        QTMiner bounded = new QTMiner(0.3);
+        bounded.setTimeBudget(20);
+        ClusterSet notified = new ClusterSet();
+        bounded.setClusterListener(c -> {
+            notified.add(c);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        int numClusters = bounded.compute(data);
+
+        assertTrue(bounded.isPartial(), "Il clustering dovrebbe essere interrotto allo scadere del tempo");
+        assertTrue(numClusters < describe(complete.getC()).size());
+        assertTrue(describe(complete.getC()).containsAll(describe(bounded.getC())),
+                "Ogni cluster parziale dovrebbe far parte del risultato completo");
+        assertEquals(new TreeSet<>(describe(bounded.getC())), new TreeSet<>(describe(notified)),
+                "Ogni cluster confermato dovrebbe essere notificato");
+
+        BitSet assigned = new BitSet();
+        for (Cluster c : bounded.getC()) {
+            c.forEach(assigned::set);
+        }
+        assertFalse(assigned.intersects(bounded.getUnclustered()));
+        assertEquals(data.getNumberOfExamples(), assigned.cardinality() + bounded.getUnclustered().cardinality());
+    }
+
+    @Test
+    @DisplayName("Se il tempo scade durante la costruzione delle strutture di ricerca il risultato è vuoto")
+    void testTimeBudgetStopsNeighbourStructures() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(23, 3000);
+        for (NeighbourSearch search : new NeighbourSearch[]{NeighbourSearch.DISTANCE_MATRIX, NeighbourSearch.NEIGHBOUR_GRAPH}) {
+            QTMiner bounded = new QTMiner(0.3, search);
+            bounded.setPartitioning(false);
+            bounded.setTimeBudget(1);
+            int numClusters = bounded.compute(data);
+
+            assertTrue(bounded.isPartial(), search.name());
+            assertEquals(0, numClusters, search.name());
+            assertEquals(data.getNumberOfExamples(), bounded.getUnclustered().cardinality());
+        }
+    }
+
+    @Test
+    @DisplayName("L'avanzamento riporta righe assegnate e cluster trovati fino al risultato completo")
+    void testProgressListenerReportsTotals() throws EmptyDatasetException, ClusteringRadiusException {
+        Data data = createMixedData(17, 300);
+        QTMiner miner = new QTMiner(0.3);
+        List<int[]> reports = new ArrayList<>();
+        miner.setProgressListener((rows, clusters) -> reports.add(new int[]{rows, clusters}));
+        int numClusters = miner.compute(data);
+
+        assertEquals(numClusters, reports.size());
+        for (int k = 0; k < reports.size(); k++) {
+            assertEquals(k + 1, reports.get(k)[1]);
+            assertTrue(k == 0 || reports.get(k)[0] > reports.get(k - 1)[0], "Le righe assegnate dovrebbero crescere");
+        }
+        assertEquals(data.getNumberOfExamples(), reports.get(reports.size() - 1)[0]);
+    }
+
+    @Test
+    @DisplayName("L'annullamento interrompe il clustering senza modificare l'insieme dei cluster")
+    void testCancellationStopsMining() {
+        Data data = createMixedData(19, 300);
+        for (CandidateSelection selection : CandidateSelection.values()) {
+            QTMiner miner = new QTMiner(0.3);
+            miner.setCandidateSelection(selection);
+            CancellationToken token = new CancellationToken();
+            miner.setCancellationToken(token);
+            int[] found = new int[1];
+            miner.setProgressListener((rows, clusters) -> {
+                found[0] = clusters;
+                if (clusters == 3) {
+                    token.cancel();
+                }
+            });
+            assertThrows(CancellationException.class, () -> miner.compute(data), selection.name());
+            assertEquals(3, found[0], "Nessun cluster dovrebbe essere scelto dopo l'annullamento");
+            assertFalse(miner.getC().iterator().hasNext());
+        }
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        for (NeighbourSearch search : NeighbourSearch.values()) {
+            QTMiner cancelled = new QTMiner(0.3, search);
+            cancelled.setCancellationToken(token);
+            assertThrows(CancellationException.class, () -> cancelled.compute(data), search.name());
+        }
+    }
+}
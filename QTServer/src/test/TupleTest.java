@@ -6,6 +6,11 @@ import org.junit.jupiter.api.Test;
 
 import data.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TupleTest {
@@ -55,4 +60,21 @@ class TupleTest {
             tuple1.getDistance(shortTuple);
         }, "Dovrebbe essere lanciata un'eccezione per tuple di lunghezza diversa.");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("I codici dei valori discreti dovrebbero sopravvivere alla serializzazione")
+    void testDistanceAfterSerialization() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Tuple[]{tuple1, tuple2});
+        }
+        Tuple[] copies;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copies = (Tuple[]) in.readObject();
+        }
+
+        assertEquals(tuple1.getDistance(tuple2), copies[0].getDistance(copies[1]), 0.0);
+        assertEquals(0.0, copies[0].getDistance(tuple1), 0.001,
+                "Una tupla deserializzata dovrebbe avere distanza nulla dall'originale.");
+    }
+}
@@ -0,0 +1,193 @@
+package server;
+
+import data.Attribute;
+import data.ContinuousAttribute;
+import data.Data;
+import database.Example;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MiningJobTest {
+
+    private static Data createData(long seed, int size) {
+        List<Attribute> schema = new ArrayList<>();
+        schema.add(new ContinuousAttribute("A", 0, 0.0, 100.0));
+        schema.add(new ContinuousAttribute("B", 1, 0.0, 100.0));
+        Random random = new Random(seed);
+        List<Example> examples = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Example ex = new Example();
+            ex.add(random.nextDouble() * 100);
+            ex.add(random.nextDouble() * 100);
+            examples.add(ex);
+        }
+        return new Data(examples, schema);
+    }
+
+    private static void waitFor(MiningJob job, MiningJob.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (job.getState() != state) {
+            assertTrue(System.nanoTime() < deadline, "Il job non ha raggiunto lo stato " + state + ": " + job.getState());
+            Thread.sleep(5);
+        }
+    }
+
+    private static void waitForRelease(MiningScheduler scheduler) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getOccupied() != 0 || scheduler.getWaiting() != 0) {
+            assertTrue(System.nanoTime() < deadline, "Lo scheduler non è stato liberato: " + scheduler);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Un job passa da QUEUED a RUNNING a DONE e conserva il risultato")
+    void testJobCompletes() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 1);
+        JobRegistry registry = new JobRegistry(scheduler);
+        MiningScheduler.Ticket holder = scheduler.admit();
+        Data data = createData(1, 200);
+        MiningJob job = registry.submit(data, 0.2);
+        assertEquals(MiningJob.State.QUEUED, job.getState());
+        assertThrows(IllegalStateException.class, job::getResult);
+
+        holder.close();
+        waitFor(job, MiningJob.State.DONE);
+        assertTrue(job.getNumClusters() > 1);
+        assertEquals(data.getNumberOfExamples(), job.getRowsClustered());
+        assertEquals(job.getNumClusters(), job.getClustersFound());
+        assertNotNull(job.getResult());
+        assertTrue(job.getFinishedAt() > 0);
+        assertFalse(job.cancel(), "Un job terminato non dovrebbe essere annullato");
+        assertEquals(MiningJob.State.DONE, job.getState());
+        assertSame(job, registry.get(job.getId()));
+        waitForRelease(scheduler);
+    }
+
+    @Test
+    @DisplayName("Un job che fallisce conserva il messaggio di errore")
+    void testJobFails() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 0);
+        MiningJob job = new JobRegistry(scheduler).submit(createData(2, 50), 10.0);
+        waitFor(job, MiningJob.State.FAILED);
+        IllegalStateException e = assertThrows(IllegalStateException.class, job::getResult);
+        assertTrue(e.getMessage().contains("unico cluster"), e.getMessage());
+        waitForRelease(scheduler);
+    }
+
+    @Test
+    @DisplayName("Con slot e coda pieni l'invio viene rifiutato senza creare il job")
+    void testSubmitRejectedWhenBusy() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 1);
+        JobRegistry registry = new JobRegistry(scheduler);
+        MiningScheduler.Ticket holder = scheduler.admit();
+        MiningJob queued = registry.submit(createData(3, 100), 0.2);
+
+        ServerBusyException busy = assertThrows(ServerBusyException.class,
+                () -> registry.submit(createData(3, 100), 0.2));
+        assertTrue(busy.getRetryAfter() > 0);
+        assertEquals(1, registry.size());
+
+        assertTrue(queued.cancel());
+        holder.close();
+        waitForRelease(scheduler);
+    }
+
+    @Test
+    @DisplayName("Un job annullato in coda libera subito il suo posto e non viene eseguito")
+    void testCancelQueuedJob() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 1);
+        MiningScheduler.Ticket holder = scheduler.admit();
+        MiningJob job = new JobRegistry(scheduler).submit(createData(4, 100), 0.2);
+
+        assertTrue(job.cancel());
+        assertEquals(MiningJob.State.CANCELLED, job.getState());
+        assertFalse(job.cancel(), "Un job già annullato non dovrebbe esserlo di nuovo");
+        waitForQueue(scheduler);
+        holder.close();
+        waitForRelease(scheduler);
+        assertEquals(MiningJob.State.CANCELLED, job.getState());
+        assertEquals(0, job.getClustersFound());
+        assertThrows(IllegalStateException.class, job::getNumClusters);
+    }
+
+    @Test
+    @DisplayName("Un job annullato durante il clustering resta annullato e libera lo slot")
+    void testCancelRunningJob() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 0);
+        MiningJob job = new JobRegistry(scheduler).submit(createData(5, 20000), 0.01);
+        waitFor(job, MiningJob.State.RUNNING);
+
+        assertTrue(job.cancel());
+        assertEquals(MiningJob.State.CANCELLED, job.getState());
+        waitForRelease(scheduler);
+        assertEquals(MiningJob.State.CANCELLED, job.getState(),
+                "La terminazione del clustering non dovrebbe sovrascrivere l'annullamento");
+        assertThrows(IllegalStateException.class, job::getResult);
+    }
+
+    @Test
+    @DisplayName("Annullamenti concorrenti con l'esecuzione lasciano ogni job in uno stato finale coerente")
+    void testConcurrentCancelAndFinish() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(2, 8);
+        JobRegistry registry = new JobRegistry(scheduler);
+        Data data = createData(6, 60);
+        for (int round = 0; round < 20; round++) {
+            List<MiningJob> jobs = new ArrayList<>();
+            for (int k = 0; k < 10; k++) {
+                jobs.add(registry.submit(data, 0.2));
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> cancellers = new ArrayList<>();
+            for (MiningJob job : jobs) {
+                Thread canceller = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    job.cancel();
+                });
+                canceller.start();
+                cancellers.add(canceller);
+            }
+            start.countDown();
+            for (Thread canceller : cancellers) {
+                canceller.join();
+            }
+            waitForRelease(scheduler);
+            for (MiningJob job : jobs) {
+                waitForFinish(job);
+                MiningJob.State state = job.getState();
+                assertTrue(state == MiningJob.State.DONE || state == MiningJob.State.CANCELLED, state.name());
+                if (state == MiningJob.State.DONE) {
+                    assertNotNull(job.getResult());
+                } else {
+                    assertThrows(IllegalStateException.class, job::getResult);
+                }
+            }
+        }
+    }
+
+    private static void waitForFinish(MiningJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!job.getState().isFinished()) {
+            assertTrue(System.nanoTime() < deadline, "Il job non è terminato: " + job.getState());
+            Thread.sleep(5);
+        }
+    }
+
+    private static void waitForQueue(MiningScheduler scheduler) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getWaiting() != 0) {
+            assertTrue(System.nanoTime() < deadline, "Il job annullato non ha lasciato la coda");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package server;
+
+import mining.CancellationToken;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MiningSchedulerTest {
+
+    @Test
+    @DisplayName("Con slot e coda pieni la richiesta successiva viene rifiutata con un tempo di attesa positivo")
+    void testRejectsWhenSlotsAndQueueAreFull() throws ServerBusyException {
+        MiningScheduler scheduler = new MiningScheduler(2, 1);
+        MiningScheduler.Ticket first = scheduler.admit();
+        MiningScheduler.Ticket second = scheduler.admit();
+        MiningScheduler.Ticket queued = scheduler.admit();
+        assertEquals(2, scheduler.getOccupied());
+        assertEquals(1, scheduler.getWaiting());
+
+        ServerBusyException busy = assertThrows(ServerBusyException.class, scheduler::admit);
+        assertTrue(busy.getRetryAfter() > 0);
+
+        // Il rilascio di uno slot lo assegna alla richiesta in coda
+        first.close();
+        assertEquals(2, scheduler.getOccupied());
+        assertEquals(0, scheduler.getWaiting());
+        second.close();
+        queued.close();
+        queued.close(); // Il rilascio ripetuto non altera i contatori
+        assertEquals(0, scheduler.getOccupied());
+        assertEquals(0, scheduler.getWaiting());
+        assertTrue(scheduler.toString().contains("rifiutati=1"));
+    }
+
+    @Test
+    @DisplayName("I contatori tornano a zero al termine dei clustering, anche se falliscono")
+    void testCountersReturnToZeroAfterRun() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 1);
+        assertEquals(42, scheduler.run(() -> 42, null));
+        assertThrows(IllegalStateException.class, () -> scheduler.run(() -> {
+            throw new IllegalStateException("errore");
+        }, null));
+        assertEquals(0, scheduler.getOccupied());
+        assertEquals(0, scheduler.getWaiting());
+
+        MiningScheduler.Ticket ticket = scheduler.admit();
+        ticket.run(() -> null, null);
+        assertThrows(IllegalStateException.class, () -> ticket.run(() -> null, null),
+                "Una prenotazione non dovrebbe essere eseguita due volte");
+        assertEquals(0, scheduler.getOccupied());
+    }
+
+    @Test
+    @DisplayName("Una richiesta in coda parte quando si libera uno slot")
+    void testQueuedRequestRunsWhenSlotIsReleased() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 1);
+        MiningScheduler.Ticket holder = scheduler.admit();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.run(() -> "eseguito", null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waitForQueue(scheduler, 1);
+        assertFalse(queued.isDone());
+
+        holder.close();
+        assertEquals("eseguito", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getOccupied());
+        assertEquals(0, scheduler.getWaiting());
+    }
+
+    @Test
+    @DisplayName("Una richiesta in coda annullata lascia la coda senza attendere lo slot")
+    void testCancelledRequestLeavesQueue() throws Exception {
+        MiningScheduler scheduler = new MiningScheduler(1, 1);
+        MiningScheduler.Ticket holder = scheduler.admit();
+        CancellationToken token = new CancellationToken();
+        CountDownLatch ran = new CountDownLatch(1);
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.run(() -> {
+                    ran.countDown();
+                    return null;
+                }, token);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waitForQueue(scheduler, 1);
+        assertThrows(ServerBusyException.class, scheduler::admit);
+
+        token.cancel();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, e.getCause().getCause());
+        assertEquals(0, scheduler.getWaiting(), "La richiesta annullata non dovrebbe occupare la coda");
+        assertEquals(1, ran.getCount(), "Il clustering annullato non dovrebbe essere eseguito");
+
+        // Il posto liberato è di nuovo disponibile
+        MiningScheduler.Ticket next = scheduler.admit();
+        holder.close();
+        next.close();
+        assertEquals(0, scheduler.getOccupied());
+    }
+
+    private static void waitForQueue(MiningScheduler scheduler, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getWaiting() != size) {
+            assertTrue(System.nanoTime() < deadline, "La richiesta non è entrata in coda");
+            Thread.sleep(5);
+        }
+    }
+}
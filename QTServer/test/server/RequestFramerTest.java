@@ -0,0 +1,113 @@
+package server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestFramerTest {
+
+    /**
+     * Serializza una sequenza di richieste e restituisce i byte dello stream e la
+     * posizione in cui termina ciascuna richiesta, intestazione compresa nella prima.
+     */
+    private static byte[] serialize(List<Object[]> requests, List<Integer> ends) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (int k = 0; k < requests.size(); k++) {
+            if (k == 3) {
+                out.reset(); // Azzera la tabella degli oggetti già trasmessi
+            }
+            for (Object item : requests.get(k)) {
+                out.writeObject(item);
+            }
+            out.flush();
+            ends.add(bytes.size());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Object[]> sampleRequests() {
+        List<Object[]> requests = new ArrayList<>();
+        requests.add(new Object[]{0, "playtennis"});
+        requests.add(new Object[]{1, 0.5});
+        requests.add(new Object[]{7});
+        requests.add(new Object[]{4, new double[]{0.1, 0.2, 0.4}});
+        requests.add(new Object[]{6, 0.5, 250L});
+        requests.add(new Object[]{1, 0.5}); // Codice e parametro trasmessi come riferimenti
+        requests.add(new Object[]{2, "x".repeat(70_000)});
+        requests.add(new Object[]{99});
+        requests.add(new Object[]{11, 3L});
+        return requests;
+    }
+
+    @Test
+    @DisplayName("Le richieste vengono consegnate soltanto quando sono arrivate per intero")
+    void testReleasesOnlyCompleteRequests() throws IOException, ClassNotFoundException {
+        List<Object[]> requests = sampleRequests();
+        List<Integer> ends = new ArrayList<>();
+        byte[] stream = serialize(requests, ends);
+
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            RequestFramer framer = new RequestFramer();
+            ByteArrayOutputStream released = new ByteArrayOutputStream();
+            int offset = 0;
+            while (offset < stream.length) {
+                int count = Math.min(stream.length - offset, 1 + random.nextInt(round == 0 ? 1 : 4096));
+                byte[] chunk = Arrays.copyOfRange(stream, offset, offset + count);
+                offset += count;
+                released.write(framer.append(chunk, count));
+                // Sono state consegnate esattamente le richieste arrivate per intero
+                int received = offset;
+                int expected = ends.stream().filter(end -> end <= received).reduce(0, Math::max);
+                assertEquals(expected, released.size(), "Byte ricevuti: " + received);
+            }
+            assertArrayEquals(stream, released.toByteArray());
+        }
+
+        // Le richieste consegnate si deserializzano come quelle inviate
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stream));
+        for (Object[] request : requests) {
+            for (Object item : request) {
+                Object read = in.readObject();
+                if (item instanceof double[]) {
+                    assertArrayEquals((double[]) item, (double[]) read);
+                } else {
+                    assertEquals(item, read);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Uno stream non valido o una richiesta troppo grande vengono rifiutati")
+    void testRejectsInvalidStreams() throws IOException {
+        byte[] garbage = {1, 2, 3, 4};
+        assertThrows(StreamCorruptedException.class, () -> new RequestFramer().append(garbage, garbage.length));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(5);
+        out.writeObject(new double[RequestFramer.MAX_REQUEST_SIZE / 8 + 1]);
+        out.flush();
+        byte[] stream = bytes.toByteArray();
+        RequestFramer framer = new RequestFramer();
+        assertThrows(StreamCorruptedException.class, () -> {
+            for (int offset = 0; offset < stream.length; offset += 8192) {
+                int count = Math.min(8192, stream.length - offset);
+                assertEquals(0, framer.append(Arrays.copyOfRange(stream, offset, offset + count), count).length,
+                        "La richiesta non è ancora completa");
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectorServerTest {
+
+    /**
+     * Avvia un server con un solo worker su una porta libera.
+     */
+    private static int startServer() throws IOException {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Thread server = new Thread(new SelectorServer(port, 1, 1)::run, "selector-test");
+        server.setDaemon(true);
+        server.start();
+        return port;
+    }
+
+    private static Socket connect(int port) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                Socket socket = new Socket("localhost", port);
+                socket.setSoTimeout(5000);
+                return socket;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Un client lento a completare una richiesta non blocca l'unico worker")
+    void testSlowClientDoesNotBlockFastClient() throws Exception {
+        int port = startServer();
+        try (Socket slow = connect(port); Socket fast = connect(port)) {
+            ObjectOutputStream slowOut = new ObjectOutputStream(slow.getOutputStream());
+            ObjectInputStream slowIn = new ObjectInputStream(slow.getInputStream());
+            // Il codice della richiesta 5 senza il suo parametro
+            slowOut.writeObject(5);
+            slowOut.flush();
+            Thread.sleep(200);
+
+            ObjectOutputStream fastOut = new ObjectOutputStream(fast.getOutputStream());
+            ObjectInputStream fastIn = new ObjectInputStream(fast.getInputStream());
+            long start = System.nanoTime();
+            fastOut.writeObject(7);
+            fastOut.flush();
+            assertEquals("OK", fastIn.readObject());
+            assertTrue(((String) fastIn.readObject()).contains("slot occupati"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2),
+                    "Il client veloce non dovrebbe attendere il client lento");
+
+            // Il client lento completa la richiesta e riceve la sua risposta
+            slowOut.writeObject(new double[]{0.1, 0.5});
+            slowOut.flush();
+            assertEquals("ERROR: Nessun dato caricato su cui stimare i raggi.", slowIn.readObject());
+
+            // Le due connessioni restano utilizzabili
+            slowOut.writeObject(7);
+            slowOut.flush();
+            assertEquals("OK", slowIn.readObject());
+            slowIn.readObject();
+        }
+    }
+
+    @Test
+    @DisplayName("Un client che si disconnette durante una richiesta non fa girare a vuoto il selettore")
+    void testDisconnectDuringBusyRequest() throws Exception {
+        Queue<Runnable> held = new ArrayDeque<>();
+        try (ServerSocketChannel server = ServerSocketChannel.open();
+             Selector selector = Selector.open()) {
+            server.bind(new InetSocketAddress("localhost", 0));
+            Socket client = new Socket("localhost", server.socket().getLocalPort());
+            SocketChannel channel = server.accept();
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            // Il worker viene trattenuto: la richiesta resta in elaborazione
+            ChannelConnection connection = new ChannelConnection(channel, key, held::add);
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+            ObjectOutputStream out = new ObjectOutputStream(client.getOutputStream());
+            out.writeObject(7);
+            out.flush();
+            while (held.isEmpty()) {
+                select(selector, connection, buffer);
+            }
+            client.close();
+
+            // Letta la chiusura, il canale non deve più essere segnalato come pronto
+            int wakeups = 0;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < deadline) {
+                wakeups += select(selector, connection, buffer);
+            }
+            assertTrue(wakeups <= 2, "Il selettore è stato risvegliato " + wakeups + " volte");
+
+            // Terminata la richiesta, il worker chiude la connessione
+            held.poll().run();
+            assertFalse(channel.isOpen());
+        }
+    }
+
+    /**
+     * Esegue un'iterazione del ciclo di un thread di I/O con un'attesa massima di 50
+     * millisecondi.
+     *
+     * @return Il numero di chiavi pronte.
+     */
+    private static int select(Selector selector, ChannelConnection connection, ByteBuffer buffer) throws IOException {
+        int ready = selector.select(50);
+        for (SelectionKey key : selector.selectedKeys()) {
+            if (key.isValid() && key.isWritable()) {
+                connection.write();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.read(buffer);
+            }
+        }
+        selector.selectedKeys().clear();
+        return ready;
+    }
+}